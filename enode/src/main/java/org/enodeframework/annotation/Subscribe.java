@@ -10,4 +10,18 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface Subscribe {
+    /**
+     * 参数为List的批量处理方法，累计到该数量时立即调用
+     */
+    int batchSize() default 100;
+
+    /**
+     * 参数为List的批量处理方法，第一个事件到达后最多等待的时间
+     */
+    int batchWindowMilliseconds() default 10;
+
+    /**
+     * 该处理方法最多同时执行的数量，小于等于0时使用全局配置
+     */
+    int maxConcurrency() default 0;
 }
\ No newline at end of file
@@ -8,4 +8,9 @@ interface CommandHandlerProxy : ObjectProxy, MethodInvocation {
      * Handle the given application command async. deal with aggregate in memory
      */
     suspend fun handleAsync(context: CommandContext, command: CommandMessage<*>)
+
+    /**
+     * 直接调用不可挂起的处理方法，返回处理方法的返回值
+     */
+    fun handle(context: CommandContext, command: CommandMessage<*>): Any?
 }
\ No newline at end of file
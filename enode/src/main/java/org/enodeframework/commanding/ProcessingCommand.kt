@@ -1,5 +1,6 @@
 package org.enodeframework.commanding
 
+import org.enodeframework.eventing.DomainEventStream
 import java.util.concurrent.CompletableFuture
 
 /**
@@ -13,6 +14,11 @@ class ProcessingCommand(
     lateinit var mailBox: ProcessingCommandMailbox
     var sequence: Long = 0
     var isDuplicated = false
+
+    /**
+     * 重复命令已持久化的事件流，由事件提交时的批量查询预先填充，避免重新处理命令时再次查询EventStore
+     */
+    var duplicatedEventStream: DomainEventStream? = null
     fun completeAsync(commandResult: CommandResult): CompletableFuture<Boolean> {
         return commandExecuteContext.onCommandExecutedAsync(commandResult)
     }
@@ -5,6 +5,7 @@ import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.async
 import org.enodeframework.common.extensions.SystemClock
 import org.enodeframework.common.io.Task
+import org.enodeframework.eventing.DomainEventStream
 import org.slf4j.LoggerFactory
 import java.util.*
 import java.util.concurrent.CompletableFuture
@@ -25,6 +26,7 @@ class ProcessingCommandMailbox(
     private val asyncLockObj = Any()
     private var messageDict: ConcurrentHashMap<Long, ProcessingCommand> = ConcurrentHashMap()
     private var duplicateCommandIdDict: LinkedHashSet<String> = LinkedHashSet()
+    private var duplicateCommandEventStreamDict: ConcurrentHashMap<String, DomainEventStream> = ConcurrentHashMap()
     private val isUsing = AtomicInteger(0)
     private val isRemoved = AtomicInteger(0)
     private var lastActiveTime: Date
@@ -154,6 +156,14 @@ class ProcessingCommandMailbox(
         duplicateCommandIdDict.add(commandId)
     }
 
+    /**
+     * 记录重复命令已持久化的事件流，命令重新处理时直接重新发布，无需再次查询EventStore
+     */
+    fun addDuplicateCommandEventStream(eventStream: DomainEventStream) {
+        duplicateCommandIdDict.add(eventStream.commandId)
+        duplicateCommandEventStreamDict[eventStream.commandId] = eventStream
+    }
+
     fun resetConsumingSequence(consumingSequence: Long) {
         this.consumingSequence.set(consumingSequence)
         lastActiveTime = Date()
@@ -186,6 +196,7 @@ class ProcessingCommandMailbox(
             val removed = messageDict.remove(message.sequence)
             if (removed != null) {
                 duplicateCommandIdDict.removeIf { x -> checkContains(x, message.message.id) }
+                duplicateCommandEventStreamDict.remove(message.message.id)
                 lastActiveTime = Date()
                 return message.completeAsync(result)
             }
@@ -232,6 +243,7 @@ class ProcessingCommandMailbox(
         if (message != null) {
             if (duplicateCommandIdDict.any { x -> checkContains(x, message.message.id) }) {
                 message.isDuplicated = true
+                message.duplicatedEventStream = duplicateCommandEventStreamDict[message.message.id]
             }
             messageHandler.handleAsync(message).whenComplete { _, _ ->
                 consumingSequence.incrementAndGet()
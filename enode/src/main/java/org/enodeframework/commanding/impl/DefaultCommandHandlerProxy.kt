@@ -4,11 +4,11 @@ import kotlinx.coroutines.future.asDeferred
 import org.enodeframework.commanding.CommandContext
 import org.enodeframework.commanding.CommandHandlerProxy
 import org.enodeframework.commanding.CommandMessage
+import org.enodeframework.infrastructure.MethodInvoker
 import java.lang.invoke.MethodHandle
 import java.lang.reflect.Method
 import java.util.concurrent.CompletionStage
 import kotlin.coroutines.intrinsics.suspendCoroutineUninterceptedOrReturn
-import kotlin.reflect.jvm.kotlinFunction
 
 /**
  * @author anruence@gmail.com
@@ -17,21 +17,26 @@ class DefaultCommandHandlerProxy : CommandHandlerProxy {
     private lateinit var innerObject: Any
     private lateinit var methodHandle: MethodHandle
     private lateinit var method: Method
+    private lateinit var methodInvoker: MethodInvoker
 
     override suspend fun handleAsync(context: CommandContext, command: CommandMessage<*>) {
-        if (method.kotlinFunction?.isSuspend == true) {
+        if (methodInvoker.isSuspend) {
             invokeSuspend(getInnerObject(), context, command)
             return
         }
-        val result = methodHandle.invoke(getInnerObject(), context, command)
+        val result = handle(context, command)
         if (result is CompletionStage<*>) {
             result.asDeferred().await()
         }
     }
 
+    override fun handle(context: CommandContext, command: CommandMessage<*>): Any? {
+        return methodInvoker.invoke(getInnerObject(), context, command)
+    }
+
     private suspend fun invokeSuspend(obj: Any, context: CommandContext, command: CommandMessage<*>): Any? =
         suspendCoroutineUninterceptedOrReturn { continuation ->
-            methodHandle.invoke(obj, context, command, continuation)
+            methodInvoker.invoke(obj, context, command, continuation)
         }
 
     override fun getInnerObject(): Any {
@@ -53,4 +58,12 @@ class DefaultCommandHandlerProxy : CommandHandlerProxy {
     override fun setMethod(method: Method) {
         this.method = method
     }
+
+    override fun setMethodInvoker(methodInvoker: MethodInvoker) {
+        this.methodInvoker = methodInvoker
+    }
+
+    override fun isSuspendMethod(): Boolean {
+        return methodInvoker.isSuspend
+    }
 }
\ No newline at end of file
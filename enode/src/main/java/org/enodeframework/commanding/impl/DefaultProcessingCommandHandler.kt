@@ -2,10 +2,7 @@ package org.enodeframework.commanding.impl
 
 import com.google.common.base.Strings
 import kotlinx.coroutines.CoroutineDispatcher
-import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.async
-import kotlinx.coroutines.future.asCompletableFuture
 import org.enodeframework.commanding.*
 import org.enodeframework.common.exception.AggregateRootReferenceChangedException
 import org.enodeframework.common.io.IOHelper
@@ -17,6 +14,7 @@ import org.enodeframework.domain.DomainExceptionMessage
 import org.enodeframework.domain.MemoryCache
 import org.enodeframework.eventing.*
 import org.enodeframework.infrastructure.TypeNameProvider
+import org.enodeframework.infrastructure.impl.HandlerInvocation
 import org.enodeframework.messaging.ApplicationMessage
 import org.enodeframework.messaging.MessageHandlerData
 import org.enodeframework.messaging.MessagePublisher
@@ -108,9 +106,11 @@ class DefaultProcessingCommandHandler(
         val taskSource = CompletableFuture<Boolean>()
         IOHelper.tryAsyncActionRecursivelyWithoutResult("HandleCommandAsync", {
             commandContext.clear()
-            CoroutineScope(coroutineDispatcher).async {
+            HandlerInvocation.invokeAsync(commandHandler, coroutineDispatcher, {
+                commandHandler.handle(commandContext, command)
+            }) {
                 commandHandler.handleAsync(commandContext, command)
-            }.asCompletableFuture()
+            }
         }, {
             if (logger.isDebugEnabled) {
                 logger.debug(
@@ -247,6 +247,10 @@ class DefaultProcessingCommandHandler(
     private fun republishCommandEvents(
         processingCommand: ProcessingCommand, retryTimes: Int
     ): CompletableFuture<Boolean> {
+        val duplicatedEventStream = processingCommand.duplicatedEventStream
+        if (duplicatedEventStream != null) {
+            return eventCommittingService.publishDomainEventAsync(processingCommand, duplicatedEventStream)
+        }
         val future = CompletableFuture<Boolean>()
         val command = processingCommand.message
         IOHelper.tryAsyncActionRecursively("ProcessIfNoEventsOfCommand", {
@@ -0,0 +1,12 @@
+package org.enodeframework.configurations;
+
+/**
+ * EventStore连接的数据库类型，同一个JDBC实现连接不同数据库时按类型选择SQL语法
+ *
+ * @author anruence@gmail.com
+ */
+public enum DatabaseDialect {
+    MYSQL,
+    PG,
+    MONGO
+}
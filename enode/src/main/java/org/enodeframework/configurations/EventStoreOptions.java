@@ -59,6 +59,10 @@ public class EventStoreOptions {
      * 聚合根已发布事件表的聚合根已发布版本唯一索引的默认名称；默认为：uk_processor_name_aggregate_root_id_version
      */
     private String publishedUkName;
+    /**
+     * 数据库类型，JDBC实现按该值选择MySQL或PostgreSQL的语法；mysql()、pg()、mongo()会设置对应的类型
+     */
+    private DatabaseDialect dialect;
     /**
      * 解析CommandId的正则表达式
      */
@@ -83,6 +87,7 @@ public class EventStoreOptions {
     public static EventStoreOptions mysql() {
         EventStoreOptions option = new EventStoreOptions();
         option.setDbName("enode");
+        option.setDialect(DatabaseDialect.MYSQL);
         option.setCommandIdPattern(MYSQL_PATTERN);
         option.setEventTableName("event_stream");
         option.setPublishedTableName("published_version");
@@ -95,6 +100,7 @@ public class EventStoreOptions {
     public static EventStoreOptions mongo() {
         EventStoreOptions option = new EventStoreOptions();
         option.setDbName("enode");
+        option.setDialect(DatabaseDialect.MONGO);
         option.setCommandIdPattern(MONGO_PATTERN);
         option.setEventTableName("event_stream");
         option.setPublishedTableName("published_version");
@@ -107,6 +113,7 @@ public class EventStoreOptions {
     public static EventStoreOptions pg() {
         EventStoreOptions option = new EventStoreOptions();
         option.setDbName("enode");
+        option.setDialect(DatabaseDialect.PG);
         option.setCommandIdPattern(PG_PATTERN);
         option.setEventTableName("event_stream");
         option.setPublishedTableName("published_version");
@@ -164,6 +171,14 @@ public class EventStoreOptions {
         this.publishedUkName = publishedUkName;
     }
 
+    public DatabaseDialect getDialect() {
+        return dialect;
+    }
+
+    public void setDialect(DatabaseDialect dialect) {
+        this.dialect = dialect;
+    }
+
     public Pattern getCommandIdPattern() {
         return commandIdPattern;
     }
@@ -0,0 +1,106 @@
+package org.enodeframework.configurations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 投影重建的配置
+ *
+ * @author anruence@gmail.com
+ */
+public class ProjectionRebuildOptions {
+    /**
+     * 重建的事件处理器名称，已发布版本按该名称写入；默认为：DefaultEventProcessor
+     */
+    private String processorName;
+    /**
+     * 被重建的处理器类型，事件只分发给这些处理器，其他处理器不会重复收到事件；必须配置
+     */
+    private List<Class<?>> handlerTypes;
+    /**
+     * 每次从EventStore读取的事件流数量；默认为：1000
+     */
+    private int pageSize;
+    /**
+     * 后台预取的页数；默认为：2
+     */
+    private int prefetchPageCount;
+    /**
+     * 并行处理的通道数，同一个聚合根总是落在同一个通道内顺序处理；默认为：CPU核数 * 2
+     */
+    private int parallelism;
+    /**
+     * 处理多少个事件流后批量写入一次已发布版本并回调checkpoint；默认为：10000
+     */
+    private int checkpointEventStreamCount;
+    /**
+     * 输出进度和吞吐量日志的时间间隔；默认为：5000ms
+     */
+    private int progressLogIntervalMilliseconds;
+
+    public ProjectionRebuildOptions() {
+        processorName = "DefaultEventProcessor";
+        handlerTypes = new ArrayList<>();
+        pageSize = 1000;
+        prefetchPageCount = 2;
+        parallelism = Runtime.getRuntime().availableProcessors() * 2;
+        checkpointEventStreamCount = 10000;
+        progressLogIntervalMilliseconds = 5000;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public void setProcessorName(String processorName) {
+        this.processorName = processorName;
+    }
+
+    public List<Class<?>> getHandlerTypes() {
+        return handlerTypes;
+    }
+
+    public void setHandlerTypes(List<Class<?>> handlerTypes) {
+        this.handlerTypes = handlerTypes;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getPrefetchPageCount() {
+        return prefetchPageCount;
+    }
+
+    public void setPrefetchPageCount(int prefetchPageCount) {
+        this.prefetchPageCount = prefetchPageCount;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getCheckpointEventStreamCount() {
+        return checkpointEventStreamCount;
+    }
+
+    public void setCheckpointEventStreamCount(int checkpointEventStreamCount) {
+        this.checkpointEventStreamCount = checkpointEventStreamCount;
+    }
+
+    public int getProgressLogIntervalMilliseconds() {
+        return progressLogIntervalMilliseconds;
+    }
+
+    public void setProgressLogIntervalMilliseconds(int progressLogIntervalMilliseconds) {
+        this.progressLogIntervalMilliseconds = progressLogIntervalMilliseconds;
+    }
+}
@@ -0,0 +1,33 @@
+package org.enodeframework.eventing;
+
+/**
+ * 聚合根的已发布版本，用于批量更新
+ *
+ * @author anruence@gmail.com
+ */
+public class AggregatePublishedVersion {
+
+    private final String aggregateRootTypeName;
+
+    private final String aggregateRootId;
+
+    private final int version;
+
+    public AggregatePublishedVersion(String aggregateRootTypeName, String aggregateRootId, int version) {
+        this.aggregateRootTypeName = aggregateRootTypeName;
+        this.aggregateRootId = aggregateRootId;
+        this.version = version;
+    }
+
+    public String getAggregateRootTypeName() {
+        return aggregateRootTypeName;
+    }
+
+    public String getAggregateRootId() {
+        return aggregateRootId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
@@ -10,4 +10,18 @@ public interface EventProcessContext {
      * Notify the event has been processed.
      */
     CompletableFuture<Boolean> notifyEventProcessed();
+
+    /**
+     * The mq partition of the event, null if unknown.
+     */
+    default String getPartition() {
+        return null;
+    }
+
+    /**
+     * The offset of the event in its partition, -1 if unknown.
+     */
+    default long getOffset() {
+        return -1;
+    }
 }
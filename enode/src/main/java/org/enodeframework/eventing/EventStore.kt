@@ -17,6 +17,11 @@ interface EventStore {
      */
     fun findAsync(aggregateRootId: String, commandId: String): CompletableFuture<DomainEventStream?>
 
+    /**
+     * Find the event streams of a single aggregate by a batch of commandIds async, commandIds not found are skipped.
+     */
+    fun findByCommandIdsAsync(aggregateRootId: String, commandIds: List<String>): CompletableFuture<List<DomainEventStream>>
+
     /**
      * Query a range of event streams of a single aggregate from event store async.
      */
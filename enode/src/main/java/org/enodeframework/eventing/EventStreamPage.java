@@ -0,0 +1,32 @@
+package org.enodeframework.eventing;
+
+import java.util.List;
+
+/**
+ * 按存储顺序读取的一页事件流，checkpoint为本页最后一条事件流的存储位置，没有数据时与请求的checkpoint相同
+ *
+ * @author anruence@gmail.com
+ */
+public class EventStreamPage {
+
+    private final List<DomainEventStream> eventStreams;
+
+    private final String checkpoint;
+
+    public EventStreamPage(List<DomainEventStream> eventStreams, String checkpoint) {
+        this.eventStreams = eventStreams;
+        this.checkpoint = checkpoint;
+    }
+
+    public List<DomainEventStream> getEventStreams() {
+        return eventStreams;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public boolean isEmpty() {
+        return eventStreams.isEmpty();
+    }
+}
@@ -0,0 +1,13 @@
+package org.enodeframework.eventing
+
+import java.util.concurrent.CompletableFuture
+
+/**
+ * EventStore的扩展，按存储顺序读取所有聚合根的事件流，用于投影重建等追赶订阅场景
+ */
+interface EventStreamReader {
+    /**
+     * Read the event streams of all aggregates in store order after the checkpoint async, an empty checkpoint means from the beginning.
+     */
+    fun readAllAsync(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage>
+}
\ No newline at end of file
@@ -17,8 +17,24 @@ class ProcessingEventMailBox(
     val aggregateRootTypeName: String,
     val aggregateRootId: String,
     private val coroutineDispatcher: CoroutineDispatcher,
-    private var handleProcessingEventAction: Action1<ProcessingEvent>
+    /**
+     * 单次运行最多取出的消息数量，队列中的消息版本号是连续的，所以取出的一批消息也是连续的
+     */
+    private val batchSize: Int,
+    private val handleProcessingEventsAction: Action1<List<ProcessingEvent>>
 ) {
+    constructor(
+        aggregateRootTypeName: String,
+        aggregateRootId: String,
+        coroutineDispatcher: CoroutineDispatcher,
+        handleProcessingEventAction: Action1<ProcessingEvent>
+    ) : this(
+        aggregateRootTypeName,
+        aggregateRootId,
+        coroutineDispatcher,
+        1,
+        Action1 { x -> handleProcessingEventAction.apply(x[0]) })
+
     private val lockObj = Any()
     private val isUsing = AtomicInteger(0)
     private val isRemoved = AtomicInteger(0)
@@ -86,7 +102,9 @@ class ProcessingEventMailBox(
                 )
                 tryEnqueueValidWaitingMessage()
                 lastActiveTime = Date()
-                tryRun()
+                if (getTotalUnHandledMessageCount() > 0) {
+                    tryRun()
+                }
             } else if (version == this.nextExpectingEventVersion) {
                 logger.info(
                     "{} equals nextExpectingEventVersion ignored, aggregateRootId: {}, aggregateRootTypeName: {}, version: {}, current nextExpectingEventVersion: {}",
@@ -203,11 +221,15 @@ class ProcessingEventMailBox(
     }
 
     private fun processMessage() {
-        val message = processingEventQueue.poll()
-        if (message != null) {
+        val messages = ArrayList<ProcessingEvent>()
+        while (messages.size < batchSize) {
+            val message = processingEventQueue.poll() ?: break
+            messages.add(message)
+        }
+        if (messages.isNotEmpty()) {
             lastActiveTime = Date()
             try {
-                handleProcessingEventAction.apply(message)
+                handleProcessingEventsAction.apply(messages)
             } catch (ex: Exception) {
                 logger.error(
                     "{} run has unknown exception, aggregateRootId: {}", javaClass.name, aggregateRootId, ex
@@ -252,6 +274,22 @@ class ProcessingEventMailBox(
         return waitingProcessingEventDict.size
     }
 
+    /**
+     * 下一个期望处理的版本号，还未设置时返回null
+     */
+    fun getNextExpectingEventVersion(): Int? {
+        synchronized(lockObj) {
+            return nextExpectingEventVersion
+        }
+    }
+
+    /**
+     * 等待中的最小版本号，没有等待的消息时返回null
+     */
+    fun getMinWaitingEventVersion(): Int? {
+        return waitingProcessingEventDict.keys.minOrNull()
+    }
+
     companion object {
         private val logger = LoggerFactory.getLogger(ProcessingEventMailBox::class.java)
     }
@@ -0,0 +1,60 @@
+package org.enodeframework.eventing;
+
+/**
+ * 投影重建的进度，checkpoint之前的事件流都已处理并写入了已发布版本，可以用它断点续跑
+ *
+ * @author anruence@gmail.com
+ */
+public class ProjectionRebuildProgress {
+
+    private final String processorName;
+
+    private final String checkpoint;
+
+    private final long eventStreamCount;
+
+    private final long eventCount;
+
+    private final long elapsedMilliseconds;
+
+    public ProjectionRebuildProgress(String processorName, String checkpoint, long eventStreamCount, long eventCount, long elapsedMilliseconds) {
+        this.processorName = processorName;
+        this.checkpoint = checkpoint;
+        this.eventStreamCount = eventStreamCount;
+        this.eventCount = eventCount;
+        this.elapsedMilliseconds = elapsedMilliseconds;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getEventStreamCount() {
+        return eventStreamCount;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public long getElapsedMilliseconds() {
+        return elapsedMilliseconds;
+    }
+
+    /**
+     * 每秒处理的事件流数量
+     */
+    public long getThroughput() {
+        return elapsedMilliseconds <= 0 ? eventStreamCount : eventStreamCount * 1000 / elapsedMilliseconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[processorName: %s, checkpoint: %s, eventStreamCount: %d, eventCount: %d, elapsedMilliseconds: %d, throughput: %d/s]",
+            processorName, checkpoint, eventStreamCount, eventCount, elapsedMilliseconds, getThroughput());
+    }
+}
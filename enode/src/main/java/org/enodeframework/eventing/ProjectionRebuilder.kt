@@ -0,0 +1,28 @@
+package org.enodeframework.eventing
+
+import org.enodeframework.common.function.Action1
+import java.util.concurrent.CompletableFuture
+
+/**
+ * 绕过MQ，直接从EventStore读取事件流重建投影
+ */
+interface ProjectionRebuilder {
+    /**
+     * Rebuild the projections from the checkpoint async, the future completes when the store is caught up or the rebuild is stopped.
+     * The checkpointAction is called after each checkpoint is written, so the rebuild can be resumed from it.
+     */
+    fun rebuildAsync(
+        checkpoint: String,
+        checkpointAction: Action1<ProjectionRebuildProgress>
+    ): CompletableFuture<ProjectionRebuildProgress>
+
+    /**
+     * Get the current progress of the rebuild.
+     */
+    fun getProgress(): ProjectionRebuildProgress
+
+    /**
+     * Stop the rebuild after the current page, a final checkpoint is written before the future completes.
+     */
+    fun stop()
+}
\ No newline at end of file
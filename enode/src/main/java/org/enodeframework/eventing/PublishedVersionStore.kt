@@ -13,6 +13,14 @@ interface PublishedVersionStore {
         publishedVersion: Int
     ): CompletableFuture<Int>
 
+    /**
+     * Batch update the published versions of the given aggregates, a published version never moves backwards.
+     */
+    fun batchUpdatePublishedVersionAsync(
+        processorName: String,
+        publishedVersions: @JvmSuppressWildcards List<AggregatePublishedVersion>
+    ): CompletableFuture<Int>
+
     /**
      * Get the current published version for the given aggregate.
      */
@@ -21,4 +29,12 @@ interface PublishedVersionStore {
         aggregateRootTypeName: String,
         aggregateRootId: String
     ): CompletableFuture<Int>
+
+    /**
+     * Batch get the current published versions of the given aggregates, an aggregate without published version is mapped to 0.
+     */
+    fun batchGetPublishedVersionAsync(
+        processorName: String,
+        aggregateRootIds: @JvmSuppressWildcards List<String>
+    ): CompletableFuture<Map<String, Int>>
 }
\ No newline at end of file
@@ -176,6 +176,19 @@ class DefaultEventCommittingService(
             handleFirstEventDuplicationAsync(eventCommittingContext, 0).whenComplete { _, _ ->
                 processDuplicateAggregateRootRecursively(index + 1, contexts, eventMailBox)
             }
+        } else if (duplicateCommandIdList.isNotEmpty()) {
+            //一次性查询出所有重复命令已持久化的事件流，命令重新处理时直接重新发布这些事件流
+            findDuplicateCommandEventStreamsAsync(eventCommittingContext, duplicateCommandIdList, 0)
+                .whenComplete { eventStreams, _ ->
+                    resetCommandMailBoxConsumingSequence(
+                        eventCommittingContext,
+                        eventCommittingContext.processingCommand.sequence,
+                        duplicateCommandIdList,
+                        eventStreams
+                    ).whenComplete { _, _ ->
+                        processDuplicateAggregateRootRecursively(index + 1, contexts, eventMailBox)
+                    }
+                }
         } else {
             resetCommandMailBoxConsumingSequence(
                 eventCommittingContext, eventCommittingContext.processingCommand.sequence, duplicateCommandIdList
@@ -185,8 +198,31 @@ class DefaultEventCommittingService(
         }
     }
 
+    private fun findDuplicateCommandEventStreamsAsync(
+        context: EventCommittingContext, duplicateCommandIdList: List<String>, retryTimes: Int
+    ): CompletableFuture<List<DomainEventStream>> {
+        val future = CompletableFuture<List<DomainEventStream>>()
+        IOHelper.tryAsyncActionRecursively("FindEventsByCommandIds", {
+            eventStore.findByCommandIdsAsync(context.eventStream.aggregateRootId, duplicateCommandIdList)
+        }, { result: List<DomainEventStream> ->
+            future.complete(result)
+        }, {
+            String.format(
+                "[aggregateRootId:%s, commandIds:%s]",
+                context.eventStream.aggregateRootId,
+                serializeService.serialize(duplicateCommandIdList)
+            )
+        }, { _, _ ->
+            future.complete(ArrayList())
+        }, retryTimes, false)
+        return future
+    }
+
     private fun resetCommandMailBoxConsumingSequence(
-        context: EventCommittingContext, consumingSequence: Long, duplicateCommandIdList: List<String>?
+        context: EventCommittingContext,
+        consumingSequence: Long,
+        duplicateCommandIdList: List<String>?,
+        duplicateEventStreams: List<DomainEventStream>? = null
     ): CompletableFuture<Boolean> {
         val commandMailBox = context.processingCommand.mailBox
         val eventMailBox = context.mailBox
@@ -202,6 +238,11 @@ class DefaultEventCommittingService(
                             commandMailBox.addDuplicateCommandId(commandId)
                         }
                     }
+                    if (duplicateEventStreams != null) {
+                        for (eventStream in duplicateEventStreams) {
+                            commandMailBox.addDuplicateCommandEventStream(eventStream)
+                        }
+                    }
                     commandMailBox.resetConsumingSequence(consumingSequence)
                 } finally {
                     commandMailBox.resume()
@@ -14,6 +14,7 @@ import org.enodeframework.messaging.MessageDispatcher
 import org.slf4j.LoggerFactory
 import java.util.*
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * @author anruence@gmail.com
@@ -23,8 +24,20 @@ class DefaultProcessingEventProcessor(
     private val serializeService: SerializeService,
     private val messageDispatcher: MessageDispatcher,
     private val publishedVersionStore: PublishedVersionStore,
-    private val coroutineDispatcher: CoroutineDispatcher
+    private val coroutineDispatcher: CoroutineDispatcher,
+    /**
+     * MailBox单次运行最多处理的连续版本的事件流数量
+     */
+    private val batchSize: Int
 ) : ProcessingEventProcessor {
+    constructor(
+        scheduleService: ScheduleService,
+        serializeService: SerializeService,
+        messageDispatcher: MessageDispatcher,
+        publishedVersionStore: PublishedVersionStore,
+        coroutineDispatcher: CoroutineDispatcher
+    ) : this(scheduleService, serializeService, messageDispatcher, publishedVersionStore, coroutineDispatcher, 100)
+
     private val scanInactiveMailBoxTaskName: String =
         "CleanInactiveProcessingEventMailBoxes_" + SystemClock.now() + Random().nextInt(10000)
     private val processTryToRefreshAggregateTaskName: String =
@@ -38,6 +51,18 @@ class DefaultProcessingEventProcessor(
         ConcurrentHashMap()
     private val mailboxDict: ConcurrentHashMap<String, ProcessingEventMailBox> = ConcurrentHashMap()
     private val refreshingAggregateRootDict: ConcurrentHashMap<String, Boolean> = ConcurrentHashMap()
+
+    /**
+     * 当前处理器已知的聚合根已发布版本，来自本处理器成功的版本更新以及从存储中刷新到的版本
+     */
+    private val publishedVersionDict: ConcurrentHashMap<String, Int> = ConcurrentHashMap()
+
+    /**
+     * 等待批量查询已发布版本的MailBox，同一时刻最多只有一个批量查询在执行，执行期间新加入的MailBox合并到下一次查询
+     */
+    private val toQueryPublishedVersionMailBoxDict: ConcurrentHashMap<String, ProcessingEventMailBox> =
+        ConcurrentHashMap()
+    private val isQueryingPublishedVersion = AtomicBoolean(false)
     private var timeoutSeconds = 3600 * 24 * 3
     private var scanExpiredAggregateIntervalMilliseconds = 5000
     private var processTryToRefreshAggregateIntervalMilliseconds = 1000
@@ -80,6 +105,12 @@ class DefaultProcessingEventProcessor(
                 mailbox.aggregateRootTypeName,
                 mailbox.aggregateRootId
             )
+            //缓存中有已知的版本时先直接使用，仍然有等待的消息时再由刷新任务批量查询
+            val publishedVersion = publishedVersionDict[mailbox.aggregateRootId]
+            if (publishedVersion != null) {
+                mailbox.setNextExpectingEventVersion(publishedVersion + 1)
+                return
+            }
             tryToRefreshAggregateMailBoxNextExpectingEventVersion(mailbox)
         }
     }
@@ -88,31 +119,54 @@ class DefaultProcessingEventProcessor(
         return ProcessingEventMailBox(
             processingMessage.message.aggregateRootTypeName,
             processingMessage.message.aggregateRootId,
-            coroutineDispatcher
-        ) { y: ProcessingEvent -> dispatchProcessingMessageAsync(y, 0) }
+            coroutineDispatcher,
+            batchSize
+        ) { y: List<ProcessingEvent> -> dispatchProcessingMessageAsync(y, 0, 0) }
     }
 
     private fun tryToRefreshAggregateMailBoxNextExpectingEventVersion(processingEventMailBox: ProcessingEventMailBox) {
         if (refreshingAggregateRootDict.putIfAbsent(processingEventMailBox.aggregateRootId, true) == null) {
-            getAggregateRootLatestPublishedEventVersion(processingEventMailBox, 0)
+            toQueryPublishedVersionMailBoxDict[processingEventMailBox.aggregateRootId] = processingEventMailBox
+            tryQueryAggregateRootLatestPublishedEventVersions()
         }
     }
 
-    private fun getAggregateRootLatestPublishedEventVersion(
-        processingEventMailBox: ProcessingEventMailBox, retryTimes: Int
+    private fun tryQueryAggregateRootLatestPublishedEventVersions() {
+        if (!isQueryingPublishedVersion.compareAndSet(false, true)) {
+            return
+        }
+        val mailboxList = toQueryPublishedVersionMailBoxDict.keys.mapNotNull { x ->
+            toQueryPublishedVersionMailBoxDict.remove(x)
+        }
+        if (mailboxList.isEmpty()) {
+            isQueryingPublishedVersion.set(false)
+            //释放标记前可能有新的MailBox加入
+            if (toQueryPublishedVersionMailBoxDict.isNotEmpty()) {
+                tryQueryAggregateRootLatestPublishedEventVersions()
+            }
+            return
+        }
+        getAggregateRootLatestPublishedEventVersions(mailboxList, 0)
+    }
+
+    private fun getAggregateRootLatestPublishedEventVersions(
+        mailboxList: List<ProcessingEventMailBox>, retryTimes: Int
     ) {
-        tryAsyncActionRecursively("GetAggregateRootLatestPublishedEventVersion", {
-            publishedVersionStore.getPublishedVersionAsync(
-                name, processingEventMailBox.aggregateRootTypeName, processingEventMailBox.aggregateRootId
-            )
-        }, { result: Int ->
-            processingEventMailBox.setNextExpectingEventVersion(result + 1)
-            refreshingAggregateRootDict.remove(processingEventMailBox.aggregateRootId)
+        tryAsyncActionRecursively("GetAggregateRootLatestPublishedEventVersions", {
+            publishedVersionStore.batchGetPublishedVersionAsync(name, mailboxList.map { x -> x.aggregateRootId })
+        }, { result: Map<String, Int> ->
+            mailboxList.forEach { mailbox ->
+                val publishedVersion = result[mailbox.aggregateRootId] ?: 0
+                publishedVersionDict.merge(mailbox.aggregateRootId, publishedVersion) { a, b -> maxOf(a, b) }
+                mailbox.setNextExpectingEventVersion(publishedVersion + 1)
+                refreshingAggregateRootDict.remove(mailbox.aggregateRootId)
+            }
+            isQueryingPublishedVersion.set(false)
+            tryQueryAggregateRootLatestPublishedEventVersions()
         }, {
             String.format(
-                "publishedVersionStore.GetPublishedVersionAsync has unknown exception, aggregateRootTypeName: %s, aggregateRootId: %s",
-                processingEventMailBox.aggregateRootTypeName,
-                processingEventMailBox.aggregateRootId
+                "publishedVersionStore.BatchGetPublishedVersionAsync has unknown exception, aggregateRootCount: %s",
+                mailboxList.size
             )
         }, null, retryTimes, true
         )
@@ -138,7 +192,11 @@ class DefaultProcessingEventProcessor(
         scheduleService.stopTask(processTryToRefreshAggregateTaskName)
     }
 
-    private fun dispatchProcessingMessageAsync(processingEvent: ProcessingEvent, retryTimes: Int) {
+    /**
+     * 按版本顺序逐个分发一批连续版本的事件流，全部分发成功后只更新一次已发布版本
+     */
+    private fun dispatchProcessingMessageAsync(processingEvents: List<ProcessingEvent>, index: Int, retryTimes: Int) {
+        val processingEvent = processingEvents[index]
         tryAsyncActionRecursivelyWithoutResult(
             "DispatchProcessingMessageAsync",
             { messageDispatcher.dispatchMessagesAsync(processingEvent.message.events) },
@@ -148,7 +206,11 @@ class DefaultProcessingEventProcessor(
                         "dispatch messages success, msg: {}", serializeService.serialize(processingEvent.message)
                     )
                 }
-                updatePublishedVersionAsync(processingEvent, 0)
+                if (index + 1 < processingEvents.size) {
+                    dispatchProcessingMessageAsync(processingEvents, index + 1, 0)
+                } else {
+                    updatePublishedVersionAsync(processingEvents, 0)
+                }
             },
             {
                 String.format(
@@ -165,26 +227,41 @@ class DefaultProcessingEventProcessor(
         )
     }
 
-    private fun updatePublishedVersionAsync(processingEvent: ProcessingEvent, retryTimes: Int) {
-        val message = processingEvent.message
+    private fun updatePublishedVersionAsync(processingEvents: List<ProcessingEvent>, retryTimes: Int) {
+        val message = processingEvents.last().message
         tryAsyncActionRecursivelyWithoutResult("UpdatePublishedVersionAsync", {
-            publishedVersionStore.updatePublishedVersionAsync(
-                name, message.getAggregateRootTypeName(), message.getAggregateRootId(), message.getVersion()
-            )
+            if (processingEvents.size == 1) {
+                publishedVersionStore.updatePublishedVersionAsync(
+                    name, message.getAggregateRootTypeName(), message.getAggregateRootId(), message.getVersion()
+                )
+            } else {
+                //版本号一次前进多个，只能使用只前进不后退的批量更新
+                publishedVersionStore.batchUpdatePublishedVersionAsync(
+                    name, listOf(
+                        AggregatePublishedVersion(
+                            message.getAggregateRootTypeName(), message.getAggregateRootId(), message.getVersion()
+                        )
+                    )
+                )
+            }
         }, {
             if (logger.isDebugEnabled) {
                 logger.debug(
                     "update published version success, message ack: {}", serializeService.serialize(message)
                 )
             }
-            processingEvent.complete()
+            publishedVersionDict.merge(message.getAggregateRootId(), message.getVersion()) { a, b -> maxOf(a, b) }
+            //每个事件流都要通知处理完成，但MailBox的本次运行只能结束一次
+            processingEvents.dropLast(1).forEach { x -> x.processContext.notifyEventProcessed() }
+            processingEvents.last().complete()
         }, {
             String.format(
-                "DomainEventStreamMessage [messageId:%s, messageType:%s, aggregateRootId:%s, aggregateRootVersion:%s]",
+                "DomainEventStreamMessage [messageId:%s, messageType:%s, aggregateRootId:%s, aggregateRootVersion:%s, count:%s]",
                 message.id,
                 message.javaClass.name,
                 message.getAggregateRootId(),
-                message.getVersion()
+                message.getVersion(),
+                processingEvents.size
             )
         }, null, retryTimes, true
         )
@@ -223,6 +300,7 @@ class DefaultProcessingEventProcessor(
                     val removed = mailboxDict.remove(key)
                     if (removed != null) {
                         removed.markAsRemoved()
+                        publishedVersionDict.remove(key)
                         logger.info(
                             "Removed inactive domain event stream mailbox, aggregateRootTypeName: {}, aggregateRootId: {}",
                             removed.aggregateRootTypeName,
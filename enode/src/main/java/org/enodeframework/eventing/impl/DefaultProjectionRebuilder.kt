@@ -0,0 +1,202 @@
+package org.enodeframework.eventing.impl
+
+import org.enodeframework.common.extensions.SystemClock
+import org.enodeframework.common.function.Action1
+import org.enodeframework.common.io.IOHelper.tryAsyncActionRecursively
+import org.enodeframework.common.io.Task
+import org.enodeframework.configurations.ProjectionRebuildOptions
+import org.enodeframework.eventing.*
+import org.enodeframework.messaging.MessageDispatcher
+import org.enodeframework.messaging.impl.DefaultMessageDispatcher
+import org.slf4j.LoggerFactory
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * 投影重建：按存储顺序从EventStore读取事件流，直接分发给被重建的处理器，不经过MQ和ProcessingEventMailBox
+ * 事件只分发给ProjectionRebuildOptions.handlerTypes中的处理器，传入自定义的MessageDispatcher时需自行保证只分发给这些处理器
+ * 每页事件流按聚合根哈希分到多个通道并行处理，同一个聚合根的事件流在同一通道内按顺序处理
+ * 已发布版本不再逐条更新，而是每个checkpoint按聚合根取最大版本批量写入一次
+ *
+ * @author anruence@gmail.com
+ */
+class DefaultProjectionRebuilder(
+    private val eventStreamReader: EventStreamReader,
+    messageDispatcher: MessageDispatcher,
+    private val publishedVersionStore: PublishedVersionStore,
+    private val options: ProjectionRebuildOptions
+) : ProjectionRebuilder {
+    private val messageDispatcher: MessageDispatcher
+    private val running = AtomicBoolean(false)
+    private val eventStreamCount = AtomicLong(0)
+    private val eventCount = AtomicLong(0)
+    private val pendingVersionDict = HashMap<String, AggregatePublishedVersion>()
+
+    @Volatile
+    private var checkpoint = ""
+
+    @Volatile
+    private var startTime = 0L
+
+    @Volatile
+    private var stopRequested = false
+
+    init {
+        require(options.handlerTypes.isNotEmpty()) {
+            String.format(
+                "Projection rebuild handlerTypes cannot be empty, otherwise every handler receives the events again, processorName: %s",
+                options.processorName
+            )
+        }
+        this.messageDispatcher = if (messageDispatcher is DefaultMessageDispatcher) {
+            messageDispatcher.scopedTo(options.handlerTypes)
+        } else {
+            messageDispatcher
+        }
+    }
+
+    override fun rebuildAsync(
+        checkpoint: String,
+        checkpointAction: Action1<ProjectionRebuildProgress>
+    ): CompletableFuture<ProjectionRebuildProgress> {
+        check(running.compareAndSet(false, true)) {
+            String.format("Projection rebuild is already running, processorName: %s", options.processorName)
+        }
+        val future = CompletableFuture<ProjectionRebuildProgress>()
+        this.checkpoint = checkpoint
+        this.stopRequested = false
+        this.startTime = SystemClock.now()
+        eventStreamCount.set(0)
+        eventCount.set(0)
+        pendingVersionDict.clear()
+        val thread = Thread({
+            try {
+                rebuild(checkpointAction)
+                future.complete(getProgress())
+            } catch (ex: Throwable) {
+                logger.error("Projection rebuild has exception, progress: {}", getProgress(), ex)
+                future.completeExceptionally(ex)
+            } finally {
+                running.set(false)
+            }
+        }, "ProjectionRebuild-" + options.processorName)
+        thread.isDaemon = true
+        thread.start()
+        return future
+    }
+
+    override fun getProgress(): ProjectionRebuildProgress {
+        return ProjectionRebuildProgress(
+            options.processorName,
+            checkpoint,
+            eventStreamCount.get(),
+            eventCount.get(),
+            if (startTime == 0L) 0 else SystemClock.now() - startTime
+        )
+    }
+
+    override fun stop() {
+        stopRequested = true
+    }
+
+    private fun rebuild(checkpointAction: Action1<ProjectionRebuildProgress>) {
+        logger.info("Projection rebuild started, processorName: {}, checkpoint: {}", options.processorName, checkpoint)
+        val feed = EventStreamFeed(eventStreamReader, checkpoint, options.pageSize, options.prefetchPageCount)
+        var pendingCheckpoint = checkpoint
+        var eventStreamCountSinceCheckpoint = 0
+        var lastLogTime = SystemClock.now()
+        while (!stopRequested) {
+            val page = Task.await(feed.nextAsync())
+            if (page.isEmpty) {
+                break
+            }
+            Task.await(dispatchPageAsync(page))
+            for (eventStream in page.eventStreams) {
+                pendingVersionDict.merge(
+                    eventStream.aggregateRootId,
+                    AggregatePublishedVersion(eventStream.aggregateRootTypeName, eventStream.aggregateRootId, eventStream.version)
+                ) { a, b -> if (a.version >= b.version) a else b }
+                eventCount.addAndGet(eventStream.events.size.toLong())
+            }
+            eventStreamCount.addAndGet(page.eventStreams.size.toLong())
+            eventStreamCountSinceCheckpoint += page.eventStreams.size
+            pendingCheckpoint = page.checkpoint
+            if (eventStreamCountSinceCheckpoint >= options.checkpointEventStreamCount) {
+                saveCheckpoint(pendingCheckpoint, checkpointAction)
+                eventStreamCountSinceCheckpoint = 0
+            }
+            if (SystemClock.now() - lastLogTime >= options.progressLogIntervalMilliseconds) {
+                logger.info("Projection rebuild progress: {}", getProgress())
+                lastLogTime = SystemClock.now()
+            }
+        }
+        saveCheckpoint(pendingCheckpoint, checkpointAction)
+        logger.info("Projection rebuild finished, stopped: {}, progress: {}", stopRequested, getProgress())
+    }
+
+    private fun dispatchPageAsync(page: EventStreamPage): CompletableFuture<Void> {
+        val parallelism = options.parallelism.coerceAtLeast(1)
+        val lanes = List(parallelism) { ArrayList<DomainEventStream>() }
+        page.eventStreams.forEach { x -> lanes[Math.floorMod(x.aggregateRootId.hashCode(), parallelism)].add(x) }
+        val futures = lanes.filter { x -> x.isNotEmpty() }.map { x -> dispatchLaneAsync(x) }
+        return CompletableFuture.allOf(*futures.toTypedArray())
+    }
+
+    private fun dispatchLaneAsync(eventStreams: List<DomainEventStream>): CompletableFuture<Boolean> {
+        var future = Task.completedTask
+        for (eventStream in eventStreams) {
+            future = future.thenCompose { dispatchEventStreamAsync(eventStream) }
+        }
+        return future
+    }
+
+    private fun dispatchEventStreamAsync(eventStream: DomainEventStream): CompletableFuture<Boolean> {
+        val future = CompletableFuture<Boolean>()
+        tryAsyncActionRecursively(
+            "DispatchEventStreamAsync",
+            { messageDispatcher.dispatchMessagesAsync(eventStream.events) },
+            { future.complete(true) },
+            {
+                String.format(
+                    "[aggregateRootId: %s, aggregateRootTypeName: %s, version: %s]",
+                    eventStream.aggregateRootId,
+                    eventStream.aggregateRootTypeName,
+                    eventStream.version
+                )
+            },
+            null,
+            0,
+            true
+        )
+        return future
+    }
+
+    private fun saveCheckpoint(pendingCheckpoint: String, checkpointAction: Action1<ProjectionRebuildProgress>) {
+        if (pendingVersionDict.isNotEmpty()) {
+            val publishedVersions = ArrayList(pendingVersionDict.values)
+            val future = CompletableFuture<Int>()
+            tryAsyncActionRecursively(
+                "BatchUpdatePublishedVersionAsync",
+                { publishedVersionStore.batchUpdatePublishedVersionAsync(options.processorName, publishedVersions) },
+                { result: Int -> future.complete(result) },
+                {
+                    String.format(
+                        "[processorName: %s, aggregateCount: %s]", options.processorName, publishedVersions.size
+                    )
+                },
+                null,
+                0,
+                true
+            )
+            Task.await(future)
+            pendingVersionDict.clear()
+        }
+        checkpoint = pendingCheckpoint
+        checkpointAction.apply(getProgress())
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(DefaultProjectionRebuilder::class.java)
+    }
+}
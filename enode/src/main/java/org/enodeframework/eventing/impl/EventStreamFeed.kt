@@ -0,0 +1,82 @@
+package org.enodeframework.eventing.impl
+
+import org.enodeframework.common.io.IOHelper
+import org.enodeframework.eventing.EventStreamPage
+import org.enodeframework.eventing.EventStreamReader
+import java.util.ArrayDeque
+import java.util.concurrent.CompletableFuture
+
+/**
+ * 从指定checkpoint开始按存储顺序追赶读取全部事件流，消费当前页时后台预取后续的页
+ * 读到不满一页说明已经追上，之后只在消费方请求下一页时才再次读取；消费方保存每页的checkpoint即可断点续读
+ * 注意：自增id和_id在插入时分配，并发事务可能晚于更大的id提交，跟随实时写入时应让checkpoint适当滞后
+ *
+ * @author anruence@gmail.com
+ */
+class EventStreamFeed(
+    private val eventStreamReader: EventStreamReader,
+    checkpoint: String,
+    private val pageSize: Int,
+    private val prefetchCount: Int
+) {
+    private val lockObj = Any()
+    private val pages = ArrayDeque<EventStreamPage>()
+    private var readCheckpoint = checkpoint
+    private var reading = false
+    private var caughtUp = false
+    private var waiter: CompletableFuture<EventStreamPage>? = null
+
+    constructor(eventStreamReader: EventStreamReader, checkpoint: String) : this(eventStreamReader, checkpoint, 1000, 2)
+
+    /**
+     * 读取下一页，返回空页表示已经追上存储的末尾；同一时间只允许有一个未完成的请求
+     */
+    fun nextAsync(): CompletableFuture<EventStreamPage> {
+        val future = CompletableFuture<EventStreamPage>()
+        synchronized(lockObj) {
+            check(waiter == null) { "EventStreamFeed has a pending read request." }
+            val page = pages.poll()
+            if (page != null) {
+                future.complete(page)
+            } else {
+                caughtUp = false
+                waiter = future
+            }
+            prefetch()
+        }
+        return future
+    }
+
+    private fun prefetch() {
+        if (reading || caughtUp || pages.size >= prefetchCount) {
+            return
+        }
+        reading = true
+        val checkpoint = readCheckpoint
+        IOHelper.tryAsyncActionRecursively(
+            "ReadAllEventStreamsAsync",
+            { eventStreamReader.readAllAsync(checkpoint, pageSize) },
+            { page: EventStreamPage -> onPageRead(page) },
+            { String.format("[checkpoint: %s, pageSize: %s]", checkpoint, pageSize) },
+            null,
+            0,
+            true
+        )
+    }
+
+    private fun onPageRead(page: EventStreamPage) {
+        val future: CompletableFuture<EventStreamPage>?
+        synchronized(lockObj) {
+            reading = false
+            readCheckpoint = page.checkpoint
+            caughtUp = page.eventStreams.size < pageSize
+            future = waiter
+            waiter = null
+            if (future == null && !page.isEmpty) {
+                pages.add(page)
+            }
+            prefetch()
+        }
+        future?.complete(page)
+    }
+}
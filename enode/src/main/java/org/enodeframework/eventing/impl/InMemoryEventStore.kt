@@ -1,29 +1,81 @@
 package org.enodeframework.eventing.impl
 
+import org.enodeframework.common.exception.EventStoreException
 import org.enodeframework.eventing.DomainEventStream
 import org.enodeframework.eventing.EventAppendResult
 import org.enodeframework.eventing.EventStore
+import org.enodeframework.eventing.EventStreamPage
+import org.enodeframework.eventing.EventStreamReader
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicLong
 
 /**
+ * 内存版的EventStore，每个聚合根独立加锁，聚合根的事件流按版本号顺序保存在只追加的数组中，版本区间查询的复杂度为O(k)
+ *
  * @author anruence@gmail.com
  */
-class InMemoryEventStore : EventStore {
-    private val lockObj = Any()
-    private val aggregateInfoDict: ConcurrentMap<String, AggregateInfo>
+class InMemoryEventStore(
+    /**
+     * 最多允许保存的事件流数量，小于等于0表示不限制
+     */
+    private val maxEventStreamCount: Long
+) : EventStore, EventStreamReader {
+    private val aggregateInfoDict: ConcurrentMap<String, AggregateInfo> = ConcurrentHashMap()
+
+    /**
+     * 按追加顺序保存所有事件流，key为全局递增的序号，作为按存储顺序读取的checkpoint
+     */
+    private val allEventStreams = ConcurrentSkipListMap<Long, DomainEventStream>()
+
+    /**
+     * 分配序号和插入在同一把全局锁内完成，读取方看到序号N时，小于N的事件流一定已经插入，不会因为跳过而漏读
+     */
+    private val allEventStreamsLockObj = Any()
+    private var sequence = 0L
+    private val eventStreamCount = AtomicLong(0)
+    private val eventCount = AtomicLong(0)
+
+    constructor() : this(0)
+
+    /**
+     * 当前保存的聚合根数量
+     */
+    fun getAggregateCount(): Int {
+        return aggregateInfoDict.size
+    }
+
+    /**
+     * 当前保存的事件流数量
+     */
+    fun getEventStreamCount(): Long {
+        return eventStreamCount.get()
+    }
+
+    /**
+     * 当前保存的领域事件数量
+     */
+    fun getEventCount(): Long {
+        return eventCount.get()
+    }
+
     private fun queryAggregateEvents(
         aggregateRootId: String,
         aggregateRootTypeName: String,
         minVersion: Int,
         maxVersion: Int
     ): List<DomainEventStream> {
-        val eventStreams: List<DomainEventStream> = ArrayList()
-        val aggregateInfo = aggregateInfoDict[aggregateRootId] ?: return eventStreams
-        val min = minVersion.coerceAtLeast(1)
-        val max = maxVersion.coerceAtMost(aggregateInfo.currentVersion)
-        return aggregateInfo.eventDict.filter { x -> x.key in min..max }.map { x -> x.value }
+        val aggregateInfo = aggregateInfoDict[aggregateRootId] ?: return ArrayList()
+        synchronized(aggregateInfo) {
+            val min = minVersion.coerceAtLeast(1)
+            val max = maxVersion.coerceAtMost(aggregateInfo.currentVersion)
+            if (min > max) {
+                return ArrayList()
+            }
+            return ArrayList(aggregateInfo.eventStreams.subList(min - 1, max))
+        }
     }
 
     override fun batchAppendAsync(eventStreams: List<DomainEventStream>): CompletableFuture<EventAppendResult> {
@@ -31,9 +83,30 @@ class InMemoryEventStore : EventStore {
             .groupBy { obj: DomainEventStream -> obj.aggregateRootId }
         val eventAppendResult = EventAppendResult()
         val future = CompletableFuture<EventAppendResult>()
+        //先为整批事件流预占容量，超过上限时整批失败，不会出现部分聚合根已追加的情况
+        val reserved = eventStreamDict.values.sumOf { x -> x.size.toLong() }
+        val count = eventStreamCount.addAndGet(reserved)
+        if (maxEventStreamCount in 1 until count) {
+            eventStreamCount.addAndGet(-reserved)
+            future.completeExceptionally(
+                EventStoreException(
+                    String.format(
+                        "InMemoryEventStore is full, maxEventStreamCount: %d, aggregateRootIds: %s",
+                        maxEventStreamCount,
+                        eventStreamDict.keys
+                    )
+                )
+            )
+            return future
+        }
+        var appended = 0L
         for ((key, value) in eventStreamDict) {
-            batchAppend(key, value, eventAppendResult)
+            if (batchAppend(key, value, eventAppendResult)) {
+                appended += value.size
+            }
         }
+        //归还未成功追加的事件流所预占的容量
+        eventStreamCount.addAndGet(appended - reserved)
         future.complete(eventAppendResult)
         return future
     }
@@ -46,6 +119,13 @@ class InMemoryEventStore : EventStore {
         return CompletableFuture.completedFuture(find(aggregateRootId, commandId))
     }
 
+    override fun findByCommandIdsAsync(
+        aggregateRootId: String,
+        commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        return CompletableFuture.completedFuture(findByCommandIds(aggregateRootId, commandIds))
+    }
+
     override fun queryAggregateEventsAsync(
         aggregateRootId: String,
         aggregateRootTypeName: String,
@@ -62,34 +142,57 @@ class InMemoryEventStore : EventStore {
         )
     }
 
+    override fun readAllAsync(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        val entries = allEventStreams.tailMap(checkpoint.toLongOrNull() ?: 0L, false).entries.take(maxCount)
+        val nextCheckpoint = entries.lastOrNull()?.key?.toString() ?: checkpoint
+        return CompletableFuture.completedFuture(EventStreamPage(entries.map { x -> x.value }, nextCheckpoint))
+    }
+
     private fun find(aggregateRootId: String, version: Int): DomainEventStream? {
-        return aggregateInfoDict[aggregateRootId]?.eventDict?.get(version)
+        val aggregateInfo = aggregateInfoDict[aggregateRootId] ?: return null
+        synchronized(aggregateInfo) {
+            if (version < 1 || version > aggregateInfo.currentVersion) {
+                return null
+            }
+            return aggregateInfo.eventStreams[version - 1]
+        }
     }
 
     private fun find(aggregateRootId: String, commandId: String): DomainEventStream? {
-        return aggregateInfoDict[aggregateRootId]?.commandDict?.get(commandId)
+        val aggregateInfo = aggregateInfoDict[aggregateRootId] ?: return null
+        synchronized(aggregateInfo) {
+            return aggregateInfo.commandDict[commandId]
+        }
+    }
+
+    private fun findByCommandIds(aggregateRootId: String, commandIds: List<String>): List<DomainEventStream> {
+        val aggregateInfo = aggregateInfoDict[aggregateRootId] ?: return emptyList()
+        synchronized(aggregateInfo) {
+            return commandIds.distinct().mapNotNull { commandId -> aggregateInfo.commandDict[commandId] }
+                .sortedBy { x -> x.version }
+        }
     }
 
     private fun batchAppend(
         aggregateRootId: String,
         eventStreamList: List<DomainEventStream>,
         eventAppendResult: EventAppendResult
-    ) {
-        synchronized(lockObj) {
-            val aggregateInfo = aggregateInfoDict.computeIfAbsent(aggregateRootId) { AggregateInfo() }
+    ): Boolean {
+        val aggregateInfo = aggregateInfoDict.computeIfAbsent(aggregateRootId) { AggregateInfo() }
+        synchronized(aggregateInfo) {
             val firstEventStream = eventStreamList.firstOrNull()
             //检查提交过来的第一个事件的版本号是否是当前聚合根的当前版本号的下一个版本号
             if (firstEventStream != null) {
                 if (firstEventStream.version != aggregateInfo.currentVersion + 1) {
                     eventAppendResult.addDuplicateEventAggregateRootId(aggregateRootId)
-                    return
+                    return false
                 }
             }
             //检查提交过来的事件本身是否满足版本号的递增关系
             for (i in 0 until eventStreamList.size - 1) {
                 if (eventStreamList[i + 1].version != eventStreamList[i].version + 1) {
                     eventAppendResult.addDuplicateEventAggregateRootId(aggregateRootId)
-                    return
+                    return false
                 }
             }
 
@@ -102,26 +205,29 @@ class InMemoryEventStore : EventStore {
             }
             if (duplicateCommandIds.size > 0) {
                 eventAppendResult.addDuplicateCommandIds(aggregateRootId, duplicateCommandIds)
-                return
+                return false
             }
             for (eventStream in eventStreamList) {
-                aggregateInfo.eventDict[eventStream.version] = eventStream
+                aggregateInfo.eventStreams.add(eventStream)
                 aggregateInfo.commandDict[eventStream.commandId] = eventStream
                 aggregateInfo.currentVersion = eventStream.version
+                synchronized(allEventStreamsLockObj) {
+                    allEventStreams[++sequence] = eventStream
+                }
+                eventCount.addAndGet(eventStream.events.size.toLong())
             }
-            if (!eventAppendResult.successAggregateRootIdList.contains(aggregateRootId)) {
-                eventAppendResult.addSuccessAggregateRootId(aggregateRootId)
-            }
+            eventAppendResult.addSuccessAggregateRootId(aggregateRootId)
+            return true
         }
     }
 
     class AggregateInfo {
         var currentVersion = 0
-        var eventDict: ConcurrentMap<Int, DomainEventStream> = ConcurrentHashMap()
-        var commandDict: ConcurrentMap<String, DomainEventStream> = ConcurrentHashMap()
-    }
 
-    init {
-        aggregateInfoDict = ConcurrentHashMap()
+        /**
+         * 下标为version - 1，版本号从1开始连续递增，所以可以直接按下标做区间查询
+         */
+        val eventStreams: MutableList<DomainEventStream> = ArrayList()
+        val commandDict: MutableMap<String, DomainEventStream> = HashMap()
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.enodeframework.eventing.impl
 
+import org.enodeframework.eventing.AggregatePublishedVersion
 import org.enodeframework.eventing.PublishedVersionStore
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ConcurrentHashMap
@@ -20,6 +21,16 @@ class InMemoryPublishedVersionStore : PublishedVersionStore {
         return CompletableFuture.completedFuture(1)
     }
 
+    override fun batchUpdatePublishedVersionAsync(
+        processorName: String,
+        publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        publishedVersions.forEach { x ->
+            versionDict.merge(buildKey(processorName, x.aggregateRootId), x.version) { a, b -> maxOf(a, b) }
+        }
+        return CompletableFuture.completedFuture(publishedVersions.size)
+    }
+
     override fun getPublishedVersionAsync(
         processorName: String,
         aggregateRootTypeName: String,
@@ -29,6 +40,16 @@ class InMemoryPublishedVersionStore : PublishedVersionStore {
         return CompletableFuture.completedFuture(publishedVersion)
     }
 
+    override fun batchGetPublishedVersionAsync(
+        processorName: String,
+        aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val publishedVersions = aggregateRootIds.distinct().associateWith { aggregateRootId ->
+            versionDict.getOrDefault(buildKey(processorName, aggregateRootId), 0)
+        }
+        return CompletableFuture.completedFuture(publishedVersions)
+    }
+
     private fun buildKey(eventProcessorName: String, aggregateRootId: String): String {
         return String.format("%s-%s", eventProcessorName, aggregateRootId)
     }
@@ -0,0 +1,330 @@
+package org.enodeframework.eventing.impl
+
+import com.google.common.base.Strings
+import kotlinx.coroutines.CoroutineDispatcher
+import org.enodeframework.common.extensions.SystemClock
+import org.enodeframework.common.io.IOHelper.tryAsyncActionRecursivelyWithoutResult
+import org.enodeframework.common.io.Task.sleep
+import org.enodeframework.common.scheduling.ScheduleService
+import org.enodeframework.common.serializing.SerializeService
+import org.enodeframework.eventing.*
+import org.enodeframework.messaging.MessageDispatcher
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 按MQ分区位点记录进度的事件处理器，适用于处理方法幂等的场景
+ * 每个聚合根的事件仍然在内存中的MailBox里按版本顺序处理，但不读写PublishedVersionStore：
+ * MailBox的起始版本取第一个收到的事件的版本，处理完成的确认按分区位点顺序执行，由MQ的消费位点作为checkpoint，
+ * 重启或者重新分配分区后从已提交的位点重新消费，重复的事件由处理方法的幂等保证
+ * 比MailBox起始版本低的事件以及被跳过后才到达的事件都没有被当前MailBox处理过，不能当作重复直接确认，
+ * 这些事件不经过MailBox直接分发，处理完成后再确认
+ *
+ * @author anruence@gmail.com
+ */
+class OffsetCheckpointProcessingEventProcessor(
+    private val scheduleService: ScheduleService,
+    private val serializeService: SerializeService,
+    private val messageDispatcher: MessageDispatcher,
+    private val coroutineDispatcher: CoroutineDispatcher,
+    /**
+     * MailBox单次运行最多处理的连续版本的事件流数量
+     */
+    private val batchSize: Int,
+    /**
+     * 版本缺口等待超过该时间后跳过缺失的版本，小于等于0表示一直等待；
+     * 按聚合根分区时同一聚合根的事件在分区内有序，缺口最终会被补上，只有事件可能分散在不在当前消费的分区时才需要开启
+     */
+    private val skipMissingVersionTimeoutMilliseconds: Long
+) : ProcessingEventProcessor {
+    private val scanInactiveMailBoxTaskName: String =
+        "CleanInactiveOffsetCheckpointMailBoxes_" + SystemClock.now() + Random().nextInt(10000)
+    private val processWaitingMailBoxTaskName: String =
+        "ProcessWaitingOffsetCheckpointMailBox_" + SystemClock.now() + Random().nextInt(10000)
+
+    /**
+     * The name of the processor
+     */
+    override val name = "OffsetCheckpointEventProcessor"
+    private val mailboxDict: ConcurrentHashMap<String, ProcessingEventMailBox> = ConcurrentHashMap()
+
+    /**
+     * 每个MailBox处理过的版本范围：起始版本以及被跳过的版本，MailBox移除时一起移除
+     */
+    private val versionHistoryDict: ConcurrentHashMap<String, VersionHistory> = ConcurrentHashMap()
+
+    /**
+     * 有版本缺口的MailBox以及开始等待的时间
+     */
+    private val waitingMailBoxDict: ConcurrentHashMap<String, Long> = ConcurrentHashMap()
+    private val checkpointTracker = PartitionCheckpointTracker()
+    private var timeoutSeconds = 3600 * 24 * 3
+    private var scanExpiredAggregateIntervalMilliseconds = 5000
+    private var processWaitingMailBoxIntervalMilliseconds = 1000
+
+    constructor(
+        scheduleService: ScheduleService,
+        serializeService: SerializeService,
+        messageDispatcher: MessageDispatcher,
+        coroutineDispatcher: CoroutineDispatcher,
+        batchSize: Int
+    ) : this(scheduleService, serializeService, messageDispatcher, coroutineDispatcher, batchSize, 0)
+
+    override fun process(processingEvent: ProcessingEvent) {
+        val aggregateRootId = processingEvent.message.getAggregateRootId()
+        require(!Strings.isNullOrEmpty(aggregateRootId)) { "aggregateRootId of domain event stream cannot be null or empty, domainEventStreamId:" + processingEvent.message.id }
+        val checkpointEvent = trackCheckpoint(processingEvent)
+        var mailbox = getOrBuildMailBox(aggregateRootId, checkpointEvent)
+        var mailboxTryUsingCount = 0L
+        while (!mailbox.tryUsing()) {
+            sleep(1)
+            mailboxTryUsingCount++
+            if (mailboxTryUsingCount % 10000 == 0L) {
+                logger.warn(
+                    "Event mailbox try using count: {}, aggregateRootId: {}, aggregateRootTypeName: {}",
+                    mailboxTryUsingCount,
+                    mailbox.aggregateRootId,
+                    mailbox.aggregateRootTypeName
+                )
+            }
+        }
+        if (mailbox.isRemoved()) {
+            mailbox = getOrBuildMailBox(aggregateRootId, checkpointEvent)
+        }
+        val enqueueResult = mailbox.enqueueMessage(checkpointEvent)
+        if (enqueueResult == EnqueueMessageResult.Ignored) {
+            if (isHandledByMailBox(aggregateRootId, checkpointEvent.message.version)) {
+                checkpointEvent.processContext.notifyEventProcessed()
+            } else {
+                dispatchOutOfOrderMessageAsync(checkpointEvent, 0)
+            }
+        } else if (enqueueResult == EnqueueMessageResult.AddToWaitingList) {
+            waitingMailBoxDict.putIfAbsent(aggregateRootId, SystemClock.now())
+        }
+        mailbox.exitUsing()
+    }
+
+    /**
+     * 每个分区最大的连续完成位点
+     */
+    fun getCheckpoints(): Map<String, Long> {
+        return checkpointTracker.getCheckpoints()
+    }
+
+    private fun trackCheckpoint(processingEvent: ProcessingEvent): ProcessingEvent {
+        val processContext = processingEvent.processContext
+        val partition = processContext.partition
+        if (partition == null || processContext.offset < 0) {
+            return processingEvent
+        }
+        checkpointTracker.track(partition, processContext.offset)
+        return ProcessingEvent(processingEvent.message, CheckpointEventProcessContext(processContext, checkpointTracker))
+    }
+
+    /**
+     * 新建的MailBox直接从第一个收到的事件的版本开始处理，不查询已发布版本
+     */
+    private fun getOrBuildMailBox(aggregateRootId: String, processingEvent: ProcessingEvent): ProcessingEventMailBox {
+        var created = false
+        val mailbox = mailboxDict.computeIfAbsent(aggregateRootId) {
+            created = true
+            versionHistoryDict[aggregateRootId] = VersionHistory(processingEvent.message.version)
+            ProcessingEventMailBox(
+                processingEvent.message.aggregateRootTypeName,
+                processingEvent.message.aggregateRootId,
+                coroutineDispatcher,
+                batchSize
+            ) { y: List<ProcessingEvent> -> dispatchProcessingMessageAsync(y, 0, 0) }
+        }
+        if (created) {
+            mailbox.setNextExpectingEventVersion(processingEvent.message.version)
+        }
+        return mailbox
+    }
+
+    /**
+     * 小于下一个期望版本的事件只有在不低于起始版本且没有被跳过时才是当前MailBox处理过的重复事件
+     */
+    private fun isHandledByMailBox(aggregateRootId: String, version: Int): Boolean {
+        val versionHistory = versionHistoryDict[aggregateRootId] ?: return false
+        return version >= versionHistory.firstVersion && !versionHistory.skippedVersions.remove(version)
+    }
+
+    override fun start() {
+        scheduleService.startTask(
+            scanInactiveMailBoxTaskName,
+            { cleanInactiveMailbox() },
+            scanExpiredAggregateIntervalMilliseconds,
+            scanExpiredAggregateIntervalMilliseconds
+        )
+        if (skipMissingVersionTimeoutMilliseconds > 0) {
+            scheduleService.startTask(
+                processWaitingMailBoxTaskName,
+                { processWaitingMailBoxs() },
+                processWaitingMailBoxIntervalMilliseconds,
+                processWaitingMailBoxIntervalMilliseconds
+            )
+        }
+    }
+
+    override fun stop() {
+        scheduleService.stopTask(scanInactiveMailBoxTaskName)
+        scheduleService.stopTask(processWaitingMailBoxTaskName)
+    }
+
+    private fun dispatchProcessingMessageAsync(processingEvents: List<ProcessingEvent>, index: Int, retryTimes: Int) {
+        val processingEvent = processingEvents[index]
+        tryAsyncActionRecursivelyWithoutResult(
+            "DispatchProcessingMessageAsync",
+            { messageDispatcher.dispatchMessagesAsync(processingEvent.message.events) },
+            {
+                if (logger.isDebugEnabled) {
+                    logger.debug(
+                        "dispatch messages success, msg: {}", serializeService.serialize(processingEvent.message)
+                    )
+                }
+                if (index + 1 < processingEvents.size) {
+                    dispatchProcessingMessageAsync(processingEvents, index + 1, 0)
+                } else {
+                    //每个事件流都要通知处理完成，但MailBox的本次运行只能结束一次
+                    processingEvents.dropLast(1).forEach { x -> x.processContext.notifyEventProcessed() }
+                    processingEvents.last().complete()
+                }
+            },
+            {
+                String.format(
+                    "sequence message [messageId:%s, messageType:%s, aggregateRootId:%s, aggregateRootVersion:%s]",
+                    processingEvent.message.id,
+                    processingEvent.message.javaClass.name,
+                    processingEvent.message.getAggregateRootId(),
+                    processingEvent.message.getVersion()
+                )
+            },
+            null,
+            retryTimes,
+            true
+        )
+    }
+
+    /**
+     * 没有被MailBox处理过的事件，处理方法是幂等的，不需要再保证与同一聚合根其他事件的顺序，直接分发后确认
+     */
+    private fun dispatchOutOfOrderMessageAsync(processingEvent: ProcessingEvent, retryTimes: Int) {
+        logger.warn(
+            "Dispatch event stream not handled by mailbox, aggregateRootTypeName: {}, aggregateRootId: {}, version: {}",
+            processingEvent.message.aggregateRootTypeName,
+            processingEvent.message.aggregateRootId,
+            processingEvent.message.version
+        )
+        tryAsyncActionRecursivelyWithoutResult(
+            "DispatchOutOfOrderMessageAsync",
+            { messageDispatcher.dispatchMessagesAsync(processingEvent.message.events) },
+            { processingEvent.processContext.notifyEventProcessed() },
+            {
+                String.format(
+                    "out of order message [messageId:%s, messageType:%s, aggregateRootId:%s, aggregateRootVersion:%s]",
+                    processingEvent.message.id,
+                    processingEvent.message.javaClass.name,
+                    processingEvent.message.getAggregateRootId(),
+                    processingEvent.message.getVersion()
+                )
+            },
+            null,
+            retryTimes,
+            true
+        )
+    }
+
+    private fun processWaitingMailBoxs() {
+        val now = SystemClock.now()
+        waitingMailBoxDict.entries.forEach { (aggregateRootId, waitingSince) ->
+            val mailbox = mailboxDict[aggregateRootId]
+            val minWaitingVersion = mailbox?.getMinWaitingEventVersion()
+            if (mailbox == null || minWaitingVersion == null) {
+                waitingMailBoxDict.remove(aggregateRootId, waitingSince)
+                return@forEach
+            }
+            if (now - waitingSince < skipMissingVersionTimeoutMilliseconds) {
+                return@forEach
+            }
+            val nextExpectingVersion = mailbox.getNextExpectingEventVersion() ?: return@forEach
+            //记录每个被跳过的版本，之后到达时直接分发，不能当作已处理的重复事件确认
+            val versionHistory = versionHistoryDict[aggregateRootId]
+            for (version in nextExpectingVersion until minWaitingVersion) {
+                versionHistory?.skippedVersions?.add(version)
+                logger.warn(
+                    "Skip missing event version, aggregateRootTypeName: {}, aggregateRootId: {}, version: {}",
+                    mailbox.aggregateRootTypeName,
+                    aggregateRootId,
+                    version
+                )
+            }
+            waitingMailBoxDict.remove(aggregateRootId, waitingSince)
+            mailbox.setNextExpectingEventVersion(minWaitingVersion)
+        }
+    }
+
+    private fun cleanInactiveMailbox() {
+        val inactiveList = mailboxDict.entries.filter { entry -> isMailBoxAllowRemove(entry.value) }
+        inactiveList.forEach { (key, value): Map.Entry<String, ProcessingEventMailBox> ->
+            if (value.tryUsing()) {
+                if (isMailBoxAllowRemove(value)) {
+                    val removed = mailboxDict.remove(key)
+                    if (removed != null) {
+                        removed.markAsRemoved()
+                        versionHistoryDict.remove(key)
+                        logger.info(
+                            "Removed inactive domain event stream mailbox, aggregateRootTypeName: {}, aggregateRootId: {}",
+                            removed.aggregateRootTypeName,
+                            removed.aggregateRootId
+                        )
+                    }
+                }
+            }
+        }
+    }
+
+    private fun isMailBoxAllowRemove(mailbox: ProcessingEventMailBox): Boolean {
+        return (mailbox.isInactive(timeoutSeconds) && !mailbox.isRunning() && mailbox.getTotalUnHandledMessageCount() == 0 && mailbox.getWaitingMessageCount() == 0)
+    }
+
+    class VersionHistory(val firstVersion: Int) {
+        val skippedVersions: MutableSet<Int> = ConcurrentHashMap.newKeySet()
+    }
+
+    /**
+     * 处理完成的通知交给分区进度跟踪，按位点顺序确认
+     */
+    class CheckpointEventProcessContext(
+        private val processContext: EventProcessContext,
+        private val checkpointTracker: PartitionCheckpointTracker
+    ) : EventProcessContext {
+        override fun notifyEventProcessed(): CompletableFuture<Boolean> {
+            val future = CompletableFuture<Boolean>()
+            checkpointTracker.complete(getPartition(), getOffset()) {
+                processContext.notifyEventProcessed().whenComplete { result, throwable ->
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable)
+                    } else {
+                        future.complete(result)
+                    }
+                }
+            }
+            return future
+        }
+
+        override fun getPartition(): String {
+            return processContext.partition
+        }
+
+        override fun getOffset(): Long {
+            return processContext.offset
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(OffsetCheckpointProcessingEventProcessor::class.java)
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package org.enodeframework.eventing.impl
+
+import org.enodeframework.common.function.Action
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 按MQ分区跟踪消息的处理进度，不同聚合根的消息完成顺序是乱序的，
+ * 这里把完成后的确认动作按位点顺序执行，分区的checkpoint就是最大的连续完成位点，确认后提交的消费位点不会越过未完成的消息
+ *
+ * @author anruence@gmail.com
+ */
+class PartitionCheckpointTracker {
+    private val partitionDict: ConcurrentHashMap<String, PartitionProgress> = ConcurrentHashMap()
+
+    /**
+     * 收到一条消息
+     */
+    fun track(partition: String, offset: Long) {
+        partitionDict.computeIfAbsent(partition) { PartitionProgress() }.track(offset)
+    }
+
+    /**
+     * 一条消息处理完成，之前的位点都完成后才执行checkpointAction
+     */
+    fun complete(partition: String, offset: Long, checkpointAction: Action) {
+        val progress = partitionDict[partition]
+        if (progress == null) {
+            checkpointAction.apply()
+            return
+        }
+        progress.complete(offset, checkpointAction)
+    }
+
+    /**
+     * 每个分区最大的连续完成位点
+     */
+    fun getCheckpoints(): Map<String, Long> {
+        return partitionDict.mapValues { x -> x.value.checkpoint }
+    }
+
+    /**
+     * 取出分区新的checkpoint用于提交，没有完成的位点或者与上一次取出的相同时返回-1
+     */
+    fun takeCheckpoint(partition: String): Long {
+        return partitionDict[partition]?.takeCheckpoint() ?: -1L
+    }
+
+    /**
+     * 取出的checkpoint提交失败，下一次重新取出
+     */
+    fun checkpointCommitFailed(partition: String, checkpoint: Long) {
+        partitionDict[partition]?.checkpointCommitFailed(checkpoint)
+    }
+
+    /**
+     * 分区不再由当前消费者处理，未完成的消息会被重新消费，这里不再跟踪
+     */
+    fun remove(partition: String) {
+        partitionDict.remove(partition)
+    }
+
+    /**
+     * 所有分区中还未确认的消息数量
+     */
+    fun getPendingCount(): Int {
+        return partitionDict.values.sumOf { x -> x.getPendingCount() }
+    }
+
+    class PartitionProgress {
+        /**
+         * 未确认的位点，value为null表示还未处理完成
+         */
+        private val pendingDict = TreeMap<Long, Action?>()
+
+        @Volatile
+        var checkpoint = -1L
+            private set
+
+        private var takenCheckpoint = -1L
+
+        fun track(offset: Long) {
+            synchronized(this) {
+                pendingDict.putIfAbsent(offset, null)
+            }
+        }
+
+        fun complete(offset: Long, checkpointAction: Action) {
+            //确认动作在锁内执行，保证同一分区的确认顺序与位点顺序一致
+            synchronized(this) {
+                if (!pendingDict.containsKey(offset)) {
+                    checkpointAction.apply()
+                    return
+                }
+                pendingDict[offset] = checkpointAction
+                while (pendingDict.isNotEmpty()) {
+                    val first = pendingDict.firstEntry()
+                    val action = first.value ?: break
+                    pendingDict.pollFirstEntry()
+                    checkpoint = maxOf(checkpoint, first.key)
+                    try {
+                        action.apply()
+                    } catch (ex: Exception) {
+                        logger.error("Checkpoint action has unknown exception, offset: {}", first.key, ex)
+                    }
+                }
+            }
+        }
+
+        fun takeCheckpoint(): Long {
+            synchronized(this) {
+                if (checkpoint <= takenCheckpoint) {
+                    return -1L
+                }
+                takenCheckpoint = checkpoint
+                return checkpoint
+            }
+        }
+
+        fun checkpointCommitFailed(checkpoint: Long) {
+            synchronized(this) {
+                if (takenCheckpoint == checkpoint) {
+                    takenCheckpoint = -1L
+                }
+            }
+        }
+
+        fun getPendingCount(): Int {
+            synchronized(this) {
+                return pendingDict.size
+            }
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(PartitionCheckpointTracker::class.java)
+    }
+}
\ No newline at end of file
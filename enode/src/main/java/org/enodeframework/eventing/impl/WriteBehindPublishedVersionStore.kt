@@ -0,0 +1,160 @@
+package org.enodeframework.eventing.impl
+
+import org.enodeframework.common.extensions.SystemClock
+import org.enodeframework.common.scheduling.ScheduleService
+import org.enodeframework.eventing.AggregatePublishedVersion
+import org.enodeframework.eventing.PublishedVersionStore
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.CompletableFuture
+
+/**
+ * 已发布版本的写后批量：多个聚合根的更新先放入缓冲，达到批量大小或定时触发时通过一次批量upsert写入，减少数据库往返
+ * 更新返回的future在对应版本真正写入后才完成，所以ProcessingEvent仍然是在版本落库之后才ack
+ * 合并只发生在不同聚合根之间：同一个聚合根的MailBox要等本次更新完成才会处理后续事件，缓冲中同一聚合根通常只有一个版本，
+ * 连续版本的合并由MailBox按批处理完成；代价是每次更新最多增加flushIntervalMilliseconds的延迟，适合聚合根多、单个聚合根事件少的场景
+ *
+ * @author anruence@gmail.com
+ */
+class WriteBehindPublishedVersionStore(
+    private val publishedVersionStore: PublishedVersionStore,
+    private val scheduleService: ScheduleService,
+    /**
+     * 待写入的聚合根数量达到该值时立即写入
+     */
+    private val batchSize: Int,
+    /**
+     * 定时写入的时间间隔
+     */
+    private val flushIntervalMilliseconds: Int
+) : PublishedVersionStore {
+    private val flushTaskName: String =
+        "FlushPublishedVersions_" + SystemClock.now() + Random().nextInt(10000)
+    private val lockObj = Any()
+    private var pendingDict = HashMap<String, HashMap<String, PendingVersion>>()
+    private var pendingCount = 0
+
+    fun start() {
+        scheduleService.startTask(flushTaskName, { flush() }, flushIntervalMilliseconds, flushIntervalMilliseconds)
+    }
+
+    fun stop() {
+        scheduleService.stopTask(flushTaskName)
+        flush()
+    }
+
+    override fun updatePublishedVersionAsync(
+        processorName: String,
+        aggregateRootTypeName: String,
+        aggregateRootId: String,
+        publishedVersion: Int
+    ): CompletableFuture<Int> {
+        val future = CompletableFuture<Int>()
+        var batch: HashMap<String, HashMap<String, PendingVersion>>? = null
+        synchronized(lockObj) {
+            val versionDict = pendingDict.computeIfAbsent(processorName) { HashMap() }
+            val pending = versionDict[aggregateRootId]
+            if (pending == null) {
+                versionDict[aggregateRootId] = PendingVersion(aggregateRootTypeName, aggregateRootId, publishedVersion, future)
+                pendingCount++
+            } else {
+                pending.add(publishedVersion, future)
+            }
+            if (pendingCount >= batchSize) {
+                batch = takePending()
+            }
+        }
+        batch?.let { x -> flush(x) }
+        return future
+    }
+
+    /**
+     * 批量更新同样进入缓冲，与其他MailBox的更新一起写入
+     */
+    override fun batchUpdatePublishedVersionAsync(
+        processorName: String,
+        publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        val futures = publishedVersions.map { x ->
+            updatePublishedVersionAsync(processorName, x.aggregateRootTypeName, x.aggregateRootId, x.version)
+        }
+        return CompletableFuture.allOf(*futures.toTypedArray()).thenApply { publishedVersions.size }
+    }
+
+    override fun getPublishedVersionAsync(
+        processorName: String,
+        aggregateRootTypeName: String,
+        aggregateRootId: String
+    ): CompletableFuture<Int> {
+        //还未写入的版本也要参与比较，避免刷新时拿到比内存中更旧的版本
+        val pendingVersion = synchronized(lockObj) { pendingDict[processorName]?.get(aggregateRootId)?.version ?: 0 }
+        return publishedVersionStore.getPublishedVersionAsync(processorName, aggregateRootTypeName, aggregateRootId)
+            .thenApply { x -> maxOf(x, pendingVersion) }
+    }
+
+    override fun batchGetPublishedVersionAsync(
+        processorName: String,
+        aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val pendingVersions = synchronized(lockObj) {
+            val versionDict = pendingDict[processorName]
+            aggregateRootIds.associateWith { x -> versionDict?.get(x)?.version ?: 0 }
+        }
+        return publishedVersionStore.batchGetPublishedVersionAsync(processorName, aggregateRootIds)
+            .thenApply { x -> x.mapValues { (key, value) -> maxOf(value, pendingVersions[key] ?: 0) } }
+    }
+
+    private fun flush() {
+        val batch = synchronized(lockObj) { takePending() }
+        flush(batch)
+    }
+
+    private fun takePending(): HashMap<String, HashMap<String, PendingVersion>> {
+        val batch = pendingDict
+        pendingDict = HashMap()
+        pendingCount = 0
+        return batch
+    }
+
+    private fun flush(batch: Map<String, Map<String, PendingVersion>>) {
+        batch.forEach { (processorName, versionDict) ->
+            if (versionDict.isEmpty()) {
+                return@forEach
+            }
+            val publishedVersions = versionDict.values.map { x ->
+                AggregatePublishedVersion(x.aggregateRootTypeName, x.aggregateRootId, x.version)
+            }
+            publishedVersionStore.batchUpdatePublishedVersionAsync(processorName, publishedVersions)
+                .whenComplete { _, ex ->
+                    if (ex != null) {
+                        logger.error(
+                            "Batch update published version has exception, processorName: {}, count: {}",
+                            processorName, publishedVersions.size, ex
+                        )
+                        //失败时通知每个等待者，由调用方按原有逻辑重试
+                        versionDict.values.forEach { x -> x.futures.forEach { y -> y.completeExceptionally(ex) } }
+                        return@whenComplete
+                    }
+                    versionDict.values.forEach { x -> x.futures.forEach { y -> y.complete(1) } }
+                }
+        }
+    }
+
+    class PendingVersion(
+        val aggregateRootTypeName: String,
+        val aggregateRootId: String,
+        var version: Int,
+        future: CompletableFuture<Int>
+    ) {
+        val futures: MutableList<CompletableFuture<Int>> = mutableListOf(future)
+
+        fun add(version: Int, future: CompletableFuture<Int>) {
+            this.version = maxOf(this.version, version)
+            futures.add(future)
+        }
+    }
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(WriteBehindPublishedVersionStore::class.java)
+    }
+}
@@ -7,4 +7,6 @@ interface MethodInvocation {
     fun setMethodHandle(methodHandle: MethodHandle)
     fun setMethod(method: Method)
     fun getMethod(): Method
+    fun setMethodInvoker(methodInvoker: MethodInvoker)
+    fun isSuspendMethod(): Boolean
 }
\ No newline at end of file
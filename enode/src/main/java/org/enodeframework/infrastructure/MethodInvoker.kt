@@ -0,0 +1,19 @@
+package org.enodeframework.infrastructure
+
+/**
+ * 处理方法的调用器，注册时为每个处理方法生成，参数与处理方法一致，可挂起方法最后多一个Continuation参数
+ */
+interface MethodInvoker {
+    /**
+     * 是否是一个可挂起的方法
+     */
+    val isSuspend: Boolean
+
+    fun invoke(target: Any, arg1: Any?): Any?
+
+    fun invoke(target: Any, arg1: Any?, arg2: Any?): Any?
+
+    fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?): Any?
+
+    fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?): Any?
+}
\ No newline at end of file
@@ -16,6 +16,7 @@ import java.lang.invoke.MethodHandles
 import java.lang.invoke.MethodType
 import java.lang.reflect.Method
 import java.lang.reflect.Modifier
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.reflect.jvm.kotlinFunction
 
 abstract class AbstractHandlerProvider<TKey, THandlerProxyInterface, THandlerSource> :
@@ -24,6 +25,13 @@ abstract class AbstractHandlerProvider<TKey, THandlerProxyInterface, THandlerSou
     private val messageHandlerDict: MutableMap<TKey, MessageHandlerData<THandlerProxyInterface>> = HashMap()
     private val lookup = MethodHandles.lookup()
 
+    /**
+     * 注册完成后处理器不再变化，按handlerSource缓存匹配结果，单个类型的handlerSource使用ClassValue缓存
+     */
+    private val handlerDataCache: ConcurrentHashMap<THandlerSource, List<MessageHandlerData<THandlerProxyInterface>>> =
+        ConcurrentHashMap()
+    private var handlerDataClassValue = buildHandlerDataClassValue()
+
     private val logger = LoggerFactory.getLogger(this.javaClass);
 
     /**
@@ -62,13 +70,31 @@ abstract class AbstractHandlerProvider<TKey, THandlerProxyInterface, THandlerSou
         componentTypes.filter { type: Class<*> -> isHandlerType(type) }
             .forEach { handlerType: Class<*> -> registerHandler(handlerType) }
         initializeHandlerPriority()
+        handlerDataCache.clear()
+        handlerDataClassValue = buildHandlerDataClassValue()
     }
 
     fun getHandlersInternal(source: THandlerSource): List<MessageHandlerData<THandlerProxyInterface>> {
+        if (source is Class<*>) {
+            return handlerDataClassValue.get(source)
+        }
+        return handlerDataCache.computeIfAbsent(source) { x -> matchHandlers(x) }
+    }
+
+    private fun matchHandlers(source: THandlerSource): List<MessageHandlerData<THandlerProxyInterface>> {
         return messageHandlerDict.keys.filter { key: TKey -> isHandlerSourceMatchKey(source, key) }
             .map { key: TKey -> messageHandlerDict.getValue(key) }
     }
 
+    private fun buildHandlerDataClassValue(): ClassValue<List<MessageHandlerData<THandlerProxyInterface>>> {
+        return object : ClassValue<List<MessageHandlerData<THandlerProxyInterface>>>() {
+            @Suppress("UNCHECKED_CAST")
+            override fun computeValue(type: Class<*>): List<MessageHandlerData<THandlerProxyInterface>> {
+                return matchHandlers(type as THandlerSource)
+            }
+        }
+    }
+
     private fun initializeHandlerPriority() {
         handlerDict.forEach { (key: TKey, handlers: List<THandlerProxyInterface>) ->
             val handlerData = MessageHandlerData<THandlerProxyInterface>()
@@ -136,6 +162,8 @@ abstract class AbstractHandlerProvider<TKey, THandlerProxyInterface, THandlerSou
             handlerProxy.setInnerObject(DefaultObjectContainer.resolve(handlerType))
             handlerProxy.setMethod(method)
             handlerProxy.setMethodHandle(handleMethod)
+            // 注册时确定是否是可挂起的方法，并生成调用类，调用时不再使用kotlin反射
+            handlerProxy.setMethodInvoker(MethodInvokerFactory.create(lookup, handleMethod, isSuspendMethod(method)))
             handlers.add(handlerProxy)
             // 针对command，只允许一个处理器
             if (isHandleRegisterOnce() && handlers.size > 1) {
@@ -0,0 +1,40 @@
+package org.enodeframework.infrastructure.impl
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.async
+import kotlinx.coroutines.future.asCompletableFuture
+import org.enodeframework.common.function.Func
+import org.enodeframework.infrastructure.MethodInvocation
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+
+/**
+ * 不可挂起的处理方法直接在当前线程上调用，返回CompletionStage时使用其结果，只有可挂起的方法才启动协程
+ *
+ * @author anruence@gmail.com
+ */
+object HandlerInvocation {
+    private val completedFuture: CompletableFuture<Any?> = CompletableFuture.completedFuture(null)
+
+    @Suppress("UNCHECKED_CAST")
+    fun invokeAsync(
+        methodInvocation: MethodInvocation,
+        coroutineDispatcher: CoroutineDispatcher,
+        handleAction: Func<Any?>,
+        handleSuspendAction: suspend () -> Unit
+    ): CompletableFuture<Any?> {
+        if (methodInvocation.isSuspendMethod()) {
+            return CoroutineScope(coroutineDispatcher).async<Any?> {
+                handleSuspendAction()
+                null
+            }.asCompletableFuture()
+        }
+        //处理方法抛出的异常由调用方的重试逻辑统一处理
+        val result = handleAction.apply()
+        if (result is CompletionStage<*>) {
+            return result.toCompletableFuture() as CompletableFuture<Any?>
+        }
+        return completedFuture
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package org.enodeframework.infrastructure.impl
+
+import org.enodeframework.infrastructure.MethodInvoker
+import org.slf4j.LoggerFactory
+import java.lang.invoke.LambdaMetafactory
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.reflect.Modifier
+
+/**
+ * 通过LambdaMetafactory为处理方法生成调用类，调用处是普通的接口调用，JIT可以一直内联到处理方法
+ * 处理方法不是public或者对enode的ClassLoader不可见时，退化为MethodHandle调用
+ *
+ * @author anruence@gmail.com
+ */
+object MethodInvokerFactory {
+    private val logger = LoggerFactory.getLogger(MethodInvokerFactory::class.java)
+
+    fun create(lookup: MethodHandles.Lookup, methodHandle: MethodHandle, isSuspend: Boolean): MethodInvoker {
+        val methodType = methodHandle.type()
+        val parameterCount = methodType.parameterCount() - 1
+        if (parameterCount in 1..4 && isGeneratable(methodType)) {
+            try {
+                return generate(lookup, methodHandle, parameterCount, isSuspend)
+            } catch (ex: Throwable) {
+                logger.warn("Generate method invoker failed, fallback to method handle. {}", methodHandle, ex)
+            }
+        }
+        return MethodHandleInvoker(methodHandle, isSuspend)
+    }
+
+    private fun isGeneratable(methodType: MethodType): Boolean {
+        //生成的调用类定义在enode的ClassLoader中，需要能直接访问处理器类型以及参数类型
+        return methodType.parameterList().all { x -> isVisible(x) } && isVisible(methodType.returnType())
+    }
+
+    private fun isVisible(type: Class<*>): Boolean {
+        if (type.isPrimitive) {
+            return true
+        }
+        if (!Modifier.isPublic(type.modifiers)) {
+            return false
+        }
+        return try {
+            Class.forName(type.name, false, MethodInvokerFactory::class.java.classLoader) == type
+        } catch (ex: ClassNotFoundException) {
+            false
+        }
+    }
+
+    private fun generate(
+        lookup: MethodHandles.Lookup, methodHandle: MethodHandle, parameterCount: Int, isSuspend: Boolean
+    ): MethodInvoker {
+        val voidReturn = methodHandle.type().returnType() == Void.TYPE
+        var samMethodType = MethodType.genericMethodType(parameterCount + 1)
+        var instantiatedMethodType = methodHandle.type().wrap()
+        if (voidReturn) {
+            samMethodType = samMethodType.changeReturnType(Void.TYPE)
+            instantiatedMethodType = instantiatedMethodType.changeReturnType(Void.TYPE)
+        }
+        val samType = if (voidReturn) VOID_INVOKER_TYPES[parameterCount - 1] else INVOKER_TYPES[parameterCount - 1]
+        val callSite = LambdaMetafactory.metafactory(
+            lookup, "invoke", MethodType.methodType(samType), samMethodType, methodHandle, instantiatedMethodType
+        )
+        return when (val invoker = callSite.target.invoke()) {
+            is Invoker1 -> GeneratedInvoker1(invoker, isSuspend)
+            is Invoker2 -> GeneratedInvoker2(invoker, isSuspend)
+            is Invoker3 -> GeneratedInvoker3(invoker, isSuspend)
+            is Invoker4 -> GeneratedInvoker4(invoker, isSuspend)
+            is VoidInvoker1 -> GeneratedVoidInvoker1(invoker, isSuspend)
+            is VoidInvoker2 -> GeneratedVoidInvoker2(invoker, isSuspend)
+            is VoidInvoker3 -> GeneratedVoidInvoker3(invoker, isSuspend)
+            is VoidInvoker4 -> GeneratedVoidInvoker4(invoker, isSuspend)
+            else -> throw IllegalStateException("Unexpected method invoker: $invoker")
+        }
+    }
+
+    private val INVOKER_TYPES = arrayOf(
+        Invoker1::class.java, Invoker2::class.java, Invoker3::class.java, Invoker4::class.java
+    )
+    private val VOID_INVOKER_TYPES = arrayOf(
+        VoidInvoker1::class.java, VoidInvoker2::class.java, VoidInvoker3::class.java, VoidInvoker4::class.java
+    )
+
+    /**
+     * LambdaMetafactory实现的函数接口，返回void的方法不能适配到返回Object的接口，所以分为两组
+     */
+    fun interface Invoker1 {
+        fun invoke(target: Any, arg1: Any?): Any?
+    }
+
+    fun interface Invoker2 {
+        fun invoke(target: Any, arg1: Any?, arg2: Any?): Any?
+    }
+
+    fun interface Invoker3 {
+        fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?): Any?
+    }
+
+    fun interface Invoker4 {
+        fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?): Any?
+    }
+
+    fun interface VoidInvoker1 {
+        fun invoke(target: Any, arg1: Any?)
+    }
+
+    fun interface VoidInvoker2 {
+        fun invoke(target: Any, arg1: Any?, arg2: Any?)
+    }
+
+    fun interface VoidInvoker3 {
+        fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?)
+    }
+
+    fun interface VoidInvoker4 {
+        fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?)
+    }
+
+    abstract class AbstractMethodInvoker(override val isSuspend: Boolean) : MethodInvoker {
+        override fun invoke(target: Any, arg1: Any?): Any? {
+            throw UnsupportedOperationException("Method invoker does not accept 1 argument")
+        }
+
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?): Any? {
+            throw UnsupportedOperationException("Method invoker does not accept 2 arguments")
+        }
+
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?): Any? {
+            throw UnsupportedOperationException("Method invoker does not accept 3 arguments")
+        }
+
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?): Any? {
+            throw UnsupportedOperationException("Method invoker does not accept 4 arguments")
+        }
+    }
+
+    private class GeneratedInvoker1(private val invoker: Invoker1, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?): Any? {
+            return invoker.invoke(target, arg1)
+        }
+    }
+
+    private class GeneratedInvoker2(private val invoker: Invoker2, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?): Any? {
+            return invoker.invoke(target, arg1, arg2)
+        }
+    }
+
+    private class GeneratedInvoker3(private val invoker: Invoker3, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?): Any? {
+            return invoker.invoke(target, arg1, arg2, arg3)
+        }
+    }
+
+    private class GeneratedInvoker4(private val invoker: Invoker4, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?): Any? {
+            return invoker.invoke(target, arg1, arg2, arg3, arg4)
+        }
+    }
+
+    private class GeneratedVoidInvoker1(private val invoker: VoidInvoker1, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?): Any? {
+            invoker.invoke(target, arg1)
+            return null
+        }
+    }
+
+    private class GeneratedVoidInvoker2(private val invoker: VoidInvoker2, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?): Any? {
+            invoker.invoke(target, arg1, arg2)
+            return null
+        }
+    }
+
+    private class GeneratedVoidInvoker3(private val invoker: VoidInvoker3, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?): Any? {
+            invoker.invoke(target, arg1, arg2, arg3)
+            return null
+        }
+    }
+
+    private class GeneratedVoidInvoker4(private val invoker: VoidInvoker4, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?): Any? {
+            invoker.invoke(target, arg1, arg2, arg3, arg4)
+            return null
+        }
+    }
+
+    /**
+     * 无法生成调用类时使用的MethodHandle调用
+     */
+    private class MethodHandleInvoker(private val methodHandle: MethodHandle, isSuspend: Boolean) :
+        AbstractMethodInvoker(isSuspend) {
+        override fun invoke(target: Any, arg1: Any?): Any? {
+            return methodHandle.invoke(target, arg1)
+        }
+
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?): Any? {
+            return methodHandle.invoke(target, arg1, arg2)
+        }
+
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?): Any? {
+            return methodHandle.invoke(target, arg1, arg2, arg3)
+        }
+
+        override fun invoke(target: Any, arg1: Any?, arg2: Any?, arg3: Any?, arg4: Any?): Any? {
+            return methodHandle.invoke(target, arg1, arg2, arg3, arg4)
+        }
+    }
+}
\ No newline at end of file
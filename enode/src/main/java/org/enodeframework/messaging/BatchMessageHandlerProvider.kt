@@ -0,0 +1,5 @@
+package org.enodeframework.messaging
+
+interface BatchMessageHandlerProvider {
+    fun getHandlers(messageType: Class<*>): List<MessageHandlerData<BatchMessageHandlerProxy>>
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package org.enodeframework.messaging
+
+import org.enodeframework.infrastructure.MethodInvocation
+import org.enodeframework.infrastructure.ObjectProxy
+
+interface BatchMessageHandlerProxy : ObjectProxy, MethodInvocation {
+    suspend fun handleAsync(messages: List<Message>)
+
+    /**
+     * 直接调用不可挂起的处理方法，返回处理方法的返回值
+     */
+    fun handle(messages: List<Message>): Any?
+}
\ No newline at end of file
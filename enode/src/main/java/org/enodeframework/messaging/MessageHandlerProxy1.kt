@@ -5,4 +5,9 @@ import org.enodeframework.infrastructure.ObjectProxy
 
 interface MessageHandlerProxy1 : ObjectProxy, MethodInvocation {
     suspend fun handleAsync(message: Message)
+
+    /**
+     * 直接调用不可挂起的处理方法，返回处理方法的返回值
+     */
+    fun handle(message: Message): Any?
 }
\ No newline at end of file
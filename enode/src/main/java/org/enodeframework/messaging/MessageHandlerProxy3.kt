@@ -5,4 +5,9 @@ import org.enodeframework.infrastructure.ObjectProxy
 
 interface MessageHandlerProxy3 : ObjectProxy, MethodInvocation {
     suspend fun handleAsync(message1: Message, message2: Message, message3: Message)
+
+    /**
+     * 直接调用不可挂起的处理方法，返回处理方法的返回值
+     */
+    fun handle(message1: Message, message2: Message, message3: Message): Any?
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package org.enodeframework.messaging.impl
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import org.enodeframework.common.function.Action
+import org.enodeframework.common.function.Action1
+import org.enodeframework.messaging.Message
+
+/**
+ * 按批量处理方法累计来自不同MailBox的消息，达到批量大小或者第一个消息等待超过时间窗口时交给flushAction处理
+ * 每个消息的successAction在其所在的批次处理成功后调用
+ *
+ * @author anruence@gmail.com
+ */
+class BatchMessageAccumulator(
+    private val batchSize: Int,
+    private val batchWindowMilliseconds: Long,
+    private val coroutineDispatcher: CoroutineDispatcher,
+    private val flushAction: Action1<List<PendingMessage>>
+) {
+    private val lockObj = Any()
+    private var pendingList = ArrayList<PendingMessage>()
+    private var generation = 0L
+
+    fun add(message: Message, successAction: Action) {
+        var batch: List<PendingMessage>? = null
+        synchronized(lockObj) {
+            pendingList.add(PendingMessage(message, successAction))
+            if (pendingList.size >= batchSize) {
+                batch = takePending()
+            } else if (pendingList.size == 1) {
+                scheduleFlush(generation)
+            }
+        }
+        batch?.let { x -> flushAction.apply(x) }
+    }
+
+    private fun scheduleFlush(expectedGeneration: Long) {
+        CoroutineScope(coroutineDispatcher).launch {
+            delay(batchWindowMilliseconds)
+            //批次已经因为达到数量被取走时，不再重复处理
+            val batch = synchronized(lockObj) {
+                if (expectedGeneration != generation || pendingList.isEmpty()) null else takePending()
+            }
+            batch?.let { x -> flushAction.apply(x) }
+        }
+    }
+
+    private fun takePending(): List<PendingMessage> {
+        val batch = pendingList
+        pendingList = ArrayList()
+        generation++
+        return batch
+    }
+
+    class PendingMessage(val message: Message, val successAction: Action)
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package org.enodeframework.messaging.impl
+
+import org.enodeframework.eventing.DomainEventMessage
+import org.enodeframework.infrastructure.impl.AbstractHandlerProvider
+import org.enodeframework.messaging.BatchMessageHandlerProvider
+import org.enodeframework.messaging.BatchMessageHandlerProxy
+import org.enodeframework.messaging.Message
+import org.enodeframework.messaging.MessageHandlerData
+import java.lang.reflect.Method
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.WildcardType
+import kotlin.coroutines.Continuation
+
+/**
+ * 注册参数为List<SomeEvent>的批量事件处理方法，key为List的元素类型
+ *
+ * @author anruence@gmail.com
+ */
+class DefaultBatchMessageHandlerProvider :
+    AbstractHandlerProvider<Class<*>, BatchMessageHandlerProxy, Class<*>>(), BatchMessageHandlerProvider {
+    override fun getKey(method: Method): Class<*> {
+        return getElementType(method)!!
+    }
+
+    override fun getHandlerProxyImplementationType(): Class<out BatchMessageHandlerProxy> {
+        return DefaultBatchMessageHandlerProxy::class.java
+    }
+
+    override fun isHandleMethodMatch(method: Method): Boolean {
+        if (isSuspendMethod(method)) {
+            return methodMatchSuspend(method)
+        }
+        return methodMatch(method)
+    }
+
+    private fun methodMatch(method: Method): Boolean {
+        if (method.parameterTypes.size != 1) {
+            return false
+        }
+        if (!isBatchParameter(method)) {
+            return false
+        }
+        return isMethodAnnotationSubscribe(method)
+    }
+
+    private fun methodMatchSuspend(method: Method): Boolean {
+        if (method.parameterTypes.size != 2) {
+            return false
+        }
+        if (!isBatchParameter(method)) {
+            return false
+        }
+        if (Continuation::class.java != method.parameterTypes[1]) {
+            return false
+        }
+        return isMethodAnnotationSubscribe(method)
+    }
+
+    private fun isBatchParameter(method: Method): Boolean {
+        if (List::class.java != method.parameterTypes[0]) {
+            return false
+        }
+        val elementType = getElementType(method) ?: return false
+        if (Message::class.java == elementType) {
+            return false
+        }
+        return DomainEventMessage::class.java.isAssignableFrom(elementType)
+    }
+
+    private fun getElementType(method: Method): Class<*>? {
+        val parameterType = method.genericParameterTypes[0] as? ParameterizedType ?: return null
+        return when (val elementType = parameterType.actualTypeArguments[0]) {
+            is Class<*> -> elementType
+            //kotlin中List<out T>会编译为通配符类型
+            is WildcardType -> elementType.upperBounds.firstOrNull() as? Class<*>
+            else -> null
+        }
+    }
+
+    override fun isHandlerSourceMatchKey(handlerSource: Class<*>, key: Class<*>): Boolean {
+        return key == handlerSource
+    }
+
+    override fun getHandlers(messageType: Class<*>): List<MessageHandlerData<BatchMessageHandlerProxy>> {
+        return getHandlersInternal(messageType)
+    }
+
+    override fun isHandleRegisterOnce(): Boolean {
+        return false
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package org.enodeframework.messaging.impl
+
+import kotlinx.coroutines.future.asDeferred
+import org.enodeframework.infrastructure.MethodInvoker
+import org.enodeframework.messaging.BatchMessageHandlerProxy
+import org.enodeframework.messaging.Message
+import java.lang.invoke.MethodHandle
+import java.lang.reflect.Method
+import java.util.concurrent.CompletionStage
+import kotlin.coroutines.intrinsics.suspendCoroutineUninterceptedOrReturn
+
+/**
+ * @author anruence@gmail.com
+ */
+class DefaultBatchMessageHandlerProxy : BatchMessageHandlerProxy {
+    private lateinit var innerObject: Any
+    private lateinit var methodHandle: MethodHandle
+    private lateinit var method: Method
+    private lateinit var methodInvoker: MethodInvoker
+
+    override suspend fun handleAsync(messages: List<Message>) {
+        if (methodInvoker.isSuspend) {
+            invokeSuspend(getInnerObject(), messages)
+            return
+        }
+        val result = handle(messages)
+        if (result is CompletionStage<*>) {
+            result.asDeferred().await()
+        }
+    }
+
+    override fun handle(messages: List<Message>): Any? {
+        return methodInvoker.invoke(getInnerObject(), messages)
+    }
+
+    private suspend fun invokeSuspend(obj: Any, messages: List<Message>): Any? =
+        suspendCoroutineUninterceptedOrReturn { continuation ->
+            methodInvoker.invoke(obj, messages, continuation)
+        }
+
+    override fun getInnerObject(): Any {
+        return innerObject
+    }
+
+    override fun setInnerObject(innerObject: Any) {
+        this.innerObject = innerObject
+    }
+
+    override fun setMethodHandle(methodHandle: MethodHandle) {
+        this.methodHandle = methodHandle
+    }
+
+    override fun getMethod(): Method {
+        return method
+    }
+
+    override fun setMethod(method: Method) {
+        this.method = method
+    }
+
+    override fun setMethodInvoker(methodInvoker: MethodInvoker) {
+        this.methodInvoker = methodInvoker
+    }
+
+    override fun isSuspendMethod(): Boolean {
+        return methodInvoker.isSuspend
+    }
+}
\ No newline at end of file
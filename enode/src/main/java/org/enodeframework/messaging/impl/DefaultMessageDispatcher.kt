@@ -2,18 +2,19 @@ package org.enodeframework.messaging.impl
 
 import com.google.common.collect.Lists
 import kotlinx.coroutines.CoroutineDispatcher
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.async
-import kotlinx.coroutines.future.asCompletableFuture
+import org.enodeframework.annotation.Subscribe
 import org.enodeframework.common.function.Action4
 import org.enodeframework.common.io.IOHelper
 import org.enodeframework.common.io.Task
 import org.enodeframework.common.serializing.SerializeService
+import org.enodeframework.infrastructure.MethodInvocation
 import org.enodeframework.infrastructure.ObjectProxy
 import org.enodeframework.infrastructure.TypeNameProvider
+import org.enodeframework.infrastructure.impl.HandlerInvocation
 import org.enodeframework.messaging.*
 import org.slf4j.LoggerFactory
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * @author anruence@gmail.com
@@ -23,9 +24,89 @@ class DefaultMessageDispatcher(
     private val messageHandlerProvider: MessageHandlerProvider,
     private val twoMessageHandlerProvider: TwoMessageHandlerProvider,
     private val threeMessageHandlerProvider: ThreeMessageHandlerProvider,
+    private val batchMessageHandlerProvider: BatchMessageHandlerProvider,
     private val serializeService: SerializeService,
     private val coroutineDispatcher: CoroutineDispatcher,
+    /**
+     * 每个处理方法默认最多同时执行的数量，小于等于0表示不限制，处理方法上的@Subscribe(maxConcurrency)优先
+     */
+    private val handlerMaxConcurrency: Int,
 ) : MessageDispatcher {
+    /**
+     * 消息和处理器的类型名在运行期不会变化，按类型缓存，分发时不再重复计算
+     */
+    private val typeNameClassValue = object : ClassValue<String>() {
+        override fun computeValue(type: Class<*>): String {
+            return typeNameProvider.getTypeName(type)
+        }
+    }
+    private val cachedTypeNameProvider = object : TypeNameProvider {
+        override fun getTypeName(type: Class<*>): String {
+            return typeNameClassValue.get(type)
+        }
+
+        override fun getType(typeName: String): Class<*> {
+            return typeNameProvider.getType(typeName)
+        }
+    }
+    /**
+     * 处理器在启动时注册完成后不再变化，按消息类型缓存分发计划，分发时不再查找、合并处理器列表
+     */
+    private val singleMessageDispatchPlanClassValue = object : ClassValue<MessageDispatchPlan<MessageHandlerProxy1>>() {
+        override fun computeValue(type: Class<*>): MessageDispatchPlan<MessageHandlerProxy1> {
+            return MessageDispatchPlan(
+                messageHandlerProvider.getHandlers(type),
+                batchMessageHandlerProvider.getHandlers(type).flatMap { x -> x.allHandlers },
+                cachedTypeNameProvider
+            )
+        }
+    }
+
+    /**
+     * 多消息处理器的分发计划，按去重排序后的消息类型组合缓存
+     */
+    private val multiMessageDispatchPlanDict: ConcurrentHashMap<MessageTypeTuple, MultiMessageDispatchPlan> =
+        ConcurrentHashMap()
+    private val batchMessageAccumulatorDict: ConcurrentHashMap<BatchMessageHandlerProxy, BatchMessageAccumulator> =
+        ConcurrentHashMap()
+    private val handlerConcurrencyLimiterDict: ConcurrentHashMap<MethodInvocation, HandlerConcurrencyLimiter> =
+        ConcurrentHashMap()
+
+    constructor(
+        typeNameProvider: TypeNameProvider,
+        messageHandlerProvider: MessageHandlerProvider,
+        twoMessageHandlerProvider: TwoMessageHandlerProvider,
+        threeMessageHandlerProvider: ThreeMessageHandlerProvider,
+        batchMessageHandlerProvider: BatchMessageHandlerProvider,
+        serializeService: SerializeService,
+        coroutineDispatcher: CoroutineDispatcher,
+    ) : this(
+        typeNameProvider,
+        messageHandlerProvider,
+        twoMessageHandlerProvider,
+        threeMessageHandlerProvider,
+        batchMessageHandlerProvider,
+        serializeService,
+        coroutineDispatcher,
+        0
+    )
+
+    /**
+     * 返回只分发给指定类型处理器的分发器，其余配置与当前分发器相同
+     */
+    fun scopedTo(handlerTypes: Collection<Class<*>>): DefaultMessageDispatcher {
+        val filter = HandlerTypeFilter(handlerTypes)
+        return DefaultMessageDispatcher(
+            typeNameProvider,
+            filter.filter(messageHandlerProvider),
+            filter.filter(twoMessageHandlerProvider),
+            filter.filter(threeMessageHandlerProvider),
+            filter.filter(batchMessageHandlerProvider),
+            serializeService,
+            coroutineDispatcher,
+            handlerMaxConcurrency
+        )
+    }
 
     override fun dispatchMessageAsync(message: Message): CompletableFuture<Boolean> {
         return dispatchMessages(Lists.newArrayList(message))
@@ -44,31 +125,28 @@ class DefaultMessageDispatcher(
         //先对每个事件调用其Handler
         val queueMessageDispatching = QueueMessageDispatching(this, rootDispatching, messages)
         dispatchSingleMessage(queueMessageDispatching.dequeueMessage(), queueMessageDispatching)
-        //如果有至少两个事件，则尝试调用针对两个事件的Handler
         if (messageCount >= 2) {
-            val twoMessageHandlers =
-                twoMessageHandlerProvider.getHandlers(messages.map { x: Message -> x.javaClass }.toList())
-            if (twoMessageHandlers.isNotEmpty()) {
+            val plan = getMultiMessageDispatchPlan(messages)
+            //如果有至少两个事件，则尝试调用针对两个事件的Handler
+            plan.twoMessagePlans.forEach { x ->
                 dispatchMultiMessage(
-                    messages, twoMessageHandlers, rootDispatching
+                    messages, x, rootDispatching
                 ) { multiMessageDispatching: MultiMessageDispatching, handlerProxy: MessageHandlerProxy2, queueHandler: QueuedHandler<MessageHandlerProxy2>?, retryTimes: Int ->
                     dispatchTwoMessageToHandlerAsync(
                         multiMessageDispatching, handlerProxy, queueHandler, retryTimes
                     )
                 }
             }
-        }
-        //如果有至少三个事件，则尝试调用针对三个事件的Handler
-        if (messageCount >= 3) {
-            val threeMessageHandlers =
-                threeMessageHandlerProvider.getHandlers(messages.map { x: Message -> x.javaClass }.toList())
-            if (threeMessageHandlers.isNotEmpty()) {
-                dispatchMultiMessage(
-                    messages, threeMessageHandlers, rootDispatching
-                ) { multiMessageDispatching: MultiMessageDispatching, handlerProxy: MessageHandlerProxy3, queueHandler: QueuedHandler<MessageHandlerProxy3>?, retryTimes: Int ->
-                    dispatchThreeMessageToHandlerAsync(
-                        multiMessageDispatching, handlerProxy, queueHandler, retryTimes
-                    )
+            //如果有至少三个事件，则尝试调用针对三个事件的Handler
+            if (messageCount >= 3) {
+                plan.threeMessagePlans.forEach { x ->
+                    dispatchMultiMessage(
+                        messages, x, rootDispatching
+                    ) { multiMessageDispatching: MultiMessageDispatching, handlerProxy: MessageHandlerProxy3, queueHandler: QueuedHandler<MessageHandlerProxy3>?, retryTimes: Int ->
+                        dispatchThreeMessageToHandlerAsync(
+                            multiMessageDispatching, handlerProxy, queueHandler, retryTimes
+                        )
+                    }
                 }
             }
         }
@@ -76,61 +154,81 @@ class DefaultMessageDispatcher(
     }
 
     fun dispatchSingleMessage(message: Message, queueMessageDispatching: QueueMessageDispatching) {
-        val messageHandlerDataList = messageHandlerProvider.getHandlers(message.javaClass)
-        if (messageHandlerDataList.isEmpty()) {
+        val plan = singleMessageDispatchPlanClassValue.get(message.javaClass)
+        if (plan.isEmpty()) {
             queueMessageDispatching.onMessageHandled(message)
             return
         }
-        messageHandlerDataList.forEach { messageHandlerData: MessageHandlerData<MessageHandlerProxy1> ->
-            val singleMessageDispatching = SingleMessageDispatching(
-                message, queueMessageDispatching, messageHandlerData.allHandlers, typeNameProvider
+        //批量处理方法和单个处理方法都完成后，消息才算处理完成
+        val singleMessageDispatching = SingleMessageDispatching(message, queueMessageDispatching, plan.handlerKeys)
+        plan.listHandlers.forEach { handler: MessageHandlerProxy1 ->
+            dispatchSingleMessageToHandlerAsync(
+                singleMessageDispatching, handler, null, 0
             )
-            if (messageHandlerData.listHandlers.isNotEmpty()) {
-                messageHandlerData.listHandlers.forEach { handler: MessageHandlerProxy1 ->
+        }
+        plan.queuedHandlerGroups.forEach { queuedHandlers: List<MessageHandlerProxy1> ->
+            val queueHandler =
+                QueuedHandler(queuedHandlers) { queuedHandler: QueuedHandler<MessageHandlerProxy1>?, nextHandler: MessageHandlerProxy1 ->
                     dispatchSingleMessageToHandlerAsync(
-                        singleMessageDispatching, handler, null, 0
+                        singleMessageDispatching, nextHandler, queuedHandler, 0
                     )
                 }
-            }
-            if (messageHandlerData.queuedHandlers.isNotEmpty()) {
-                val queueHandler =
-                    QueuedHandler(messageHandlerData.queuedHandlers) { queuedHandler: QueuedHandler<MessageHandlerProxy1>?, nextHandler: MessageHandlerProxy1 ->
-                        dispatchSingleMessageToHandlerAsync(
-                            singleMessageDispatching, nextHandler, queuedHandler, 0
-                        )
-                    }
-                dispatchSingleMessageToHandlerAsync(
-                    singleMessageDispatching, queueHandler.dequeueHandler(), queueHandler, 0
-                )
-            }
+            dispatchSingleMessageToHandlerAsync(
+                singleMessageDispatching, queueHandler.dequeueHandler(), queueHandler, 0
+            )
+        }
+        plan.batchHandlers.forEach { handler: BatchMessageHandlerProxy ->
+            dispatchBatchMessageToHandler(singleMessageDispatching, handler)
+        }
+    }
+
+    private fun getMultiMessageDispatchPlan(messages: List<Message>): MultiMessageDispatchPlan {
+        val messageTypes = MessageTypeTuple.of(messages)
+        return multiMessageDispatchPlanDict[messageTypes] ?: multiMessageDispatchPlanDict.computeIfAbsent(messageTypes) { x ->
+            MultiMessageDispatchPlan(
+                MessageDispatchPlan.ofEach(twoMessageHandlerProvider.getHandlers(x.getTypes()), cachedTypeNameProvider),
+                MessageDispatchPlan.ofEach(threeMessageHandlerProvider.getHandlers(x.getTypes()), cachedTypeNameProvider)
+            )
+        }
+    }
+
+    /**
+     * 批量处理方法不区分优先级，消息先进入该处理方法的累积批次，批次处理成功后再标记消息已被该处理方法处理
+     */
+    private fun dispatchBatchMessageToHandler(
+        singleMessageDispatching: SingleMessageDispatching, handlerProxy: BatchMessageHandlerProxy
+    ) {
+        val accumulator = batchMessageAccumulatorDict.computeIfAbsent(handlerProxy) { x ->
+            val subscribe = x.getMethod().getAnnotation(Subscribe::class.java)
+            BatchMessageAccumulator(
+                subscribe.batchSize, subscribe.batchWindowMilliseconds.toLong(), coroutineDispatcher
+            ) { pendingMessages -> handleBatchMessageAsync(x, pendingMessages, 0) }
+        }
+        accumulator.add(singleMessageDispatching.message) {
+            singleMessageDispatching.removeHandledBatchHandler(handlerProxy)
         }
     }
 
     private fun <T : ObjectProxy> dispatchMultiMessage(
         messages: List<Message>,
-        messageHandlerDataList: List<MessageHandlerData<T>>,
+        plan: MessageDispatchPlan<T>,
         rootDispatching: RootDispatching,
         dispatchAction: Action4<MultiMessageDispatching, T, QueuedHandler<T>?, Int>
     ) {
-        messageHandlerDataList.forEach { messageHandlerData: MessageHandlerData<T> ->
-            val multiMessageDispatching =
-                MultiMessageDispatching(messages, messageHandlerData.allHandlers, rootDispatching, typeNameProvider)
-            if (messageHandlerData.listHandlers.isNotEmpty()) {
-                messageHandlerData.listHandlers.forEach { handler: T ->
+        val multiMessageDispatching = MultiMessageDispatching(messages, plan.handlerKeys, rootDispatching)
+        plan.listHandlers.forEach { handler: T ->
+            dispatchAction.apply(
+                multiMessageDispatching, handler, null, 0
+            )
+        }
+        plan.queuedHandlerGroups.forEach { queuedHandlers: List<T> ->
+            val queuedHandler =
+                QueuedHandler(queuedHandlers) { currentQueuedHandler: QueuedHandler<T>?, nextHandler: T ->
                     dispatchAction.apply(
-                        multiMessageDispatching, handler, null, 0
+                        multiMessageDispatching, nextHandler, currentQueuedHandler, 0
                     )
                 }
-            }
-            if (messageHandlerData.queuedHandlers.isNotEmpty()) {
-                val queuedHandler =
-                    QueuedHandler(messageHandlerData.queuedHandlers) { currentQueuedHandler: QueuedHandler<T>?, nextHandler: T ->
-                        dispatchAction.apply(
-                            multiMessageDispatching, nextHandler, currentQueuedHandler, 0
-                        )
-                    }
-                dispatchAction.apply(multiMessageDispatching, queuedHandler.dequeueHandler(), queuedHandler, 0)
-            }
+            dispatchAction.apply(multiMessageDispatching, queuedHandler.dequeueHandler(), queuedHandler, 0)
         }
     }
 
@@ -141,9 +239,9 @@ class DefaultMessageDispatcher(
         retryTimes: Int
     ) {
         val message = singleMessageDispatching.message
-        val messageTypeName = typeNameProvider.getTypeName(message.javaClass)
+        val messageTypeName = cachedTypeNameProvider.getTypeName(message.javaClass)
         val handlerType: Class<*> = handlerProxy.getInnerObject().javaClass
-        val handlerTypeName = typeNameProvider.getTypeName(handlerType)
+        val handlerTypeName = cachedTypeNameProvider.getTypeName(handlerType)
         handleSingleMessageAsync(
             singleMessageDispatching, handlerProxy, handlerTypeName, messageTypeName, queueHandler, retryTimes
         )
@@ -156,7 +254,7 @@ class DefaultMessageDispatcher(
         retryTimes: Int
     ) {
         val handlerType: Class<*> = handlerProxy.getInnerObject().javaClass
-        val handlerTypeName = typeNameProvider.getTypeName(handlerType)
+        val handlerTypeName = cachedTypeNameProvider.getTypeName(handlerType)
         handleTwoMessageAsync(multiMessageDispatching, handlerProxy, handlerTypeName, queueHandler, 0)
     }
 
@@ -167,7 +265,7 @@ class DefaultMessageDispatcher(
         retryTimes: Int
     ) {
         val handlerType: Class<*> = handlerProxy.getInnerObject().javaClass
-        val handlerTypeName = typeNameProvider.getTypeName(handlerType)
+        val handlerTypeName = cachedTypeNameProvider.getTypeName(handlerType)
         handleThreeMessageAsync(multiMessageDispatching, handlerProxy, handlerTypeName, queueHandler, 0)
     }
 
@@ -182,9 +280,13 @@ class DefaultMessageDispatcher(
         val message = singleMessageDispatching.message
 
         IOHelper.tryAsyncActionRecursivelyWithoutResult("HandleSingleMessageAsync", {
-            CoroutineScope(coroutineDispatcher).async {
-                handlerProxy.handleAsync(message)
-            }.asCompletableFuture()
+            getConcurrencyLimiter(handlerProxy).executeAsync {
+                HandlerInvocation.invokeAsync(handlerProxy, coroutineDispatcher, {
+                    handlerProxy.handle(message)
+                }) {
+                    handlerProxy.handleAsync(message)
+                }
+            }
         }, {
             singleMessageDispatching.removeHandledHandler(handlerTypeName)
             queueHandler?.onHandlerFinished(handlerProxy)
@@ -211,9 +313,13 @@ class DefaultMessageDispatcher(
         val message1 = messages[0]
         val message2 = messages[1]
         IOHelper.tryAsyncActionRecursively("HandleTwoMessageAsync", {
-            CoroutineScope(coroutineDispatcher).async {
-                handlerProxy.handleAsync(message1, message2)
-            }.asCompletableFuture()
+            getConcurrencyLimiter(handlerProxy).executeAsync {
+                HandlerInvocation.invokeAsync(handlerProxy, coroutineDispatcher, {
+                    handlerProxy.handle(message1, message2)
+                }) {
+                    handlerProxy.handleAsync(message1, message2)
+                }
+            }
         }, {
             multiMessageDispatching.removeHandledHandler(handlerTypeName)
             queueHandler?.onHandlerFinished(handlerProxy)
@@ -241,9 +347,13 @@ class DefaultMessageDispatcher(
         val message2 = messages[1]
         val message3 = messages[2]
         IOHelper.tryAsyncActionRecursively("HandleThreeMessageAsync", {
-            CoroutineScope(coroutineDispatcher).async {
-                handlerProxy.handleAsync(message1, message2, message3)
-            }.asCompletableFuture()
+            getConcurrencyLimiter(handlerProxy).executeAsync {
+                HandlerInvocation.invokeAsync(handlerProxy, coroutineDispatcher, {
+                    handlerProxy.handle(message1, message2, message3)
+                }) {
+                    handlerProxy.handleAsync(message1, message2, message3)
+                }
+            }
         }, {
             multiMessageDispatching.removeHandledHandler(handlerTypeName)
             queueHandler?.onHandlerFinished(handlerProxy)
@@ -259,6 +369,51 @@ class DefaultMessageDispatcher(
         }, null, retryTimes, true)
     }
 
+    private fun handleBatchMessageAsync(
+        handlerProxy: BatchMessageHandlerProxy,
+        pendingMessages: List<BatchMessageAccumulator.PendingMessage>,
+        retryTimes: Int
+    ) {
+        val messages = pendingMessages.map { x -> x.message }
+        IOHelper.tryAsyncActionRecursivelyWithoutResult("HandleBatchMessageAsync", {
+            getConcurrencyLimiter(handlerProxy).executeAsync {
+                HandlerInvocation.invokeAsync(handlerProxy, coroutineDispatcher, {
+                    handlerProxy.handle(messages)
+                }) {
+                    handlerProxy.handleAsync(messages)
+                }
+            }
+        }, {
+            pendingMessages.forEach { x -> x.successAction.apply() }
+            if (logger.isDebugEnabled) {
+                logger.debug("BatchMessage handled success, messageCount: {}", messages.size)
+            }
+        }, {
+            String.format(
+                "[messageCount: %s, messageIds: %s, handlerType: %s]",
+                messages.size,
+                messages.joinToString("|") { x -> x.id },
+                handlerProxy.getInnerObject().javaClass.name
+            )
+        }, null, retryTimes, true)
+    }
+
+    private fun getConcurrencyLimiter(handlerProxy: MethodInvocation): HandlerConcurrencyLimiter {
+        return handlerConcurrencyLimiterDict.computeIfAbsent(handlerProxy) { x ->
+            val subscribe = x.getMethod().getAnnotation(Subscribe::class.java)
+            if (subscribe != null && subscribe.maxConcurrency > 0) {
+                HandlerConcurrencyLimiter(subscribe.maxConcurrency)
+            } else {
+                HandlerConcurrencyLimiter(handlerMaxConcurrency)
+            }
+        }
+    }
+
+    private class MultiMessageDispatchPlan(
+        val twoMessagePlans: List<MessageDispatchPlan<MessageHandlerProxy2>>,
+        val threeMessagePlans: List<MessageDispatchPlan<MessageHandlerProxy3>>
+    )
+
     companion object {
         private val logger = LoggerFactory.getLogger(DefaultMessageDispatcher::class.java)
     }
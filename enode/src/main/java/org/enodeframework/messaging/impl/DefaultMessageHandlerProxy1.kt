@@ -1,13 +1,13 @@
 package org.enodeframework.messaging.impl
 
 import kotlinx.coroutines.future.asDeferred
+import org.enodeframework.infrastructure.MethodInvoker
 import org.enodeframework.messaging.Message
 import org.enodeframework.messaging.MessageHandlerProxy1
 import java.lang.invoke.MethodHandle
 import java.lang.reflect.Method
 import java.util.concurrent.CompletionStage
 import kotlin.coroutines.intrinsics.suspendCoroutineUninterceptedOrReturn
-import kotlin.reflect.jvm.kotlinFunction
 
 /**
  * @author anruence@gmail.com
@@ -16,21 +16,26 @@ class DefaultMessageHandlerProxy1 : MessageHandlerProxy1 {
     private lateinit var innerObject: Any
     private lateinit var methodHandle: MethodHandle
     private lateinit var method: Method
+    private lateinit var methodInvoker: MethodInvoker
 
     override suspend fun handleAsync(message: Message) {
-        if (method.kotlinFunction?.isSuspend == true) {
+        if (methodInvoker.isSuspend) {
             invokeSuspend(getInnerObject(), message)
             return
         }
-        val result = methodHandle.invoke(getInnerObject(), message)
+        val result = handle(message)
         if (result is CompletionStage<*>) {
             result.asDeferred().await()
         }
     }
 
+    override fun handle(message: Message): Any? {
+        return methodInvoker.invoke(getInnerObject(), message)
+    }
+
     private suspend fun invokeSuspend(obj: Any, message: Message): Any? =
         suspendCoroutineUninterceptedOrReturn { continuation ->
-            methodHandle.invoke(obj, message, continuation)
+            methodInvoker.invoke(obj, message, continuation)
         }
 
     override fun getInnerObject(): Any {
@@ -52,4 +57,12 @@ class DefaultMessageHandlerProxy1 : MessageHandlerProxy1 {
     override fun setMethod(method: Method) {
         this.method = method
     }
+
+    override fun setMethodInvoker(methodInvoker: MethodInvoker) {
+        this.methodInvoker = methodInvoker
+    }
+
+    override fun isSuspendMethod(): Boolean {
+        return methodInvoker.isSuspend
+    }
 }
\ No newline at end of file
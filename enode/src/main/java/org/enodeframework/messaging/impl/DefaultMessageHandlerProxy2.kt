@@ -1,13 +1,13 @@
 package org.enodeframework.messaging.impl
 
 import kotlinx.coroutines.future.asDeferred
+import org.enodeframework.infrastructure.MethodInvoker
 import org.enodeframework.messaging.Message
 import org.enodeframework.messaging.MessageHandlerProxy2
 import java.lang.invoke.MethodHandle
 import java.lang.reflect.Method
 import java.util.concurrent.CompletionStage
 import kotlin.coroutines.intrinsics.suspendCoroutineUninterceptedOrReturn
-import kotlin.reflect.jvm.kotlinFunction
 
 /**
  * @author anruence@gmail.com
@@ -16,33 +16,38 @@ class DefaultMessageHandlerProxy2 : MessageHandlerProxy2 {
     private lateinit var innerObject: Any
     private lateinit var methodHandle: MethodHandle
     private lateinit var method: Method
+    private lateinit var methodInvoker: MethodInvoker
+
+    /**
+     * Method.getParameterTypes每次都会复制数组，在设置方法时取出第一个参数的类型
+     */
+    private lateinit var firstParameterType: Class<*>
 
     override suspend fun handleAsync(message1: Message, message2: Message) {
-        val methodParameterTypes = method.parameterTypes
-        if (method.kotlinFunction?.isSuspend == true) {
-            if (methodParameterTypes[0].isAssignableFrom(message1.javaClass)) {
+        if (methodInvoker.isSuspend) {
+            if (firstParameterType.isAssignableFrom(message1.javaClass)) {
                 invokeSuspend(getInnerObject(), message1, message2)
             } else {
                 invokeSuspend(getInnerObject(), message2, message1)
             }
             return
         }
-        if (methodParameterTypes[0].isAssignableFrom(message1.javaClass)) {
-            val result = methodHandle.invoke(getInnerObject(), message1, message2)
-            if (result is CompletionStage<*>) {
-                result.asDeferred().await()
-            }
-        } else {
-            val result = methodHandle.invoke(getInnerObject(), message2, message1)
-            if (result is CompletionStage<*>) {
-                result.asDeferred().await()
-            }
+        val result = handle(message1, message2)
+        if (result is CompletionStage<*>) {
+            result.asDeferred().await()
+        }
+    }
+
+    override fun handle(message1: Message, message2: Message): Any? {
+        if (firstParameterType.isAssignableFrom(message1.javaClass)) {
+            return methodInvoker.invoke(getInnerObject(), message1, message2)
         }
+        return methodInvoker.invoke(getInnerObject(), message2, message1)
     }
 
     private suspend fun invokeSuspend(obj: Any, message1: Message, message2: Message): Any? =
         suspendCoroutineUninterceptedOrReturn { continuation ->
-            methodHandle.invoke(obj, message1, message2, continuation)
+            methodInvoker.invoke(obj, message1, message2, continuation)
         }
 
     override fun getInnerObject(): Any {
@@ -63,5 +68,14 @@ class DefaultMessageHandlerProxy2 : MessageHandlerProxy2 {
 
     override fun setMethod(method: Method) {
         this.method = method
+        this.firstParameterType = method.parameterTypes[0]
+    }
+
+    override fun setMethodInvoker(methodInvoker: MethodInvoker) {
+        this.methodInvoker = methodInvoker
+    }
+
+    override fun isSuspendMethod(): Boolean {
+        return methodInvoker.isSuspend
     }
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package org.enodeframework.messaging.impl
 
 import kotlinx.coroutines.future.asDeferred
+import org.enodeframework.infrastructure.MethodInvoker
 import org.enodeframework.messaging.Message
 import org.enodeframework.messaging.MessageHandlerProxy3
 import java.lang.invoke.MethodHandle
 import java.lang.reflect.Method
 import java.util.concurrent.CompletionStage
 import kotlin.coroutines.intrinsics.suspendCoroutineUninterceptedOrReturn
-import kotlin.reflect.jvm.kotlinFunction
 
 /**
  * @author anruence@gmail.com
@@ -16,22 +16,27 @@ class DefaultMessageHandlerProxy3 : MessageHandlerProxy3 {
     private lateinit var innerObject: Any
     private lateinit var methodHandle: MethodHandle
     private lateinit var method: Method
+    private lateinit var methodInvoker: MethodInvoker
 
     override suspend fun handleAsync(message1: Message, message2: Message, message3: Message) {
         //参数按照方法定义参数类型列表传递
-        if (method.kotlinFunction?.isSuspend == true) {
+        if (methodInvoker.isSuspend) {
             invokeSuspend(innerObject, message1, message2, message3)
             return
         }
-        val result = methodHandle.invoke(innerObject, message1, message2, message3)
+        val result = handle(message1, message2, message3)
         if (result is CompletionStage<*>) {
             result.asDeferred().await()
         }
     }
 
+    override fun handle(message1: Message, message2: Message, message3: Message): Any? {
+        return methodInvoker.invoke(innerObject, message1, message2, message3)
+    }
+
     private suspend fun invokeSuspend(obj: Any, message1: Message, message2: Message, message3: Message): Any? =
         suspendCoroutineUninterceptedOrReturn { continuation ->
-            methodHandle.invoke(obj, message1, message2, message3, continuation)
+            methodInvoker.invoke(obj, message1, message2, message3, continuation)
         }
 
     override fun setInnerObject(innerObject: Any) {
@@ -53,4 +58,12 @@ class DefaultMessageHandlerProxy3 : MessageHandlerProxy3 {
     override fun setMethod(method: Method) {
         this.method = method
     }
+
+    override fun setMethodInvoker(methodInvoker: MethodInvoker) {
+        this.methodInvoker = methodInvoker
+    }
+
+    override fun isSuspendMethod(): Boolean {
+        return methodInvoker.isSuspend
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package org.enodeframework.messaging.impl
+
+import org.enodeframework.common.function.Func
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * 限制单个处理方法同时执行的数量，超过时调用排队等待，前一个调用完成后再执行，maxConcurrency小于等于0表示不限制
+ *
+ * @author anruence@gmail.com
+ */
+class HandlerConcurrencyLimiter(private val maxConcurrency: Int) {
+    private val running = AtomicInteger(0)
+    private val waitingQueue = ConcurrentLinkedQueue<Runnable>()
+
+    /**
+     * 同步完成的调用在当前线程的循环中继续执行下一个，避免递归调用导致栈溢出
+     */
+    private val draining = ThreadLocal.withInitial { false }
+
+    fun <T> executeAsync(action: Func<CompletableFuture<T>>): CompletableFuture<T> {
+        if (maxConcurrency <= 0) {
+            return action.apply()
+        }
+        val future = CompletableFuture<T>()
+        waitingQueue.add(Runnable { execute(action, future) })
+        drain()
+        return future
+    }
+
+    fun getRunningCount(): Int {
+        return running.get()
+    }
+
+    fun getWaitingCount(): Int {
+        return waitingQueue.size
+    }
+
+    private fun <T> execute(action: Func<CompletableFuture<T>>, future: CompletableFuture<T>) {
+        val result = try {
+            action.apply()
+        } catch (ex: Exception) {
+            release()
+            future.completeExceptionally(ex)
+            return
+        }
+        result.whenComplete { value, throwable ->
+            release()
+            if (throwable != null) {
+                future.completeExceptionally(throwable)
+            } else {
+                future.complete(value)
+            }
+        }
+    }
+
+    private fun release() {
+        running.decrementAndGet()
+        if (!draining.get()) {
+            drain()
+        }
+    }
+
+    private fun drain() {
+        draining.set(true)
+        try {
+            while (true) {
+                val current = running.get()
+                if (current >= maxConcurrency || waitingQueue.isEmpty()) {
+                    return
+                }
+                if (!running.compareAndSet(current, current + 1)) {
+                    continue
+                }
+                val task = waitingQueue.poll()
+                if (task == null) {
+                    running.decrementAndGet()
+                    continue
+                }
+                task.run()
+            }
+        } finally {
+            draining.set(false)
+        }
+    }
+}
\ No newline at end of file
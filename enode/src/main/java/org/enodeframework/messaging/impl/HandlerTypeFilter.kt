@@ -0,0 +1,74 @@
+package org.enodeframework.messaging.impl
+
+import org.enodeframework.infrastructure.ObjectProxy
+import org.enodeframework.messaging.BatchMessageHandlerProvider
+import org.enodeframework.messaging.BatchMessageHandlerProxy
+import org.enodeframework.messaging.MessageHandlerData
+import org.enodeframework.messaging.MessageHandlerProvider
+import org.enodeframework.messaging.MessageHandlerProxy1
+import org.enodeframework.messaging.MessageHandlerProxy2
+import org.enodeframework.messaging.MessageHandlerProxy3
+import org.enodeframework.messaging.ThreeMessageHandlerProvider
+import org.enodeframework.messaging.TwoMessageHandlerProvider
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 按处理器类型过滤消息处理器，只保留属于指定类型的处理器，例如投影重建时只把事件分发给被重建的处理器
+ * 过滤结果按消息类型缓存，分发时不再重复计算
+ *
+ * @author anruence@gmail.com
+ */
+class HandlerTypeFilter(private val handlerTypes: Collection<Class<*>>) {
+
+    fun accept(handler: ObjectProxy): Boolean {
+        return handlerTypes.any { type -> type.isInstance(handler.getInnerObject()) }
+    }
+
+    fun <T : ObjectProxy> filter(handlerDataList: List<MessageHandlerData<T>>): List<MessageHandlerData<T>> {
+        return handlerDataList.map { x -> filter(x) }.filter { x -> x.allHandlers.isNotEmpty() }
+    }
+
+    fun filter(provider: MessageHandlerProvider): MessageHandlerProvider {
+        val cache = ConcurrentHashMap<Class<*>, List<MessageHandlerData<MessageHandlerProxy1>>>()
+        return object : MessageHandlerProvider {
+            override fun getHandlers(messageType: Class<*>): List<MessageHandlerData<MessageHandlerProxy1>> {
+                return cache.computeIfAbsent(messageType) { x -> filter(provider.getHandlers(x)) }
+            }
+        }
+    }
+
+    fun filter(provider: TwoMessageHandlerProvider): TwoMessageHandlerProvider {
+        val cache = ConcurrentHashMap<List<Class<*>>, List<MessageHandlerData<MessageHandlerProxy2>>>()
+        return object : TwoMessageHandlerProvider {
+            override fun getHandlers(messageTypes: List<Class<*>>): List<MessageHandlerData<MessageHandlerProxy2>> {
+                return cache.computeIfAbsent(messageTypes) { x -> filter(provider.getHandlers(x)) }
+            }
+        }
+    }
+
+    fun filter(provider: ThreeMessageHandlerProvider): ThreeMessageHandlerProvider {
+        val cache = ConcurrentHashMap<List<Class<*>>, List<MessageHandlerData<MessageHandlerProxy3>>>()
+        return object : ThreeMessageHandlerProvider {
+            override fun getHandlers(messageTypes: List<Class<*>>): List<MessageHandlerData<MessageHandlerProxy3>> {
+                return cache.computeIfAbsent(messageTypes) { x -> filter(provider.getHandlers(x)) }
+            }
+        }
+    }
+
+    fun filter(provider: BatchMessageHandlerProvider): BatchMessageHandlerProvider {
+        val cache = ConcurrentHashMap<Class<*>, List<MessageHandlerData<BatchMessageHandlerProxy>>>()
+        return object : BatchMessageHandlerProvider {
+            override fun getHandlers(messageType: Class<*>): List<MessageHandlerData<BatchMessageHandlerProxy>> {
+                return cache.computeIfAbsent(messageType) { x -> filter(provider.getHandlers(x)) }
+            }
+        }
+    }
+
+    private fun <T : ObjectProxy> filter(handlerData: MessageHandlerData<T>): MessageHandlerData<T> {
+        val result = MessageHandlerData<T>()
+        result.allHandlers = handlerData.allHandlers.filter { x -> accept(x) }
+        result.listHandlers = handlerData.listHandlers.filter { x -> accept(x) }
+        result.queuedHandlers = handlerData.queuedHandlers.filter { x -> accept(x) }
+        return result
+    }
+}
@@ -0,0 +1,41 @@
+package org.enodeframework.messaging.impl
+
+import org.enodeframework.infrastructure.ObjectProxy
+import org.enodeframework.infrastructure.TypeNameProvider
+import org.enodeframework.messaging.BatchMessageHandlerProxy
+import org.enodeframework.messaging.MessageHandlerData
+
+/**
+ * 一组处理器的分发计划，在第一次分发某种消息类型时生成并缓存：并行执行的处理方法、按优先级排队的处理方法组、批量处理方法，
+ * 以及消息处理完成前需要等待的处理器key（单个处理方法为处理器类型名，批量处理方法为处理方法本身）
+ *
+ * @author anruence@gmail.com
+ */
+class MessageDispatchPlan<T : ObjectProxy>(
+    handlerDataList: List<MessageHandlerData<T>>,
+    val batchHandlers: List<BatchMessageHandlerProxy>,
+    typeNameProvider: TypeNameProvider
+) {
+    val listHandlers: List<T> = handlerDataList.flatMap { x -> x.listHandlers }
+
+    val queuedHandlerGroups: List<List<T>> = handlerDataList.map { x -> x.queuedHandlers }.filter { x -> x.isNotEmpty() }
+
+    val handlerKeys: List<Any> = handlerDataList.flatMap { x -> x.allHandlers }
+        .map { x -> typeNameProvider.getTypeName(x.getInnerObject().javaClass) }
+        .distinct() + batchHandlers
+
+    fun isEmpty(): Boolean {
+        return handlerKeys.isEmpty()
+    }
+
+    companion object {
+        /**
+         * 多消息处理器每个MessageHandlerData单独跟踪完成情况，各生成一个计划
+         */
+        fun <T : ObjectProxy> ofEach(
+            handlerDataList: List<MessageHandlerData<T>>, typeNameProvider: TypeNameProvider
+        ): List<MessageDispatchPlan<T>> {
+            return handlerDataList.map { x -> MessageDispatchPlan(listOf(x), emptyList(), typeNameProvider) }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.enodeframework.messaging.impl
+
+import org.enodeframework.messaging.Message
+
+/**
+ * 多个消息的类型组合，去重并按类型名排序；多消息处理器只按类型是否出现来匹配，消息的顺序和重复不影响匹配结果，
+ * 同一组类型的不同排列使用同一个key
+ *
+ * @author anruence@gmail.com
+ */
+class MessageTypeTuple private constructor(private val types: Array<Class<*>>) {
+    private val hashCode = types.contentHashCode()
+
+    fun getTypes(): List<Class<*>> {
+        return types.asList()
+    }
+
+    override fun hashCode(): Int {
+        return hashCode
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (other === this) {
+            return true
+        }
+        if (other !is MessageTypeTuple) {
+            return false
+        }
+        return types.contentEquals(other.types)
+    }
+
+    override fun toString(): String {
+        return types.joinToString("|") { x -> x.name }
+    }
+
+    companion object {
+        private val typeNameComparator: Comparator<Class<*>> = Comparator.comparing { x: Class<*> -> x.name }
+
+        @JvmStatic
+        fun of(messages: List<Message>): MessageTypeTuple {
+            val types = Array<Class<*>>(messages.size) { i -> messages[i].javaClass }
+            types.sortWith(typeNameComparator)
+            var count = 0
+            for (type in types) {
+                if (count == 0 || types[count - 1] != type) {
+                    types[count++] = type
+                }
+            }
+            return MessageTypeTuple(if (count == types.size) types else types.copyOfRange(0, count))
+        }
+    }
+}
@@ -1,22 +1,21 @@
 package org.enodeframework.messaging.impl;
 
-import org.enodeframework.infrastructure.ObjectProxy;
-import org.enodeframework.infrastructure.TypeNameProvider;
 import org.enodeframework.messaging.Message;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 public class MultiMessageDispatching {
     private final Message[] messages;
-    private final ConcurrentMap<String, ObjectProxy> handlerDict;
+    private final Set<Object> handlerKeySet;
     private final RootDispatching rootDispatching;
 
-    public MultiMessageDispatching(List<? extends Message> messages, List<? extends ObjectProxy> handlers, RootDispatching rootDispatching, TypeNameProvider typeNameProvider) {
+    public MultiMessageDispatching(List<? extends Message> messages, Collection<?> handlerKeys, RootDispatching rootDispatching) {
         this.messages = messages.toArray(new Message[0]);
-        handlerDict = new ConcurrentHashMap<>();
-        handlers.forEach(x -> handlerDict.putIfAbsent(typeNameProvider.getTypeName(x.getInnerObject().getClass()), x));
+        handlerKeySet = ConcurrentHashMap.newKeySet(handlerKeys.size());
+        handlerKeySet.addAll(handlerKeys);
         this.rootDispatching = rootDispatching;
         this.rootDispatching.addChildDispatching(this);
     }
@@ -26,8 +25,8 @@ public class MultiMessageDispatching {
     }
 
     public void removeHandledHandler(String handlerTypeName) {
-        if (handlerDict.remove(handlerTypeName) != null) {
-            if (handlerDict.isEmpty()) {
+        if (handlerKeySet.remove(handlerTypeName)) {
+            if (handlerKeySet.isEmpty()) {
                 rootDispatching.onChildDispatchingFinished(this);
             }
         }
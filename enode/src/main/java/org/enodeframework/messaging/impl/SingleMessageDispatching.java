@@ -1,27 +1,38 @@
 package org.enodeframework.messaging.impl;
 
-import org.enodeframework.infrastructure.ObjectProxy;
-import org.enodeframework.infrastructure.TypeNameProvider;
+import org.enodeframework.messaging.BatchMessageHandlerProxy;
 import org.enodeframework.messaging.Message;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class SingleMessageDispatching {
-    private final ConcurrentHashMap<String, ObjectProxy> handlerDict;
+    /**
+     * 单个处理方法按处理器类型名记录，批量处理方法按处理方法本身记录，同一个类中同时订阅单个和批量的处理方法不会合并成一个
+     */
+    private final Set<Object> handlerKeySet;
     private final QueueMessageDispatching queueMessageDispatching;
     private final Message message;
 
-    public SingleMessageDispatching(Message message, QueueMessageDispatching queueMessageDispatching, List<? extends ObjectProxy> handlers, TypeNameProvider typeNameProvider) {
+    public SingleMessageDispatching(Message message, QueueMessageDispatching queueMessageDispatching, Collection<?> handlerKeys) {
         this.message = message;
         this.queueMessageDispatching = queueMessageDispatching;
-        this.handlerDict = new ConcurrentHashMap<>();
-        handlers.forEach(x -> handlerDict.putIfAbsent(typeNameProvider.getTypeName(x.getInnerObject().getClass()), x));
+        this.handlerKeySet = ConcurrentHashMap.newKeySet(handlerKeys.size());
+        this.handlerKeySet.addAll(handlerKeys);
     }
 
     public void removeHandledHandler(String handlerTypeName) {
-        if (handlerDict.remove(handlerTypeName) != null) {
-            if (handlerDict.isEmpty()) {
+        removeHandled(handlerTypeName);
+    }
+
+    public void removeHandledBatchHandler(BatchMessageHandlerProxy handlerProxy) {
+        removeHandled(handlerProxy);
+    }
+
+    private void removeHandled(Object key) {
+        if (handlerKeySet.remove(key)) {
+            if (handlerKeySet.isEmpty()) {
                 queueMessageDispatching.onMessageHandled(message);
             }
         }
@@ -0,0 +1,147 @@
+package org.enodeframework.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全局的处理中消息数量控制，消息从MQ收到时计数加一，处理完成确认时计数减一；
+ * 计数达到maxInFlight时通知所有监听者暂停拉取，降到resumeInFlight以下时恢复拉取，使消费大量积压时内存保持平稳
+ * 暂停和恢复在同一把锁内切换状态并通知监听者，监听者看到的暂停、恢复调用顺序与状态切换顺序一致
+ *
+ * @author anruence@gmail.com
+ */
+public class MessageFlowController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageFlowController.class);
+
+    /**
+     * 不做流控
+     */
+    public static final MessageFlowController UNBOUNDED = new MessageFlowController(0, 0);
+
+    /**
+     * 最多允许处理中的消息数量，小于等于0表示不限制
+     */
+    private final int maxInFlight;
+
+    /**
+     * 暂停后处理中的消息数量降到该值时恢复拉取
+     */
+    private final int resumeInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    private final Object lockObj = new Object();
+
+    private volatile boolean paused;
+
+    private final List<MessageFlowListener> listeners = new CopyOnWriteArrayList<>();
+
+    public MessageFlowController(int maxInFlight) {
+        this(maxInFlight, maxInFlight / 2);
+    }
+
+    public MessageFlowController(int maxInFlight, int resumeInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.resumeInFlight = Math.max(0, Math.min(resumeInFlight, maxInFlight - 1));
+    }
+
+    public void addListener(MessageFlowListener listener) {
+        if (!isBounded()) {
+            return;
+        }
+        synchronized (lockObj) {
+            listeners.add(listener);
+            if (paused) {
+                pauseListener(listener);
+            }
+        }
+    }
+
+    public void removeListener(MessageFlowListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 收到一条消息
+     */
+    public void acquire() {
+        if (!isBounded()) {
+            return;
+        }
+        if (inFlight.incrementAndGet() >= maxInFlight && !paused) {
+            updateState();
+        }
+    }
+
+    /**
+     * 一条消息处理完成
+     */
+    public void release() {
+        if (!isBounded()) {
+            return;
+        }
+        if (inFlight.decrementAndGet() <= resumeInFlight && paused) {
+            updateState();
+        }
+    }
+
+    public boolean isBounded() {
+        return maxInFlight > 0;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * 计数在加减之后到加锁之前可能已经被其他线程改变，所以在锁内按当前计数重新判断是否需要切换；
+     * 切换后再读一次计数，在切换前读到旧状态而跳过的acquire/release不会被漏掉
+     */
+    private void updateState() {
+        synchronized (lockObj) {
+            while (true) {
+                int current = inFlight.get();
+                if (!paused && current >= maxInFlight) {
+                    paused = true;
+                    logger.info("Message flow paused, inFlight: {}, maxInFlight: {}", current, maxInFlight);
+                    listeners.forEach(this::pauseListener);
+                } else if (paused && current <= resumeInFlight) {
+                    paused = false;
+                    logger.info("Message flow resumed, inFlight: {}, resumeInFlight: {}", current, resumeInFlight);
+                    listeners.forEach(this::resumeListener);
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void pauseListener(MessageFlowListener listener) {
+        try {
+            listener.pause();
+        } catch (Exception ex) {
+            logger.error("Pause message flow listener failed, listener: {}", listener, ex);
+        }
+    }
+
+    private void resumeListener(MessageFlowListener listener) {
+        try {
+            listener.resume();
+        } catch (Exception ex) {
+            logger.error("Resume message flow listener failed, listener: {}", listener, ex);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package org.enodeframework.queue;
+
+/**
+ * 消息流控的监听者，一般由MQ的消费端实现，在处理中的消息过多时暂停拉取，降下来后恢复拉取
+ *
+ * @author anruence@gmail.com
+ */
+public interface MessageFlowListener {
+    /**
+     * 暂停从MQ拉取消息
+     */
+    void pause();
+
+    /**
+     * 恢复从MQ拉取消息
+     */
+    void resume();
+}
\ No newline at end of file
@@ -33,6 +33,14 @@ public class QueueMessage implements Serializable {
      * {@link MessageTypeCode}
      */
     private Character type;
+    /**
+     * 消息所在的MQ分区（kafka的partition，rocketmq的queue），由消费端填充
+     */
+    private String partition;
+    /**
+     * 消息在分区中的位点，由消费端填充，-1表示未知
+     */
+    private long offset = -1;
 
     public String getBody() {
         return body;
@@ -86,6 +94,22 @@ public class QueueMessage implements Serializable {
         this.type = type;
     }
 
+    public String getPartition() {
+        return partition;
+    }
+
+    public void setPartition(String partition) {
+        this.partition = partition;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -95,6 +119,8 @@ public class QueueMessage implements Serializable {
             .add("routeKey", routeKey)
             .add("key", key)
             .add("type", type)
+            .add("partition", partition)
+            .add("offset", offset)
             .toString();
     }
 }
@@ -110,5 +110,15 @@ public class DefaultDomainEventMessageHandler implements MessageHandler {
             domainEventHandledMessage.setCommandResult(commandResult);
             return eventConsumer.getSendReplyService().sendEventReply(domainEventHandledMessage, address);
         }
+
+        @Override
+        public String getPartition() {
+            return queueMessage.getPartition();
+        }
+
+        @Override
+        public long getOffset() {
+            return queueMessage.getOffset();
+        }
     }
 }
@@ -0,0 +1,255 @@
+package org.enodeframework.file
+
+import org.enodeframework.common.function.Action2
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.Buffer
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.zip.CRC32
+
+/**
+ * 单个段文件内的事件索引，按(aggregateRootId, version)和(aggregateRootId, commandId)查找记录在段内的位置
+ * limit为段内可见的位置上限，位置大于等于limit的记录还未落盘，查找时视为不存在
+ *
+ * @author anruence@gmail.com
+ */
+internal interface EventIndex {
+    /**
+     * 段内该聚合根的最大版本号，不存在时返回0
+     */
+    fun lastVersion(aggregateRootId: String, limit: Int): Int
+
+    /**
+     * 指定版本的记录在段内的位置，不存在时返回-1
+     */
+    fun findPosition(aggregateRootId: String, version: Int, limit: Int): Int
+
+    /**
+     * 命令产生的事件流的版本号，不存在时返回0
+     */
+    fun findVersion(aggregateRootId: String, commandId: String, limit: Int): Int
+
+    /**
+     * 按版本号顺序遍历版本区间内的记录，回调参数为版本号和段内位置
+     */
+    fun forEach(aggregateRootId: String, minVersion: Int, maxVersion: Int, limit: Int, action: Action2<Int, Int>)
+}
+
+internal class IndexEntry(val aggregateRootId: String, val version: Int, val commandId: String, val position: Int)
+
+/**
+ * 活动段的内存索引，段封存后写成索引文件并由MappedEventIndex替换，所以占用的内存不会超过一个段的记录数
+ */
+internal class MemoryEventIndex : EventIndex {
+    private val entries = ArrayList<IndexEntry>()
+    private val aggregateDict = HashMap<String, AggregateEntries>()
+
+    @Synchronized
+    fun add(entry: IndexEntry) {
+        val aggregateEntries = aggregateDict.computeIfAbsent(entry.aggregateRootId) { AggregateEntries() }
+        aggregateEntries.versions.add(entry)
+        aggregateEntries.commandDict[entry.commandId] = entry
+        entries.add(entry)
+    }
+
+    @Synchronized
+    fun entries(): List<IndexEntry> {
+        return ArrayList(entries)
+    }
+
+    @Synchronized
+    override fun lastVersion(aggregateRootId: String, limit: Int): Int {
+        val versions = aggregateDict[aggregateRootId]?.versions ?: return 0
+        return versions.lastOrNull { x -> x.position < limit }?.version ?: 0
+    }
+
+    @Synchronized
+    override fun findPosition(aggregateRootId: String, version: Int, limit: Int): Int {
+        val versions = aggregateDict[aggregateRootId]?.versions ?: return -1
+        //同一个聚合根在段内的版本号是连续的，可以直接按下标定位
+        val entry = versions.getOrNull(version - versions[0].version) ?: return -1
+        return if (entry.position < limit) entry.position else -1
+    }
+
+    @Synchronized
+    override fun findVersion(aggregateRootId: String, commandId: String, limit: Int): Int {
+        val entry = aggregateDict[aggregateRootId]?.commandDict?.get(commandId) ?: return 0
+        return if (entry.position < limit) entry.version else 0
+    }
+
+    override fun forEach(aggregateRootId: String, minVersion: Int, maxVersion: Int, limit: Int, action: Action2<Int, Int>) {
+        val matched = synchronized(this) {
+            aggregateDict[aggregateRootId]?.versions?.filter { x ->
+                x.version in minVersion..maxVersion && x.position < limit
+            } ?: emptyList()
+        }
+        matched.forEach { x -> action.apply(x.version, x.position) }
+    }
+
+    class AggregateEntries {
+        val versions = ArrayList<IndexEntry>()
+        val commandDict = HashMap<String, IndexEntry>()
+    }
+}
+
+/**
+ * 封存段的索引文件，以只读方式内存映射，由操作系统按需换入换出，不占用堆内存
+ * 文件格式：[int magic][int endPosition][int count][int versionOrderOffset][int commandOrderOffset]
+ * {[aggregateRootId][int version][commandId][int position]}[int offset * count][int offset * count][long crc32]
+ * 两个偏移数组分别按(aggregateRootId, version)和(aggregateRootId, commandId)排序，查找时二分
+ */
+internal class MappedEventIndex private constructor(
+    private val buffer: ByteBuffer,
+    val endPosition: Int,
+    private val count: Int,
+    private val versionOrderOffset: Int,
+    private val commandOrderOffset: Int
+) : EventIndex {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(MappedEventIndex::class.java)
+        private const val INDEX_MAGIC = 0x454E4932
+        private const val HEADER_SIZE = 20
+
+        fun write(indexFile: File, endPosition: Int, entries: List<IndexEntry>) {
+            val bytes = ByteArrayOutputStream()
+            val output = DataOutputStream(bytes)
+            val offsets = HashMap<IndexEntry, Int>(entries.size)
+            output.writeInt(INDEX_MAGIC)
+            output.writeInt(endPosition)
+            output.writeInt(entries.size)
+            //两个偏移数组的位置在写完记录后才能确定，先占位
+            output.writeInt(0)
+            output.writeInt(0)
+            for (entry in entries) {
+                offsets[entry] = output.size()
+                FileRecords.writeString(output, entry.aggregateRootId)
+                output.writeInt(entry.version)
+                FileRecords.writeString(output, entry.commandId)
+                output.writeInt(entry.position)
+            }
+            val versionOrderOffset = output.size()
+            entries.sortedWith(compareBy<IndexEntry> { x -> x.aggregateRootId }.thenBy { x -> x.version })
+                .forEach { x -> output.writeInt(offsets[x]!!) }
+            val commandOrderOffset = output.size()
+            entries.sortedWith(compareBy<IndexEntry> { x -> x.aggregateRootId }.thenBy { x -> x.commandId })
+                .forEach { x -> output.writeInt(offsets[x]!!) }
+            output.flush()
+            val content = ByteBuffer.wrap(bytes.toByteArray())
+            content.putInt(12, versionOrderOffset)
+            content.putInt(16, commandOrderOffset)
+            val crc = CRC32()
+            crc.update(content.array())
+            val tempFile = File(indexFile.parentFile, indexFile.name + ".tmp")
+            RandomAccessFile(tempFile, "rw").use { file ->
+                file.setLength(0)
+                file.write(content.array())
+                file.writeLong(crc.value)
+                file.fd.sync()
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        }
+
+        /**
+         * 打开并校验索引文件，文件不存在或已损坏时返回null，由调用方重新扫描段文件
+         */
+        fun open(indexFile: File): MappedEventIndex? {
+            if (!indexFile.exists() || indexFile.length() < HEADER_SIZE + 8) {
+                return null
+            }
+            try {
+                val buffer = RandomAccessFile(indexFile, "r").use { file ->
+                    file.channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length())
+                }
+                val size = buffer.capacity()
+                val content = buffer.duplicate()
+                (content as Buffer).limit(size - 8)
+                val crc = CRC32()
+                crc.update(content)
+                if (buffer.getLong(size - 8) != crc.value || buffer.getInt(0) != INDEX_MAGIC) {
+                    logger.warn("Segment index is corrupted, rebuild from segment. file: {}", indexFile)
+                    return null
+                }
+                return MappedEventIndex(buffer, buffer.getInt(4), buffer.getInt(8), buffer.getInt(12), buffer.getInt(16))
+            } catch (ex: Exception) {
+                logger.warn("Load segment index failed, rebuild from segment. file: {}", indexFile, ex)
+                return null
+            }
+        }
+    }
+
+    override fun lastVersion(aggregateRootId: String, limit: Int): Int {
+        val index = lowerBound(versionOrderOffset) { x -> compareVersion(x, aggregateRootId, Int.MAX_VALUE) }
+        if (index == 0) {
+            return 0
+        }
+        val entry = entryAt(versionOrderOffset, index - 1)
+        return if (entry.aggregateRootId == aggregateRootId) entry.version else 0
+    }
+
+    override fun findPosition(aggregateRootId: String, version: Int, limit: Int): Int {
+        val index = lowerBound(versionOrderOffset) { x -> compareVersion(x, aggregateRootId, version) }
+        if (index == count) {
+            return -1
+        }
+        val entry = entryAt(versionOrderOffset, index)
+        return if (entry.aggregateRootId == aggregateRootId && entry.version == version) entry.position else -1
+    }
+
+    override fun findVersion(aggregateRootId: String, commandId: String, limit: Int): Int {
+        val index = lowerBound(commandOrderOffset) { x ->
+            compareValuesBy(x, IndexEntry(aggregateRootId, 0, commandId, 0), { e -> e.aggregateRootId }, { e -> e.commandId })
+        }
+        if (index == count) {
+            return 0
+        }
+        val entry = entryAt(commandOrderOffset, index)
+        return if (entry.aggregateRootId == aggregateRootId && entry.commandId == commandId) entry.version else 0
+    }
+
+    override fun forEach(aggregateRootId: String, minVersion: Int, maxVersion: Int, limit: Int, action: Action2<Int, Int>) {
+        var index = lowerBound(versionOrderOffset) { x -> compareVersion(x, aggregateRootId, minVersion) }
+        while (index < count) {
+            val entry = entryAt(versionOrderOffset, index)
+            if (entry.aggregateRootId != aggregateRootId || entry.version > maxVersion) {
+                return
+            }
+            action.apply(entry.version, entry.position)
+            index++
+        }
+    }
+
+    private fun compareVersion(entry: IndexEntry, aggregateRootId: String, version: Int): Int {
+        val result = entry.aggregateRootId.compareTo(aggregateRootId)
+        return if (result != 0) result else entry.version.compareTo(version)
+    }
+
+    /**
+     * 返回第一个不小于查找键的下标，compare返回记录与查找键的比较结果
+     */
+    private fun lowerBound(orderOffset: Int, compare: (IndexEntry) -> Int): Int {
+        var low = 0
+        var high = count
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (compare(entryAt(orderOffset, mid)) < 0) {
+                low = mid + 1
+            } else {
+                high = mid
+            }
+        }
+        return low
+    }
+
+    private fun entryAt(orderOffset: Int, index: Int): IndexEntry {
+        val record = buffer.duplicate()
+        (record as Buffer).position(buffer.getInt(orderOffset + index * 4))
+        return IndexEntry(FileRecords.readString(record), record.int, FileRecords.readString(record), record.int)
+    }
+}
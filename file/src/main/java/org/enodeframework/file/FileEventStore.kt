@@ -0,0 +1,377 @@
+package org.enodeframework.file
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.collect.Maps
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import org.enodeframework.common.exception.EventStoreException
+import org.enodeframework.common.function.Action1
+import org.enodeframework.common.serializing.SerializeService
+import org.enodeframework.eventing.DomainEventStream
+import org.enodeframework.eventing.EventAppendResult
+import org.enodeframework.eventing.EventSerializer
+import org.enodeframework.eventing.EventStore
+import org.enodeframework.eventing.EventStreamPage
+import org.enodeframework.eventing.EventStreamReader
+import org.enodeframework.file.log.FileLog
+import org.enodeframework.file.log.FileSegment
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.nio.ByteBuffer
+import java.util.Date
+import java.util.TreeMap
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * 基于内存映射段文件的嵌入式EventStore，不依赖外部数据库
+ * 事件流顺序追加到段文件，每个段有一份按(aggregateRootId, version)和(aggregateRootId, commandId)查找的索引：
+ * 活动段的索引在内存中，段文件封存后索引写入同名的.idx文件并改为内存映射读取，重启时只需扫描最后一个段
+ * 索引项在写入时即登记，用于后续追加的版本号和命令ID检查；但对读取只暴露已落盘的记录，未落盘的事件流不会被读到
+ *
+ * @author anruence@gmail.com
+ */
+open class FileEventStore(
+    private val options: FileStoreOptions,
+    private val eventSerializer: EventSerializer,
+    private val serializeService: SerializeService
+) : EventStore, EventStreamReader {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(FileEventStore::class.java)
+        private const val INDEX_SUFFIX = ".idx"
+        private const val LOCK_STRIPES = 256
+    }
+
+    /**
+     * 段号到段索引，活动段和索引文件还未写完的封存段为MemoryEventIndex，其余为MappedEventIndex
+     */
+    private val segmentIndexDict = ConcurrentSkipListMap<Int, EventIndex>()
+
+    /**
+     * 聚合根最新版本号的有界缓存，包含已写入但还未落盘的版本，只用于追加时的版本检查，未命中时从索引中查找
+     */
+    private val versionCache: Cache<String, Int> = CacheBuilder.newBuilder()
+        .maximumSize(options.indexCacheSize.toLong())
+        .build()
+    private val aggregateLocks = Array(LOCK_STRIPES) { Any() }
+    private val appendLockObj = Any()
+    private val log = FileLog(
+        "FileEventStore",
+        File(options.storePath, "events"),
+        options.segmentSize,
+        options.flushIntervalMilliseconds
+    )
+    private val indexWriter: ExecutorService = Executors.newSingleThreadExecutor(
+        ThreadFactoryBuilder().setDaemon(true).setNameFormat("FileEventStoreIndexWriter-%d").build()
+    )
+
+    fun start() {
+        log.segmentSealedListener = Action1 { segment -> onSegmentSealed(segment) }
+        log.open { segment, last -> recoverSegment(segment, last) }
+        logger.info("FileEventStore started, segmentCount: {}", segmentIndexDict.size)
+    }
+
+    fun stop() {
+        log.stop()
+        indexWriter.shutdown()
+        //等待已封存段的索引文件写完，避免下次启动时重新扫描
+        indexWriter.awaitTermination(10, TimeUnit.SECONDS)
+    }
+
+    override fun batchAppendAsync(eventStreams: List<DomainEventStream>): CompletableFuture<EventAppendResult> {
+        val eventStreamDict: Map<String, List<DomainEventStream>> = eventStreams.distinct()
+            .groupBy { obj: DomainEventStream -> obj.aggregateRootId }
+        val eventAppendResult = EventAppendResult()
+        var lastLocation = -1L
+        try {
+            for ((key, value) in eventStreamDict) {
+                lastLocation = maxOf(lastLocation, batchAppend(key, value, eventAppendResult))
+            }
+        } catch (ex: Exception) {
+            logger.error("Batch append event has exception.", ex)
+            val future = CompletableFuture<EventAppendResult>()
+            future.completeExceptionally(EventStoreException(ex))
+            return future
+        }
+        if (lastLocation < 0) {
+            return CompletableFuture.completedFuture(eventAppendResult)
+        }
+        //最后一条记录落盘即代表本批次全部落盘，落盘前这些记录对读取不可见
+        return log.flushAsync(lastLocation).thenApply { eventAppendResult }
+    }
+
+    override fun findAsync(aggregateRootId: String, version: Int): CompletableFuture<DomainEventStream?> {
+        return supply {
+            for ((segmentId, index) in segmentIndexDict.descendingMap()) {
+                val position = index.findPosition(aggregateRootId, version, visibleLimit(segmentId))
+                if (position >= 0) {
+                    return@supply read(FileLog.toLocation(segmentId, position))
+                }
+            }
+            null
+        }
+    }
+
+    override fun findAsync(aggregateRootId: String, commandId: String): CompletableFuture<DomainEventStream?> {
+        return supply {
+            val location = findLocation(aggregateRootId, commandId)
+            if (location < 0) null else read(location)
+        }
+    }
+
+    override fun findByCommandIdsAsync(
+        aggregateRootId: String,
+        commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        return supply {
+            commandIds.distinct().map { commandId -> findLocation(aggregateRootId, commandId) }
+                .filter { location -> location >= 0 }
+                .map { location -> read(location) }
+                .sortedBy { x -> x.version }
+        }
+    }
+
+    override fun queryAggregateEventsAsync(
+        aggregateRootId: String,
+        aggregateRootTypeName: String,
+        minVersion: Int,
+        maxVersion: Int
+    ): CompletableFuture<List<DomainEventStream>> {
+        return supply {
+            val min = minVersion.coerceAtLeast(1)
+            val locations = TreeMap<Int, Long>()
+            //版本号随段号递增，从最新的段往前找，找到最小版本后更早的段不会再有区间内的记录
+            for ((segmentId, index) in segmentIndexDict.descendingMap()) {
+                index.forEach(aggregateRootId, min, maxVersion, visibleLimit(segmentId)) { version, position ->
+                    locations[version] = FileLog.toLocation(segmentId, position)
+                }
+                if (locations.containsKey(min)) {
+                    break
+                }
+            }
+            locations.values.map { location -> read(location) }
+        }
+    }
+
+    /**
+     * checkpoint为事件流记录在日志中的位置，按位置顺序读取即为写入顺序
+     */
+    override fun readAllAsync(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        return supply {
+            val eventStreams = ArrayList<DomainEventStream>()
+            var lastLocation = checkpoint.toLongOrNull() ?: -1L
+            log.readAfter(lastLocation, maxCount) { location, record ->
+                eventStreams.add(decode(record))
+                lastLocation = location
+            }
+            EventStreamPage(eventStreams, if (eventStreams.isEmpty()) checkpoint else lastLocation.toString())
+        }
+    }
+
+    private fun batchAppend(
+        aggregateRootId: String,
+        eventStreamList: List<DomainEventStream>,
+        eventAppendResult: EventAppendResult
+    ): Long {
+        synchronized(aggregateLocks[Math.floorMod(aggregateRootId.hashCode(), LOCK_STRIPES)]) {
+            val currentVersion = versionCache.getIfPresent(aggregateRootId) ?: lastVersion(aggregateRootId)
+            val firstEventStream = eventStreamList.firstOrNull()
+            //检查提交过来的第一个事件的版本号是否是当前聚合根的当前版本号的下一个版本号
+            if (firstEventStream != null) {
+                if (firstEventStream.version != currentVersion + 1) {
+                    eventAppendResult.addDuplicateEventAggregateRootId(aggregateRootId)
+                    return -1
+                }
+            }
+            //检查提交过来的事件本身是否满足版本号的递增关系
+            for (i in 0 until eventStreamList.size - 1) {
+                if (eventStreamList[i + 1].version != eventStreamList[i].version + 1) {
+                    eventAppendResult.addDuplicateEventAggregateRootId(aggregateRootId)
+                    return -1
+                }
+            }
+            //检查重复处理的命令ID
+            val duplicateCommandIds = eventStreamList.map { x -> x.commandId }
+                .filter { commandId -> findVersion(aggregateRootId, commandId) > 0 }
+            if (duplicateCommandIds.isNotEmpty()) {
+                eventAppendResult.addDuplicateCommandIds(aggregateRootId, duplicateCommandIds)
+                return -1
+            }
+            var location = -1L
+            for (eventStream in eventStreamList) {
+                location = appendRecord(eventStream)
+            }
+            versionCache.put(aggregateRootId, eventStreamList.last().version)
+            eventAppendResult.addSuccessAggregateRootId(aggregateRootId)
+            return location
+        }
+    }
+
+    private fun appendRecord(eventStream: DomainEventStream): Long {
+        val record = encode(eventStream)
+        //写入和登记段内索引需要原子完成，保证段封存时拿到的是完整的索引
+        synchronized(appendLockObj) {
+            val location = log.append(record)
+            val index = segmentIndexDict.computeIfAbsent(FileLog.segmentId(location)) { MemoryEventIndex() }
+            (index as MemoryEventIndex).add(
+                IndexEntry(eventStream.aggregateRootId, eventStream.version, eventStream.commandId, FileLog.position(location))
+            )
+            return location
+        }
+    }
+
+    /**
+     * 段内对读取可见的位置上限，只有已落盘的记录可见；封存段在滚动时已经同步落盘
+     */
+    private fun visibleLimit(segmentId: Int): Int {
+        return log.getFlushedPosition(segmentId)
+    }
+
+    /**
+     * 聚合根的最新版本号，包含还未落盘的记录，用于追加和恢复时的版本检查
+     */
+    private fun lastVersion(aggregateRootId: String): Int {
+        for (index in segmentIndexDict.descendingMap().values) {
+            val version = index.lastVersion(aggregateRootId, Int.MAX_VALUE)
+            if (version > 0) {
+                return version
+            }
+        }
+        return 0
+    }
+
+    /**
+     * 命令产生的事件流的版本号，包含还未落盘的记录，用于追加时的重复命令检查
+     */
+    private fun findVersion(aggregateRootId: String, commandId: String): Int {
+        for (index in segmentIndexDict.descendingMap().values) {
+            val version = index.findVersion(aggregateRootId, commandId, Int.MAX_VALUE)
+            if (version > 0) {
+                return version
+            }
+        }
+        return 0
+    }
+
+    private fun findLocation(aggregateRootId: String, commandId: String): Long {
+        for ((segmentId, index) in segmentIndexDict.descendingMap()) {
+            val limit = visibleLimit(segmentId)
+            val version = index.findVersion(aggregateRootId, commandId, limit)
+            if (version > 0) {
+                return FileLog.toLocation(segmentId, index.findPosition(aggregateRootId, version, limit))
+            }
+        }
+        return -1
+    }
+
+    private fun encode(eventStream: DomainEventStream): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        val output = DataOutputStream(bytes)
+        FileRecords.writeString(output, eventStream.aggregateRootId)
+        FileRecords.writeString(output, eventStream.aggregateRootTypeName)
+        FileRecords.writeString(output, eventStream.commandId)
+        output.writeInt(eventStream.version)
+        output.writeLong(eventStream.timestamp.time)
+        FileRecords.writeString(output, serializeService.serialize(eventSerializer.serialize(eventStream.events)))
+        output.flush()
+        return bytes.toByteArray()
+    }
+
+    private fun read(location: Long): DomainEventStream {
+        return decode(log.read(location))
+    }
+
+    private fun decode(buffer: ByteBuffer): DomainEventStream {
+        val aggregateRootId = FileRecords.readString(buffer)
+        val aggregateRootTypeName = FileRecords.readString(buffer)
+        val commandId = FileRecords.readString(buffer)
+        buffer.int
+        val timestamp = Date(buffer.long)
+        val events = FileRecords.readString(buffer)
+        return DomainEventStream(
+            commandId,
+            aggregateRootId,
+            aggregateRootTypeName,
+            timestamp,
+            eventSerializer.deserialize(
+                serializeService.deserialize(events, MutableMap::class.java) as MutableMap<String, String>
+            ),
+            Maps.newHashMap()
+        )
+    }
+
+    private fun <T> supply(action: () -> T): CompletableFuture<T> {
+        val future = CompletableFuture<T>()
+        try {
+            future.complete(action())
+        } catch (ex: Exception) {
+            logger.error("Read event has exception.", ex)
+            future.completeExceptionally(EventStoreException(ex))
+        }
+        return future
+    }
+
+    private fun recoverSegment(segment: FileSegment, last: Boolean) {
+        val indexFile = indexFileOf(segment)
+        if (!last) {
+            val mappedIndex = MappedEventIndex.open(indexFile)
+            if (mappedIndex != null) {
+                segment.markSealed(mappedIndex.endPosition)
+                segmentIndexDict[segment.segmentId] = mappedIndex
+                return
+            }
+        }
+        val index = MemoryEventIndex()
+        segmentIndexDict[segment.segmentId] = index
+        segment.recover { position, record ->
+            val aggregateRootId = FileRecords.readString(record)
+            FileRecords.readString(record)
+            val commandId = FileRecords.readString(record)
+            val version = record.int
+            val currentVersion = lastVersion(aggregateRootId)
+            if (version != currentVersion + 1) {
+                logger.warn(
+                    "Skip out of order event stream, aggregateRootId: {}, version: {}, currentVersion: {}",
+                    aggregateRootId, version, currentVersion
+                )
+                return@recover
+            }
+            index.add(IndexEntry(aggregateRootId, version, commandId, position))
+        }
+        if (!last) {
+            writeIndex(segment.segmentId, indexFile, segment.writePosition, index.entries())
+        }
+    }
+
+    private fun onSegmentSealed(segment: FileSegment) {
+        val index = segmentIndexDict[segment.segmentId] as? MemoryEventIndex ?: return
+        val endPosition = segment.writePosition
+        val indexFile = indexFileOf(segment)
+        val entries = index.entries()
+        indexWriter.execute { writeIndex(segment.segmentId, indexFile, endPosition, entries) }
+    }
+
+    private fun indexFileOf(segment: FileSegment): File {
+        return File(segment.file.parentFile, segment.file.name.removeSuffix(FileLog.SEGMENT_SUFFIX) + INDEX_SUFFIX)
+    }
+
+    /**
+     * 写入索引文件并切换为内存映射读取，之后该段的内存索引即可释放
+     */
+    private fun writeIndex(segmentId: Int, indexFile: File, endPosition: Int, entries: List<IndexEntry>) {
+        try {
+            MappedEventIndex.write(indexFile, endPosition, entries)
+            val mappedIndex = MappedEventIndex.open(indexFile) ?: return
+            segmentIndexDict[segmentId] = mappedIndex
+        } catch (ex: Exception) {
+            //写入失败时继续使用内存索引，下次启动会重新扫描段文件
+            logger.warn("Write segment index failed, file: {}", indexFile, ex)
+        }
+    }
+}
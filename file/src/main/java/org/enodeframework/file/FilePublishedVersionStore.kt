@@ -0,0 +1,174 @@
+package org.enodeframework.file
+
+import org.enodeframework.common.exception.PublishedVersionStoreException
+import org.enodeframework.common.function.Action
+import org.enodeframework.eventing.AggregatePublishedVersion
+import org.enodeframework.eventing.PublishedVersionStore
+import org.enodeframework.file.log.FileLog
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.util.concurrent.CompletableFuture
+
+/**
+ * 基于文件日志的PublishedVersionStore，每次更新追加一条记录，内存中只保留每个聚合根的最新版本
+ * 封存的段文件超过阈值后，由刷盘线程在后台把最新版本写成快照并删除旧的段文件，不阻塞更新
+ *
+ * @author anruence@gmail.com
+ */
+open class FilePublishedVersionStore(private val options: FileStoreOptions) : PublishedVersionStore {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(FilePublishedVersionStore::class.java)
+    }
+
+    private val lockObj = Any()
+    private val versionDict = HashMap<VersionKey, VersionEntry>()
+    private var appendedCountSinceCompact = 0
+    private val log = FileLog(
+        "FilePublishedVersionStore",
+        File(options.storePath, "published"),
+        options.segmentSize,
+        options.flushIntervalMilliseconds
+    )
+
+    fun start() {
+        log.maintenanceAction = Action { compactIfNeeded() }
+        log.open { segment, _ ->
+            segment.recover { _, record ->
+                val entry = VersionEntry(
+                    FileRecords.readString(record),
+                    FileRecords.readString(record),
+                    FileRecords.readString(record),
+                    record.int
+                )
+                val current = versionDict[entry.key()]
+                if (current == null || current.version < entry.version) {
+                    versionDict[entry.key()] = entry
+                }
+            }
+        }
+        logger.info("FilePublishedVersionStore started, aggregateCount: {}", versionDict.size)
+    }
+
+    fun stop() {
+        log.stop()
+    }
+
+    override fun updatePublishedVersionAsync(
+        processorName: String,
+        aggregateRootTypeName: String,
+        aggregateRootId: String,
+        publishedVersion: Int
+    ): CompletableFuture<Int> {
+        return appendAsync(listOf(VersionEntry(processorName, aggregateRootTypeName, aggregateRootId, publishedVersion)))
+    }
+
+    override fun batchUpdatePublishedVersionAsync(
+        processorName: String,
+        publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        return appendAsync(publishedVersions.map { x ->
+            VersionEntry(processorName, x.aggregateRootTypeName, x.aggregateRootId, x.version)
+        })
+    }
+
+    private fun appendAsync(entries: List<VersionEntry>): CompletableFuture<Int> {
+        var location = -1L
+        try {
+            synchronized(lockObj) {
+                for (entry in entries) {
+                    val current = versionDict[entry.key()]
+                    //已发布版本只能前进，重复或过期的更新直接忽略
+                    if (current != null && current.version >= entry.version) {
+                        continue
+                    }
+                    location = log.append(encode(entry))
+                    versionDict[entry.key()] = entry
+                    appendedCountSinceCompact++
+                }
+            }
+        } catch (ex: Exception) {
+            logger.error("Update published version has exception, count: {}", entries.size, ex)
+            val future = CompletableFuture<Int>()
+            future.completeExceptionally(PublishedVersionStoreException(ex))
+            return future
+        }
+        if (location < 0) {
+            return CompletableFuture.completedFuture(entries.size)
+        }
+        return log.flushAsync(location).thenApply { entries.size }
+    }
+
+    /**
+     * 在刷盘线程中执行：持锁滚动到新段并拷贝最新版本，之前的记录都在旧段中且已包含在快照里；
+     * 快照写入新段并落盘后删除旧段，恢复时每个聚合根取最大版本，所以快照和之后的更新交错写入也不影响结果
+     */
+    private fun compactIfNeeded() {
+        val boundarySegmentId: Int
+        val snapshot: List<VersionEntry>
+        synchronized(lockObj) {
+            if (log.getSealedSegmentCount() < options.compactSegmentCount || appendedCountSinceCompact <= versionDict.size) {
+                return
+            }
+            boundarySegmentId = log.rollSegment()
+            snapshot = versionDict.values.toList()
+            appendedCountSinceCompact = 0
+        }
+        snapshot.forEach { entry -> log.append(encode(entry)) }
+        log.flush()
+        log.deleteSegmentsBefore(boundarySegmentId)
+        logger.info("FilePublishedVersionStore compacted, snapshotSize: {}", snapshot.size)
+    }
+
+    override fun getPublishedVersionAsync(
+        processorName: String,
+        aggregateRootTypeName: String,
+        aggregateRootId: String
+    ): CompletableFuture<Int> {
+        synchronized(lockObj) {
+            val version = versionDict[VersionKey(processorName, aggregateRootId)]?.version ?: 0
+            return CompletableFuture.completedFuture(version)
+        }
+    }
+
+    override fun batchGetPublishedVersionAsync(
+        processorName: String,
+        aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        synchronized(lockObj) {
+            val versions = aggregateRootIds.distinct().associateWith { aggregateRootId ->
+                versionDict[VersionKey(processorName, aggregateRootId)]?.version ?: 0
+            }
+            return CompletableFuture.completedFuture(versions)
+        }
+    }
+
+    private fun encode(entry: VersionEntry): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        val output = DataOutputStream(bytes)
+        FileRecords.writeString(output, entry.processorName)
+        FileRecords.writeString(output, entry.aggregateRootTypeName)
+        FileRecords.writeString(output, entry.aggregateRootId)
+        output.writeInt(entry.version)
+        output.flush()
+        return bytes.toByteArray()
+    }
+
+    class VersionEntry(
+        val processorName: String,
+        val aggregateRootTypeName: String,
+        val aggregateRootId: String,
+        val version: Int
+    ) {
+        fun key(): VersionKey {
+            return VersionKey(processorName, aggregateRootId)
+        }
+    }
+
+    /**
+     * 按处理器名称和聚合根ID组合的键，避免直接拼接字符串时不同的组合得到相同的键
+     */
+    data class VersionKey(val processorName: String, val aggregateRootId: String)
+}
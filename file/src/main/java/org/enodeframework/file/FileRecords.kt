@@ -0,0 +1,25 @@
+package org.enodeframework.file
+
+import java.io.DataOutputStream
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+
+/**
+ * 文件记录的字符串编解码，格式为：[int length][utf8 bytes]
+ *
+ * @author anruence@gmail.com
+ */
+internal object FileRecords {
+
+    fun writeString(output: DataOutputStream, value: String) {
+        val bytes = value.toByteArray(StandardCharsets.UTF_8)
+        output.writeInt(bytes.size)
+        output.write(bytes)
+    }
+
+    fun readString(buffer: ByteBuffer): String {
+        val bytes = ByteArray(buffer.int)
+        buffer.get(bytes)
+        return String(bytes, StandardCharsets.UTF_8)
+    }
+}
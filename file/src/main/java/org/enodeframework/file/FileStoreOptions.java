@@ -0,0 +1,70 @@
+package org.enodeframework.file;
+
+/**
+ * 文件存储的配置
+ *
+ * @author anruence@gmail.com
+ */
+public class FileStoreOptions {
+    /**
+     * 存储根目录，事件写入events子目录，已发布版本写入published子目录；默认为：./enode-store
+     */
+    private String storePath = "./enode-store";
+    /**
+     * 单个内存映射段文件的大小，写满后滚动到新的段文件；默认为：64MB
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+    /**
+     * 刷盘线程在没有刷盘请求时的最长等待时间，等待期间到达的写入会合并成一次刷盘；默认为：1ms
+     */
+    private int flushIntervalMilliseconds = 1;
+    /**
+     * 已发布版本日志的封存段数量达到该值时触发压缩，只保留每个聚合根的最新版本；默认为：4
+     * 事件日志是事件的唯一存储，不会压缩也不会删除段文件
+     */
+    private int compactSegmentCount = 4;
+    /**
+     * 事件存储中缓存的聚合根最新版本号的最大数量，未命中时从段索引中查找；默认为：100000
+     */
+    private int indexCacheSize = 100000;
+
+    public String getStorePath() {
+        return storePath;
+    }
+
+    public void setStorePath(String storePath) {
+        this.storePath = storePath;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getFlushIntervalMilliseconds() {
+        return flushIntervalMilliseconds;
+    }
+
+    public void setFlushIntervalMilliseconds(int flushIntervalMilliseconds) {
+        this.flushIntervalMilliseconds = flushIntervalMilliseconds;
+    }
+
+    public int getCompactSegmentCount() {
+        return compactSegmentCount;
+    }
+
+    public void setCompactSegmentCount(int compactSegmentCount) {
+        this.compactSegmentCount = compactSegmentCount;
+    }
+
+    public int getIndexCacheSize() {
+        return indexCacheSize;
+    }
+
+    public void setIndexCacheSize(int indexCacheSize) {
+        this.indexCacheSize = indexCacheSize;
+    }
+}
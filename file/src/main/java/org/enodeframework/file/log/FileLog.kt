@@ -0,0 +1,298 @@
+package org.enodeframework.file.log
+
+import org.enodeframework.common.exception.IORuntimeException
+import org.enodeframework.common.function.Action
+import org.enodeframework.common.function.Action1
+import org.enodeframework.common.function.Action2
+import org.enodeframework.common.scheduling.Worker
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.nio.ByteBuffer
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+
+/**
+ * 由多个内存映射段文件组成的只追加日志，记录位置为：segmentId << 32 | position
+ * 写入只落到page cache，由单独的刷盘线程合并多个写入请求后统一force，实现组提交
+ * 日志本身不会删除段文件，由使用方通过maintenanceAction在刷盘线程中压缩或删除
+ *
+ * @author anruence@gmail.com
+ */
+class FileLog(
+    private val name: String,
+    private val directory: File,
+    private val segmentSize: Int,
+    private val flushIntervalMilliseconds: Int
+) {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(FileLog::class.java)
+        const val SEGMENT_SUFFIX = ".seg"
+
+        fun toLocation(segmentId: Int, position: Int): Long {
+            return (segmentId.toLong() shl 32) or position.toLong()
+        }
+
+        fun segmentId(location: Long): Int {
+            return (location ushr 32).toInt()
+        }
+
+        fun position(location: Long): Int {
+            return location.toInt()
+        }
+    }
+
+    private val lockObj = Any()
+    private val flushLock = ReentrantLock()
+    private val flushCondition = flushLock.newCondition()
+    private val segmentDict = ConcurrentSkipListMap<Int, FileSegment>()
+    private val flushRequestQueue = ConcurrentLinkedQueue<FlushRequest>()
+    private val flushWorker = Worker("$name.Flush") { flushPendingRequests() }
+
+    @Volatile
+    private var activeSegment: FileSegment? = null
+
+    /**
+     * 段文件写满封存时的回调，在写入锁内执行
+     */
+    var segmentSealedListener: Action1<FileSegment>? = null
+
+    /**
+     * 刷盘线程每轮刷盘之后调用，用于在后台压缩或删除段文件，避免在写入线程上执行
+     */
+    var maintenanceAction: Action? = null
+
+    /**
+     * 按段号顺序打开已有的段文件，回调中需调用FileSegment.recover或FileSegment.markSealed确定写入位置，第二个参数表示是否为最后一个段
+     */
+    fun open(recoverAction: Action2<FileSegment, Boolean>) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw IORuntimeException(String.format("Create store directory failed, directory: %s", directory))
+        }
+        val files = (directory.listFiles { file -> file.name.endsWith(SEGMENT_SUFFIX) } ?: emptyArray())
+            .sortedBy { file -> file.name }
+        files.forEachIndexed { index, file ->
+            val segment = FileSegment(file.name.removeSuffix(SEGMENT_SUFFIX).toInt(), file, segmentSize)
+            segmentDict[segment.segmentId] = segment
+            recoverAction.apply(segment, index == files.size - 1)
+        }
+        activeSegment = segmentDict.lastEntry()?.value ?: createSegment(0)
+        logger.info("{} opened, directory: {}, segmentCount: {}", name, directory, segmentDict.size)
+        flushWorker.start()
+    }
+
+    fun stop() {
+        flushWorker.stop()
+        synchronized(lockObj) {
+            segmentDict.values.forEach { segment -> segment.close() }
+        }
+        flushRequestQueue.forEach { request -> request.future.complete(true) }
+        flushRequestQueue.clear()
+    }
+
+    /**
+     * 追加一条记录并返回其位置，此时记录对读可见，但还未保证落盘
+     */
+    fun append(record: ByteArray): Long {
+        require(record.size + FileSegment.HEADER_SIZE <= segmentSize) {
+            String.format("Record is too large, size: %d, segmentSize: %d", record.size, segmentSize)
+        }
+        synchronized(lockObj) {
+            return appendInternal(record)
+        }
+    }
+
+    /**
+     * 返回的future在该位置及之前的记录全部落盘后完成
+     */
+    fun flushAsync(location: Long): CompletableFuture<Boolean> {
+        val future = CompletableFuture<Boolean>()
+        if (isFlushed(location)) {
+            future.complete(true)
+            return future
+        }
+        flushRequestQueue.add(FlushRequest(location, future))
+        flushLock.lock()
+        try {
+            flushCondition.signalAll()
+        } finally {
+            flushLock.unlock()
+        }
+        return future
+    }
+
+    /**
+     * 同步刷盘当前写入的段，封存的段在滚动时已经刷盘
+     */
+    fun flush() {
+        activeSegment?.flush()
+    }
+
+    /**
+     * 读取一条记录，返回的是记录的拷贝，段文件之后被删除也不影响
+     */
+    fun read(location: Long): ByteBuffer {
+        val segment = segmentDict[segmentId(location)]
+        if (segment == null || !segment.retain()) {
+            throw IORuntimeException(String.format("Segment not found, location: %d", location))
+        }
+        try {
+            val record = segment.read(position(location))
+            val bytes = ByteArray(record.remaining())
+            record.get(bytes)
+            return ByteBuffer.wrap(bytes)
+        } finally {
+            segment.release()
+        }
+    }
+
+    /**
+     * 段内已落盘的位置，段不存在时返回0
+     */
+    fun getFlushedPosition(segmentId: Int): Int {
+        return segmentDict[segmentId]?.flushedPosition ?: 0
+    }
+
+    /**
+     * 从指定位置之后按顺序读取已落盘的记录，location小于0表示从头开始读取
+     */
+    fun readAfter(location: Long, maxCount: Int, recordAction: Action2<Long, ByteBuffer>) {
+        var segmentId: Int
+        var position: Int
+        if (location < 0) {
+            segmentId = segmentDict.firstKey()
+            position = 0
+        } else {
+            segmentId = segmentId(location)
+            position = position(location)
+            val segment = segmentDict[segmentId]
+                ?: throw IORuntimeException(String.format("Segment not found, location: %d", location))
+            position += segment.recordSize(position)
+        }
+        var count = 0
+        while (count < maxCount) {
+            val segment = segmentDict[segmentId] ?: return
+            if (position >= segment.flushedPosition) {
+                val nextSegmentId = segmentDict.higherKey(segmentId) ?: return
+                //读取下一个段之前再次检查，避免当前段在滚动前刚刚刷盘的记录被跳过
+                if (position < segment.flushedPosition) {
+                    continue
+                }
+                segmentId = nextSegmentId
+                position = 0
+                continue
+            }
+            recordAction.apply(toLocation(segmentId, position), segment.read(position))
+            position += segment.recordSize(position)
+            count++
+        }
+    }
+
+    /**
+     * 已封存的段文件数量
+     */
+    fun getSealedSegmentCount(): Int {
+        return segmentDict.size - 1
+    }
+
+    /**
+     * 滚动到新段并返回新段号，之前的段都已落盘；压缩时先滚动，快照落盘后再删除新段之前的段
+     */
+    fun rollSegment(): Int {
+        synchronized(lockObj) {
+            return roll().segmentId
+        }
+    }
+
+    /**
+     * 删除段号小于segmentId的段文件，当前写入的段不会被删除
+     */
+    fun deleteSegmentsBefore(segmentId: Int) {
+        synchronized(lockObj) {
+            val active = activeSegment ?: return
+            val segments = segmentDict.headMap(minOf(segmentId, active.segmentId)).values.toList()
+            segments.forEach { segment ->
+                segmentDict.remove(segment.segmentId)
+                segment.close()
+                if (!segment.delete()) {
+                    logger.warn("Delete segment failed, file: {}", segment.file)
+                }
+            }
+            if (segments.isNotEmpty()) {
+                logger.info("{} deleted segments, count: {}, segmentCount: {}", name, segments.size, segmentDict.size)
+            }
+        }
+    }
+
+    private fun appendInternal(record: ByteArray): Long {
+        var segment = activeSegment!!
+        var position = segment.append(record)
+        if (position < 0) {
+            segment = roll()
+            position = segment.append(record)
+        }
+        return toLocation(segment.segmentId, position)
+    }
+
+    private fun roll(): FileSegment {
+        val sealedSegment = activeSegment!!
+        sealedSegment.flush()
+        val segment = createSegment(sealedSegment.segmentId + 1)
+        activeSegment = segment
+        segmentSealedListener?.apply(sealedSegment)
+        return segment
+    }
+
+    private fun createSegment(segmentId: Int): FileSegment {
+        val segment = FileSegment(segmentId, File(directory, String.format("%010d%s", segmentId, SEGMENT_SUFFIX)), segmentSize)
+        segmentDict[segmentId] = segment
+        return segment
+    }
+
+    private fun isFlushed(location: Long): Boolean {
+        val segment = activeSegment ?: return false
+        val segmentId = segmentId(location)
+        //滚动时旧段已经同步刷盘，所以小于当前段号的记录一定已落盘
+        return segmentId < segment.segmentId || (segmentId == segment.segmentId && position(location) < segment.flushedPosition)
+    }
+
+    private fun flushPendingRequests() {
+        flushLock.lock()
+        try {
+            if (flushRequestQueue.isEmpty()) {
+                flushCondition.await(flushIntervalMilliseconds.toLong().coerceAtLeast(1), TimeUnit.MILLISECONDS)
+            }
+        } catch (ex: InterruptedException) {
+            return
+        } finally {
+            flushLock.unlock()
+        }
+        try {
+            activeSegment?.flush()
+        } catch (ex: Exception) {
+            logger.error("{} flush has exception.", name, ex)
+            val exception = IORuntimeException(ex)
+            generateSequence { flushRequestQueue.poll() }.forEach { request -> request.future.completeExceptionally(exception) }
+            return
+        }
+        //刷盘期间到达的请求留到下一轮，一次force可以完成多个请求
+        for (i in 0 until flushRequestQueue.size) {
+            val request = flushRequestQueue.poll() ?: break
+            if (isFlushed(request.location)) {
+                request.future.complete(true)
+            } else {
+                flushRequestQueue.add(request)
+            }
+        }
+        try {
+            maintenanceAction?.apply()
+        } catch (ex: Exception) {
+            logger.error("{} maintenance has exception.", name, ex)
+        }
+    }
+
+    class FlushRequest(val location: Long, val future: CompletableFuture<Boolean>)
+}
@@ -0,0 +1,164 @@
+package org.enodeframework.file.log
+
+import org.enodeframework.common.function.Action2
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.Buffer
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.CRC32
+
+/**
+ * 内存映射的段文件，记录格式为：[int length][int crc32][bytes]，length为0表示段内已写数据的末尾
+ * 读取前通过retain持有段，关闭后等最后一个持有者release时才解除内存映射，避免读到已解除映射的内存
+ *
+ * @author anruence@gmail.com
+ */
+class FileSegment(val segmentId: Int, val file: File, segmentSize: Int) {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(FileSegment::class.java)
+        const val HEADER_SIZE = 8
+    }
+
+    private val randomAccessFile = RandomAccessFile(file, "rw")
+    private val channel: FileChannel = randomAccessFile.channel
+    val capacity: Int = maxOf(file.length(), segmentSize.toLong()).toInt()
+    private val buffer: MappedByteBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity.toLong())
+
+    /**
+     * 段自身持有一次引用，close时释放
+     */
+    private val refCount = AtomicInteger(1)
+
+    @Volatile
+    var writePosition = 0
+        private set
+
+    @Volatile
+    var flushedPosition = 0
+        private set
+
+    /**
+     * 从头扫描段文件，校验每条记录的crc，遇到未写入或损坏的记录时停止，并以此作为写入位置
+     */
+    fun recover(recordAction: Action2<Int, ByteBuffer>) {
+        var position = 0
+        while (position + HEADER_SIZE <= capacity) {
+            val length = buffer.getInt(position)
+            if (length <= 0 || position + HEADER_SIZE + length > capacity) {
+                break
+            }
+            val record = slice(position + HEADER_SIZE, length)
+            if (checksum(record.duplicate()) != buffer.getInt(position + 4)) {
+                logger.warn("Segment record checksum mismatch, truncate. file: {}, position: {}", file, position)
+                break
+            }
+            recordAction.apply(position, record)
+            position += HEADER_SIZE + length
+        }
+        writePosition = position
+        flushedPosition = position
+    }
+
+    /**
+     * 已封存的段文件由外部索引恢复时，直接标记写入位置，无需扫描
+     */
+    fun markSealed(position: Int) {
+        writePosition = position
+        flushedPosition = position
+    }
+
+    /**
+     * 追加一条记录，返回记录的起始位置，剩余空间不足时返回-1；调用方负责串行化写入
+     */
+    fun append(record: ByteArray): Int {
+        val position = writePosition
+        if (position + HEADER_SIZE + record.size > capacity) {
+            return -1
+        }
+        val crc = CRC32()
+        crc.update(record)
+        val duplicate = buffer.duplicate()
+        (duplicate as Buffer).position(position + HEADER_SIZE)
+        duplicate.put(record)
+        buffer.putInt(position + 4, crc.value.toInt())
+        //最后写入长度，保证恢复时不会读到写了一半的记录
+        buffer.putInt(position, record.size)
+        writePosition = position + HEADER_SIZE + record.size
+        return position
+    }
+
+    fun read(position: Int): ByteBuffer {
+        return slice(position + HEADER_SIZE, buffer.getInt(position))
+    }
+
+    /**
+     * 记录占用的总字节数，包含记录头
+     */
+    fun recordSize(position: Int): Int {
+        return HEADER_SIZE + buffer.getInt(position)
+    }
+
+    @Synchronized
+    fun flush() {
+        val position = writePosition
+        if (position > flushedPosition) {
+            buffer.force()
+            flushedPosition = position
+        }
+    }
+
+    /**
+     * 持有段用于读取，段已关闭时返回false；成功后必须调用release
+     */
+    fun retain(): Boolean {
+        while (true) {
+            val count = refCount.get()
+            if (count <= 0) {
+                return false
+            }
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true
+            }
+        }
+    }
+
+    fun release() {
+        if (refCount.decrementAndGet() == 0) {
+            MappedBuffers.unmap(buffer)
+        }
+    }
+
+    /**
+     * 关闭文件并释放段自身的引用，内存映射在所有读取结束后解除，不能重复调用
+     */
+    fun close() {
+        flush()
+        channel.close()
+        randomAccessFile.close()
+        release()
+    }
+
+    fun delete(): Boolean {
+        return file.delete()
+    }
+
+    private fun slice(position: Int, length: Int): ByteBuffer {
+        val duplicate = buffer.duplicate()
+        (duplicate as Buffer).position(position)
+        (duplicate as Buffer).limit(position + length)
+        return duplicate.slice()
+    }
+
+    private fun checksum(record: ByteBuffer): Int {
+        val bytes = ByteArray(record.remaining())
+        record.get(bytes)
+        val crc = CRC32()
+        crc.update(bytes)
+        return crc.value.toInt()
+    }
+}
@@ -0,0 +1,48 @@
+package org.enodeframework.file.log
+
+import org.slf4j.LoggerFactory
+import java.lang.reflect.Method
+import java.nio.MappedByteBuffer
+
+/**
+ * 主动解除内存映射，否则段文件删除后映射的内存要等到GC回收buffer时才释放
+ * JDK9及以上使用Unsafe.invokeCleaner，JDK8使用DirectBuffer.cleaner，都不可用时交给GC
+ *
+ * @author anruence@gmail.com
+ */
+internal object MappedBuffers {
+
+    private val logger = LoggerFactory.getLogger(MappedBuffers::class.java)
+
+    private val unmapper: ((MappedByteBuffer) -> Unit)? = createUnmapper()
+
+    fun unmap(buffer: MappedByteBuffer) {
+        val action = unmapper ?: return
+        try {
+            action(buffer)
+        } catch (ex: Exception) {
+            logger.warn("Unmap mapped buffer failed.", ex)
+        }
+    }
+
+    private fun createUnmapper(): ((MappedByteBuffer) -> Unit)? {
+        try {
+            val unsafeClass = Class.forName("sun.misc.Unsafe")
+            val invokeCleaner: Method = unsafeClass.getMethod("invokeCleaner", java.nio.ByteBuffer::class.java)
+            val field = unsafeClass.getDeclaredField("theUnsafe")
+            field.isAccessible = true
+            val unsafe = field.get(null)
+            return { buffer -> invokeCleaner.invoke(unsafe, buffer) }
+        } catch (ex: Exception) {
+            //JDK8没有invokeCleaner
+        }
+        try {
+            val cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner")
+            val cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean")
+            return { buffer -> cleanerMethod.invoke(buffer)?.let { cleaner -> cleanMethod.invoke(cleaner) } }
+        } catch (ex: Exception) {
+            logger.warn("Mapped buffer unmapping is not supported, segments are released by GC.", ex)
+        }
+        return null
+    }
+}
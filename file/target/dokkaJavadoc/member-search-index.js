@@ -0,0 +1 @@
+var memberSearchIndex = [{"p":"org.enodeframework.file","c":"FileStoreOptions","l":"getStorePath()","url":"org/enodeframework/file/FileStoreOptions.html#getStorePath()"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"setStorePath(String)","url":"org/enodeframework/file/FileStoreOptions.html#setStorePath(String)"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"getSegmentSize()","url":"org/enodeframework/file/FileStoreOptions.html#getSegmentSize()"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"setSegmentSize(int)","url":"org/enodeframework/file/FileStoreOptions.html#setSegmentSize(int)"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"getFlushIntervalMilliseconds()","url":"org/enodeframework/file/FileStoreOptions.html#getFlushIntervalMilliseconds()"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"setFlushIntervalMilliseconds(int)","url":"org/enodeframework/file/FileStoreOptions.html#setFlushIntervalMilliseconds(int)"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"getCompactSegmentCount()","url":"org/enodeframework/file/FileStoreOptions.html#getCompactSegmentCount()"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"setCompactSegmentCount(int)","url":"org/enodeframework/file/FileStoreOptions.html#setCompactSegmentCount(int)"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"getIndexCacheSize()","url":"org/enodeframework/file/FileStoreOptions.html#getIndexCacheSize()"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"setIndexCacheSize(int)","url":"org/enodeframework/file/FileStoreOptions.html#setIndexCacheSize(int)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"FileEventStore(FileStoreOptions, EventSerializer, SerializeService)","url":"org/enodeframework/file/FileEventStore.html#FileEventStore(FileStoreOptions,EventSerializer,SerializeService)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"start()","url":"org/enodeframework/file/FileEventStore.html#start()"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"stop()","url":"org/enodeframework/file/FileEventStore.html#stop()"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"batchAppendAsync(List<DomainEventStream>)","url":"org/enodeframework/file/FileEventStore.html#batchAppendAsync(List)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"findAsync(String, Integer)","url":"org/enodeframework/file/FileEventStore.html#findAsync(String,Integer)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"findAsync(String, String)","url":"org/enodeframework/file/FileEventStore.html#findAsync(String,String)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"findByCommandIdsAsync(String, List<String>)","url":"org/enodeframework/file/FileEventStore.html#findByCommandIdsAsync(String,List)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"queryAggregateEventsAsync(String, String, Integer, Integer)","url":"org/enodeframework/file/FileEventStore.html#queryAggregateEventsAsync(String,String,Integer,Integer)"}, {"p":"org.enodeframework.file","c":"FileEventStore","l":"readAllAsync(String, Integer)","url":"org/enodeframework/file/FileEventStore.html#readAllAsync(String,Integer)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"FilePublishedVersionStore.VersionEntry(String, String, String, Integer)","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#FilePublishedVersionStore.VersionEntry(String,String,String,Integer)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"getProcessorName()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#getProcessorName()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"getAggregateRootTypeName()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#getAggregateRootTypeName()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"getAggregateRootId()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#getAggregateRootId()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"getVersion()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#getVersion()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"key()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#key()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionKey","l":"FilePublishedVersionStore.VersionKey(String, String)","url":"org/enodeframework/file/FilePublishedVersionStore.VersionKey.html#FilePublishedVersionStore.VersionKey(String,String)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionKey","l":"getProcessorName()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionKey.html#getProcessorName()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionKey","l":"getAggregateRootId()","url":"org/enodeframework/file/FilePublishedVersionStore.VersionKey.html#getAggregateRootId()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"FilePublishedVersionStore(FileStoreOptions)","url":"org/enodeframework/file/FilePublishedVersionStore.html#FilePublishedVersionStore(FileStoreOptions)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"start()","url":"org/enodeframework/file/FilePublishedVersionStore.html#start()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"stop()","url":"org/enodeframework/file/FilePublishedVersionStore.html#stop()"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"updatePublishedVersionAsync(String, String, String, Integer)","url":"org/enodeframework/file/FilePublishedVersionStore.html#updatePublishedVersionAsync(String,String,String,Integer)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"batchUpdatePublishedVersionAsync(String, List<AggregatePublishedVersion>)","url":"org/enodeframework/file/FilePublishedVersionStore.html#batchUpdatePublishedVersionAsync(String,List)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"getPublishedVersionAsync(String, String, String)","url":"org/enodeframework/file/FilePublishedVersionStore.html#getPublishedVersionAsync(String,String,String)"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore","l":"batchGetPublishedVersionAsync(String, List<String>)","url":"org/enodeframework/file/FilePublishedVersionStore.html#batchGetPublishedVersionAsync(String,List)"}, {"p":"org.enodeframework.file.log","c":"FileLog.Companion","l":"toLocation(Integer, Integer)","url":"org/enodeframework/file/log/FileLog.Companion.html#toLocation(Integer,Integer)"}, {"p":"org.enodeframework.file.log","c":"FileLog.Companion","l":"segmentId(Long)","url":"org/enodeframework/file/log/FileLog.Companion.html#segmentId(Long)"}, {"p":"org.enodeframework.file.log","c":"FileLog.Companion","l":"position(Long)","url":"org/enodeframework/file/log/FileLog.Companion.html#position(Long)"}, {"p":"org.enodeframework.file.log","c":"FileLog.Companion","l":"getSEGMENT_SUFFIX()","url":"org/enodeframework/file/log/FileLog.Companion.html#getSEGMENT_SUFFIX()"}, {"p":"org.enodeframework.file.log","c":"FileLog.FlushRequest","l":"FileLog.FlushRequest(Long, CompletableFuture<Boolean>)","url":"org/enodeframework/file/log/FileLog.FlushRequest.html#FileLog.FlushRequest(Long,CompletableFuture)"}, {"p":"org.enodeframework.file.log","c":"FileLog.FlushRequest","l":"getLocation()","url":"org/enodeframework/file/log/FileLog.FlushRequest.html#getLocation()"}, {"p":"org.enodeframework.file.log","c":"FileLog.FlushRequest","l":"getFuture()","url":"org/enodeframework/file/log/FileLog.FlushRequest.html#getFuture()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"FileLog(String, File, Integer, Integer)","url":"org/enodeframework/file/log/FileLog.html#FileLog(String,File,Integer,Integer)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"getSegmentSealedListener()","url":"org/enodeframework/file/log/FileLog.html#getSegmentSealedListener()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"setSegmentSealedListener(Action1<FileSegment>)","url":"org/enodeframework/file/log/FileLog.html#setSegmentSealedListener(Action1)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"getMaintenanceAction()","url":"org/enodeframework/file/log/FileLog.html#getMaintenanceAction()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"setMaintenanceAction(Action)","url":"org/enodeframework/file/log/FileLog.html#setMaintenanceAction(Action)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"open(Action2<FileSegment, Boolean>)","url":"org/enodeframework/file/log/FileLog.html#open(Action2)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"stop()","url":"org/enodeframework/file/log/FileLog.html#stop()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"append(ByteArray)","url":"org/enodeframework/file/log/FileLog.html#append(ByteArray)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"flushAsync(Long)","url":"org/enodeframework/file/log/FileLog.html#flushAsync(Long)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"flush()","url":"org/enodeframework/file/log/FileLog.html#flush()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"read(Long)","url":"org/enodeframework/file/log/FileLog.html#read(Long)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"getFlushedPosition(Integer)","url":"org/enodeframework/file/log/FileLog.html#getFlushedPosition(Integer)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"readAfter(Long, Integer, Action2<Long, ByteBuffer>)","url":"org/enodeframework/file/log/FileLog.html#readAfter(Long,Integer,Action2)"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"getSealedSegmentCount()","url":"org/enodeframework/file/log/FileLog.html#getSealedSegmentCount()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"rollSegment()","url":"org/enodeframework/file/log/FileLog.html#rollSegment()"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"deleteSegmentsBefore(Integer)","url":"org/enodeframework/file/log/FileLog.html#deleteSegmentsBefore(Integer)"}, {"p":"org.enodeframework.file.log","c":"FileSegment.Companion","l":"getHEADER_SIZE()","url":"org/enodeframework/file/log/FileSegment.Companion.html#getHEADER_SIZE()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"FileSegment(Integer, File, Integer)","url":"org/enodeframework/file/log/FileSegment.html#FileSegment(Integer,File,Integer)"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"getCapacity()","url":"org/enodeframework/file/log/FileSegment.html#getCapacity()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"getWritePosition()","url":"org/enodeframework/file/log/FileSegment.html#getWritePosition()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"getFlushedPosition()","url":"org/enodeframework/file/log/FileSegment.html#getFlushedPosition()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"getSegmentId()","url":"org/enodeframework/file/log/FileSegment.html#getSegmentId()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"getFile()","url":"org/enodeframework/file/log/FileSegment.html#getFile()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"recover(Action2<Integer, ByteBuffer>)","url":"org/enodeframework/file/log/FileSegment.html#recover(Action2)"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"markSealed(Integer)","url":"org/enodeframework/file/log/FileSegment.html#markSealed(Integer)"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"append(ByteArray)","url":"org/enodeframework/file/log/FileSegment.html#append(ByteArray)"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"read(Integer)","url":"org/enodeframework/file/log/FileSegment.html#read(Integer)"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"recordSize(Integer)","url":"org/enodeframework/file/log/FileSegment.html#recordSize(Integer)"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"flush()","url":"org/enodeframework/file/log/FileSegment.html#flush()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"retain()","url":"org/enodeframework/file/log/FileSegment.html#retain()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"release()","url":"org/enodeframework/file/log/FileSegment.html#release()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"close()","url":"org/enodeframework/file/log/FileSegment.html#close()"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"delete()","url":"org/enodeframework/file/log/FileSegment.html#delete()"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"storePath","url":"org/enodeframework/file/FileStoreOptions.html#storePath"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"segmentSize","url":"org/enodeframework/file/FileStoreOptions.html#segmentSize"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"flushIntervalMilliseconds","url":"org/enodeframework/file/FileStoreOptions.html#flushIntervalMilliseconds"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"compactSegmentCount","url":"org/enodeframework/file/FileStoreOptions.html#compactSegmentCount"}, {"p":"org.enodeframework.file","c":"FileStoreOptions","l":"indexCacheSize","url":"org/enodeframework/file/FileStoreOptions.html#indexCacheSize"}, {"p":"org.enodeframework.file","c":"FileEventStore.Companion","l":"INSTANCE","url":"org/enodeframework/file/FileEventStore.Companion.html#INSTANCE"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.Companion","l":"INSTANCE","url":"org/enodeframework/file/FilePublishedVersionStore.Companion.html#INSTANCE"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"processorName","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#processorName"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"aggregateRootTypeName","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#aggregateRootTypeName"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"aggregateRootId","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#aggregateRootId"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionEntry","l":"version","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html#version"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionKey","l":"processorName","url":"org/enodeframework/file/FilePublishedVersionStore.VersionKey.html#processorName"}, {"p":"org.enodeframework.file","c":"FilePublishedVersionStore.VersionKey","l":"aggregateRootId","url":"org/enodeframework/file/FilePublishedVersionStore.VersionKey.html#aggregateRootId"}, {"p":"org.enodeframework.file.log","c":"FileLog.Companion","l":"SEGMENT_SUFFIX","url":"org/enodeframework/file/log/FileLog.Companion.html#SEGMENT_SUFFIX"}, {"p":"org.enodeframework.file.log","c":"FileLog.Companion","l":"INSTANCE","url":"org/enodeframework/file/log/FileLog.Companion.html#INSTANCE"}, {"p":"org.enodeframework.file.log","c":"FileLog.FlushRequest","l":"location","url":"org/enodeframework/file/log/FileLog.FlushRequest.html#location"}, {"p":"org.enodeframework.file.log","c":"FileLog.FlushRequest","l":"future","url":"org/enodeframework/file/log/FileLog.FlushRequest.html#future"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"segmentSealedListener","url":"org/enodeframework/file/log/FileLog.html#segmentSealedListener"}, {"p":"org.enodeframework.file.log","c":"FileLog","l":"maintenanceAction","url":"org/enodeframework/file/log/FileLog.html#maintenanceAction"}, {"p":"org.enodeframework.file.log","c":"FileSegment.Companion","l":"HEADER_SIZE","url":"org/enodeframework/file/log/FileSegment.Companion.html#HEADER_SIZE"}, {"p":"org.enodeframework.file.log","c":"FileSegment.Companion","l":"INSTANCE","url":"org/enodeframework/file/log/FileSegment.Companion.html#INSTANCE"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"capacity","url":"org/enodeframework/file/log/FileSegment.html#capacity"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"writePosition","url":"org/enodeframework/file/log/FileSegment.html#writePosition"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"flushedPosition","url":"org/enodeframework/file/log/FileSegment.html#flushedPosition"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"segmentId","url":"org/enodeframework/file/log/FileSegment.html#segmentId"}, {"p":"org.enodeframework.file.log","c":"FileSegment","l":"file","url":"org/enodeframework/file/log/FileSegment.html#file"}]
@@ -0,0 +1 @@
+var moduleSearchIndex = [{"l":"enode-file","url":"index.html"}]
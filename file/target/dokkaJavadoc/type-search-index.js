@@ -0,0 +1 @@
+var typeSearchIndex = [{"p":"org.enodeframework.file","l":"FileStoreOptions","url":"org/enodeframework/file/FileStoreOptions.html"}, {"p":"org.enodeframework.file","l":"FileEventStore.Companion","url":"org/enodeframework/file/FileEventStore.Companion.html"}, {"p":"org.enodeframework.file","l":"FileEventStore","url":"org/enodeframework/file/FileEventStore.html"}, {"p":"org.enodeframework.file","l":"FilePublishedVersionStore.Companion","url":"org/enodeframework/file/FilePublishedVersionStore.Companion.html"}, {"p":"org.enodeframework.file","l":"FilePublishedVersionStore.VersionEntry","url":"org/enodeframework/file/FilePublishedVersionStore.VersionEntry.html"}, {"p":"org.enodeframework.file","l":"FilePublishedVersionStore.VersionKey","url":"org/enodeframework/file/FilePublishedVersionStore.VersionKey.html"}, {"p":"org.enodeframework.file","l":"FilePublishedVersionStore","url":"org/enodeframework/file/FilePublishedVersionStore.html"}, {"p":"org.enodeframework.file.log","l":"FileLog.Companion","url":"org/enodeframework/file/log/FileLog.Companion.html"}, {"p":"org.enodeframework.file.log","l":"FileLog.FlushRequest","url":"org/enodeframework/file/log/FileLog.FlushRequest.html"}, {"p":"org.enodeframework.file.log","l":"FileLog","url":"org/enodeframework/file/log/FileLog.html"}, {"p":"org.enodeframework.file.log","l":"FileSegment.Companion","url":"org/enodeframework/file/log/FileSegment.Companion.html"}, {"p":"org.enodeframework.file.log","l":"FileSegment","url":"org/enodeframework/file/log/FileSegment.html"}, {"l":"All classes","url":"allclasses.html"}]
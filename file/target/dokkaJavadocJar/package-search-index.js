@@ -0,0 +1 @@
+var packageSearchIndex = [{"l":"org.enodeframework.file","url":"org/enodeframework/file/package-summary.html"}, {"l":"org.enodeframework.file.log","url":"org/enodeframework/file/log/package-summary.html"}, {"l":"All packages","url":"index.html"}]
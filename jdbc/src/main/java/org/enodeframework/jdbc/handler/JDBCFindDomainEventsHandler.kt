@@ -28,11 +28,16 @@ open class JDBCFindDomainEventsHandler(
 
     var future = CompletableFuture<List<DomainEventStream>>()
 
+    /**
+     * 最后一行记录的自增id，按存储顺序读取时作为下一页的checkpoint
+     */
+    var lastId: String? = null
+
     override fun handle(ar: AsyncResult<RowSet<Row>>) {
         if (ar.succeeded()) {
-            future.complete(ar.result().map { row: Row ->
-                this.convertFrom(row.toJson())
-            }.toList())
+            val records = ar.result().map { row: Row -> row.toJson() }.toList()
+            records.lastOrNull()?.getValue("id")?.let { id -> lastId = id.toString() }
+            future.complete(records.map { record -> this.convertFrom(record) })
             return
         }
         val throwable = ar.cause()
@@ -12,7 +12,7 @@ import java.sql.SQLException
 import java.util.concurrent.CompletableFuture
 
 open class JDBCUpsertPublishedVersionHandler(
-    private val options: EventStoreOptions, private val msg: String
+    private val options: EventStoreOptions, private val msg: String, private val requireRowsUpdated: Boolean = true
 ) : Handler<AsyncResult<RowSet<Row>>> {
 
     companion object {
@@ -24,7 +24,7 @@ open class JDBCUpsertPublishedVersionHandler(
     override fun handle(ar: AsyncResult<RowSet<Row>>) {
 
         if (ar.succeeded()) {
-            if (ar.result().rowCount() == 0) {
+            if (requireRowsUpdated && ar.result().rowCount() == 0) {
                 future.completeExceptionally(
                     PublishedVersionStoreException(
                         String.format(
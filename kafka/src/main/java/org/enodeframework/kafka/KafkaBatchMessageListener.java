@@ -0,0 +1,155 @@
+package org.enodeframework.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.enodeframework.common.function.Action;
+import org.enodeframework.eventing.impl.PartitionCheckpointTracker;
+import org.enodeframework.queue.MessageFlowController;
+import org.enodeframework.queue.MessageHandler;
+import org.enodeframework.queue.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量消费kafka消息，消息乱序完成，按分区跟踪完成情况，只提交每个分区最大的连续完成位点，保证至少一次消费
+ * <p>
+ * 位点只能在consumer线程提交，所以在每次收到一批消息、容器空闲事件和分区回收时批量提交；
+ * 容器需要配置为批量监听、AckMode.MANUAL并关闭enable.auto.commit，同时把本监听器设置为ConsumerRebalanceListener，
+ * 并设置idleEventInterval，使没有新消息时也能提交
+ *
+ * @author anruence@gmail.com
+ */
+public class KafkaBatchMessageListener implements BatchAcknowledgingConsumerAwareMessageListener<String, String>,
+    ConsumerAwareRebalanceListener, ApplicationListener<ListenerContainerIdleEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaBatchMessageListener.class);
+
+    /**
+     * 位点在consumer线程批量提交，完成时不需要额外的确认动作
+     */
+    private static final Action NO_CHECKPOINT_ACTION = () -> {
+    };
+
+    private final Map<Character, MessageHandler> messageHandlerMap;
+
+    private final MessageFlowController messageFlowController;
+
+    /**
+     * 两次提交之间的最小间隔，分区回收时不受限制
+     */
+    private final int commitIntervalMilliseconds;
+
+    private final PartitionCheckpointTracker checkpointTracker = new PartitionCheckpointTracker();
+
+    private volatile long lastCommitTime;
+
+    public KafkaBatchMessageListener(Map<Character, MessageHandler> messageHandlerMap) {
+        this(messageHandlerMap, MessageFlowController.UNBOUNDED, 1000);
+    }
+
+    public KafkaBatchMessageListener(Map<Character, MessageHandler> messageHandlerMap, MessageFlowController messageFlowController, int commitIntervalMilliseconds) {
+        this.messageHandlerMap = messageHandlerMap;
+        this.messageFlowController = messageFlowController;
+        this.commitIntervalMilliseconds = commitIntervalMilliseconds;
+    }
+
+    public MessageFlowController getMessageFlowController() {
+        return messageFlowController;
+    }
+
+    @Override
+    public void onMessage(List<ConsumerRecord<String, String>> data, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        for (ConsumerRecord<String, String> record : data) {
+            String partition = toPartition(new TopicPartition(record.topic(), record.partition()));
+            long offset = record.offset();
+            QueueMessage queueMessage = KafkaMessageListener.covertToQueueMessage(record);
+            MessageHandler messageHandler = messageHandlerMap.get(queueMessage.getType());
+            checkpointTracker.track(partition, offset);
+            if (messageHandler == null) {
+                logger.error("No messageHandler for message: {}.", queueMessage);
+                checkpointTracker.complete(partition, offset, NO_CHECKPOINT_ACTION);
+                continue;
+            }
+            messageFlowController.acquire();
+            messageHandler.handle(queueMessage, context -> {
+                checkpointTracker.complete(partition, offset, NO_CHECKPOINT_ACTION);
+                messageFlowController.release();
+            });
+        }
+        if (System.currentTimeMillis() - lastCommitTime >= commitIntervalMilliseconds) {
+            //同一个监听器可能被多个consumer线程共享，只提交当前consumer分配到的分区
+            commitAsync(consumer, consumer.assignment());
+        }
+    }
+
+    /**
+     * 容器空闲时没有新消息触发提交，由空闲事件在consumer线程上提交已完成的位点
+     */
+    @Override
+    public void onApplicationEvent(ListenerContainerIdleEvent event) {
+        Consumer<?, ?> consumer = event.getConsumer();
+        Collection<TopicPartition> topicPartitions = event.getTopicPartitions();
+        if (consumer == null || topicPartitions == null) {
+            return;
+        }
+        commitAsync(consumer, topicPartitions);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = takeCommittableOffsets(partitions);
+        if (!offsets.isEmpty()) {
+            try {
+                consumer.commitSync(offsets);
+            } catch (Exception ex) {
+                logger.error("Commit offsets failed when partitions revoked, offsets: {}", offsets, ex);
+            }
+        }
+        //分区回收后未完成的消息会由新的consumer重新消费，这里不再跟踪
+        partitions.forEach(x -> checkpointTracker.remove(toPartition(x)));
+    }
+
+    private void commitAsync(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        lastCommitTime = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> offsets = takeCommittableOffsets(partitions);
+        if (offsets.isEmpty()) {
+            return;
+        }
+        consumer.commitAsync(offsets, (committedOffsets, exception) -> {
+            if (exception == null) {
+                return;
+            }
+            logger.error("Commit offsets failed, offsets: {}", committedOffsets, exception);
+            committedOffsets.forEach((topicPartition, offsetAndMetadata) ->
+                checkpointTracker.checkpointCommitFailed(toPartition(topicPartition), offsetAndMetadata.offset() - 1));
+        });
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> takeCommittableOffsets(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition topicPartition : partitions) {
+            long checkpoint = checkpointTracker.takeCheckpoint(toPartition(topicPartition));
+            //kafka提交的是下一条要消费的位点
+            if (checkpoint >= 0) {
+                offsets.put(topicPartition, new OffsetAndMetadata(checkpoint + 1));
+            }
+        }
+        return offsets;
+    }
+
+    private static String toPartition(TopicPartition topicPartition) {
+        return topicPartition.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package org.enodeframework.kafka;
+
+import org.enodeframework.queue.MessageFlowListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+/**
+ * 通过暂停和恢复监听容器实现流控，容器会在下一次poll前暂停或恢复所有分配到的分区，可以在任意线程调用
+ *
+ * @author anruence@gmail.com
+ */
+public class KafkaMessageFlowListener implements MessageFlowListener {
+
+    private final MessageListenerContainer messageListenerContainer;
+
+    public KafkaMessageFlowListener(MessageListenerContainer messageListenerContainer) {
+        this.messageListenerContainer = messageListenerContainer;
+    }
+
+    @Override
+    public void pause() {
+        messageListenerContainer.pause();
+    }
+
+    @Override
+    public void resume() {
+        messageListenerContainer.resume();
+    }
+
+    @Override
+    public String toString() {
+        return "KafkaMessageFlowListener{listenerId=" + messageListenerContainer.getListenerId() + "}";
+    }
+}
\ No newline at end of file
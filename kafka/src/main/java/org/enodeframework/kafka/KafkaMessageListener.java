@@ -1,6 +1,8 @@
 package org.enodeframework.kafka;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.enodeframework.eventing.impl.PartitionCheckpointTracker;
+import org.enodeframework.queue.MessageFlowController;
 import org.enodeframework.queue.MessageHandler;
 import org.enodeframework.queue.QueueMessage;
 import org.slf4j.Logger;
@@ -11,6 +13,8 @@ import org.springframework.kafka.support.Acknowledgment;
 import java.util.Map;
 
 /**
+ * 所有类型的消息都经过分区进度跟踪，按位点顺序确认，MANUAL确认模式下提交的位点不会越过还未处理完成的消息
+ *
  * @author anruence@gmail.com
  */
 public class KafkaMessageListener implements AcknowledgingMessageListener<String, String> {
@@ -19,8 +23,28 @@ public class KafkaMessageListener implements AcknowledgingMessageListener<String
 
     private final Map<Character, MessageHandler> messageHandlerMap;
 
+    private final MessageFlowController messageFlowController;
+
+    private final PartitionCheckpointTracker checkpointTracker = new PartitionCheckpointTracker();
+
     public KafkaMessageListener(Map<Character, MessageHandler> messageHandlerMap) {
+        this(messageHandlerMap, MessageFlowController.UNBOUNDED);
+    }
+
+    public KafkaMessageListener(Map<Character, MessageHandler> messageHandlerMap, MessageFlowController messageFlowController) {
         this.messageHandlerMap = messageHandlerMap;
+        this.messageFlowController = messageFlowController;
+    }
+
+    public MessageFlowController getMessageFlowController() {
+        return messageFlowController;
+    }
+
+    /**
+     * 每个分区最大的连续完成位点
+     */
+    public Map<String, Long> getCheckpoints() {
+        return checkpointTracker.getCheckpoints();
     }
 
     /**
@@ -31,20 +55,25 @@ public class KafkaMessageListener implements AcknowledgingMessageListener<String
      */
     @Override
     public void onMessage(ConsumerRecord<String, String> data, Acknowledgment acknowledgment) {
-        QueueMessage queueMessage = this.covertToQueueMessage(data);
+        QueueMessage queueMessage = covertToQueueMessage(data);
         MessageHandler messageHandler = messageHandlerMap.get(queueMessage.getType());
         if (messageHandler == null) {
             logger.error("No messageHandler for message: {}.", queueMessage);
             return;
         }
+        messageFlowController.acquire();
+        checkpointTracker.track(queueMessage.getPartition(), queueMessage.getOffset());
         messageHandler.handle(queueMessage, context -> {
-            if (acknowledgment != null) {
-                acknowledgment.acknowledge();
-            }
+            checkpointTracker.complete(queueMessage.getPartition(), queueMessage.getOffset(), () -> {
+                if (acknowledgment != null) {
+                    acknowledgment.acknowledge();
+                }
+            });
+            messageFlowController.release();
         });
     }
 
-    private QueueMessage covertToQueueMessage(ConsumerRecord<String, String> record) {
+    static QueueMessage covertToQueueMessage(ConsumerRecord<String, String> record) {
         QueueMessage queueMessage = new QueueMessage();
         int length = record.value().length();
         queueMessage.setBody(record.value().substring(0, length - 2));
@@ -52,6 +81,8 @@ public class KafkaMessageListener implements AcknowledgingMessageListener<String
         queueMessage.setTopic(record.topic());
         queueMessage.setRouteKey(record.key());
         queueMessage.setKey(record.key());
+        queueMessage.setPartition(record.topic() + "-" + record.partition());
+        queueMessage.setOffset(record.offset());
         return queueMessage;
     }
 }
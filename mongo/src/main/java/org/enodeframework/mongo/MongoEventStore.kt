@@ -4,7 +4,10 @@ import com.google.common.collect.Lists
 import com.mongodb.client.model.Filters
 import io.vertx.core.json.JsonObject
 import io.vertx.ext.mongo.BulkOperation
+import io.vertx.ext.mongo.FindOptions
 import io.vertx.ext.mongo.MongoClient
+import org.bson.conversions.Bson
+import org.bson.types.ObjectId
 import org.enodeframework.common.io.IOHelper.tryAsyncActionRecursively
 import org.enodeframework.common.io.IOHelper.tryIOFuncAsync
 import org.enodeframework.common.serializing.SerializeService
@@ -22,7 +25,7 @@ open class MongoEventStore(
     private val options: EventStoreOptions,
     private val eventSerializer: EventSerializer,
     private val serializeService: SerializeService
-) : EventStore {
+) : EventStore, EventStreamReader {
     constructor(
         mongoClient: MongoClient, eventSerializer: EventSerializer, serializeService: SerializeService
     ) : this(mongoClient, EventStoreOptions.mongo(), eventSerializer, serializeService)
@@ -152,4 +155,47 @@ open class MongoEventStore(
             findEventHandler.future.thenApply { x -> x.firstOrNull() }
         }, "FindEventByCommandIdAsync")
     }
+
+    override fun findByCommandIdsAsync(
+        aggregateRootId: String, commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        if (commandIds.isEmpty()) {
+            return CompletableFuture.completedFuture(emptyList())
+        }
+        return tryIOFuncAsync({
+            val distinctCommandIds = commandIds.distinct()
+            val filter = Filters.and(
+                Filters.eq("aggregateRootId", aggregateRootId), Filters.`in`("commandId", distinctCommandIds)
+            )
+            val queryJson = JsonObject(filter.toBsonDocument().toJson())
+            val findEventHandler = MongoFindDomainEventsHandler(
+                eventSerializer, serializeService, "$aggregateRootId#${distinctCommandIds.joinToString(",")}"
+            )
+            mongoClient.find(options.eventTableName, queryJson, findEventHandler)
+            findEventHandler.future
+        }, "FindEventByCommandIdsAsync")
+    }
+
+    override fun readAllAsync(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        return tryIOFuncAsync({
+            val queryJson = if (checkpoint.isEmpty()) JsonObject() else JsonObject(
+                checkpointFilter(checkpoint).toBsonDocument().toJson()
+            )
+            val findOptions = FindOptions().setSort(JsonObject().put("_id", 1)).setLimit(maxCount)
+            val findEventHandler = MongoFindDomainEventsHandler(eventSerializer, serializeService, "$checkpoint#$maxCount", false)
+            mongoClient.findWithOptions(options.eventTableName, queryJson, findOptions, findEventHandler)
+            findEventHandler.future.thenApply { x -> EventStreamPage(x, findEventHandler.lastId ?: checkpoint) }
+        }, "ReadAllEventStreamsAsync")
+    }
+
+    /**
+     * 客户端未开启useObjectId时_id以字符串保存，开启时以ObjectId保存，mongo的比较不会跨类型匹配，所以两种类型都要比较
+     * ObjectId的十六进制字符串定长且按字典序与ObjectId本身的顺序一致，按字符串分页的顺序与按ObjectId分页相同
+     */
+    private fun checkpointFilter(checkpoint: String): Bson {
+        if (!ObjectId.isValid(checkpoint)) {
+            return Filters.gt("_id", checkpoint)
+        }
+        return Filters.or(Filters.gt("_id", ObjectId(checkpoint)), Filters.gt("_id", checkpoint))
+    }
 }
\ No newline at end of file
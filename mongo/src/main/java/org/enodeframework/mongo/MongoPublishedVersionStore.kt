@@ -1,12 +1,18 @@
 package org.enodeframework.mongo
 
 import com.google.common.collect.Lists
+import com.mongodb.client.model.Filters
 import com.mongodb.client.model.Updates
 import io.vertx.core.json.JsonObject
+import io.vertx.ext.mongo.BulkOperation
 import io.vertx.ext.mongo.MongoClient
+import org.enodeframework.common.io.IOHelper
 import org.enodeframework.configurations.EventStoreOptions
+import org.enodeframework.eventing.AggregatePublishedVersion
 import org.enodeframework.eventing.PublishedVersionStore
 import org.enodeframework.mongo.handler.MongoAddPublishedVersionHandler
+import org.enodeframework.mongo.handler.MongoBatchFindPublishedVersionHandler
+import org.enodeframework.mongo.handler.MongoBatchUpdatePublishedVersionHandler
 import org.enodeframework.mongo.handler.MongoFindPublishedVersionHandler
 import org.enodeframework.mongo.handler.MongoUpdatePublishedVersionHandler
 import java.util.*
@@ -67,6 +73,35 @@ open class MongoPublishedVersionStore @JvmOverloads constructor(
         return publishHandle.future
     }
 
+    override fun batchUpdatePublishedVersionAsync(
+        processorName: String, publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        if (publishedVersions.isEmpty()) {
+            return CompletableFuture.completedFuture(0)
+        }
+        return IOHelper.tryIOFuncAsync({
+            batchUpdatePublishedVersion(processorName, publishedVersions)
+        }, "BatchUpdatePublishedVersionAsync")
+    }
+
+    private fun batchUpdatePublishedVersion(
+        processorName: String, publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        val bulks = publishedVersions.map { x ->
+            val filter = JsonObject().put("processorName", processorName).put("aggregateRootId", x.aggregateRootId)
+            //$max保证版本号只前进，不存在时插入
+            val update = Updates.combine(
+                Updates.max("version", x.version),
+                Updates.set("gmtCreate", Date().toInstant()),
+                Updates.setOnInsert("aggregateRootTypeName", x.aggregateRootTypeName)
+            )
+            BulkOperation.createUpdate(filter, JsonObject(update.toBsonDocument().toJson()), true, false)
+        }
+        val handler = MongoBatchUpdatePublishedVersionHandler("$processorName#${publishedVersions.size}", bulks.size)
+        mongoClient.bulkWrite(options.publishedTableName, bulks).onComplete(handler)
+        return handler.future
+    }
+
     override fun getPublishedVersionAsync(
         processorName: String, aggregateRootTypeName: String, aggregateRootId: String
     ): CompletableFuture<Int> {
@@ -81,4 +116,39 @@ open class MongoPublishedVersionStore @JvmOverloads constructor(
         mongoClient.findOne(options.publishedTableName, queryJson, null, handler)
         return handler.future
     }
+
+    override fun batchGetPublishedVersionAsync(
+        processorName: String, aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val distinctIds = aggregateRootIds.distinct()
+        if (distinctIds.isEmpty()) {
+            return CompletableFuture.completedFuture(emptyMap())
+        }
+        val futures = distinctIds.chunked(BATCH_SIZE).map { chunk ->
+            IOHelper.tryIOFuncAsync({
+                batchGetPublishedVersion(processorName, chunk)
+            }, "BatchGetPublishedVersionAsync")
+        }
+        return CompletableFuture.allOf(*futures.toTypedArray()).thenApply {
+            //没有发布记录的聚合根版本为0
+            val versions = futures.flatMap { x -> x.join().entries }.associate { x -> x.key to x.value }
+            distinctIds.associateWith { x -> versions[x] ?: 0 }
+        }
+    }
+
+    private fun batchGetPublishedVersion(
+        processorName: String, aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val filter = Filters.and(
+            Filters.eq("processorName", processorName), Filters.`in`("aggregateRootId", aggregateRootIds)
+        )
+        val queryJson = JsonObject(filter.toBsonDocument().toJson())
+        val handler = MongoBatchFindPublishedVersionHandler("$processorName#${aggregateRootIds.size}")
+        mongoClient.find(options.publishedTableName, queryJson).onComplete(handler)
+        return handler.future
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 1000
+    }
 }
\ No newline at end of file
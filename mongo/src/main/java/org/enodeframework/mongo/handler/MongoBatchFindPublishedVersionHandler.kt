@@ -0,0 +1,34 @@
+package org.enodeframework.mongo.handler
+
+import com.mongodb.MongoServerException
+import io.vertx.core.AsyncResult
+import io.vertx.core.Handler
+import io.vertx.core.json.JsonObject
+import org.enodeframework.common.exception.IORuntimeException
+import org.enodeframework.common.exception.PublishedVersionStoreException
+import org.slf4j.LoggerFactory
+import java.util.concurrent.CompletableFuture
+
+class MongoBatchFindPublishedVersionHandler(private val msg: String) : Handler<AsyncResult<List<JsonObject>>> {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(MongoBatchFindPublishedVersionHandler::class.java)
+    }
+
+    var future = CompletableFuture<Map<String, Int>>()
+
+    override fun handle(ar: AsyncResult<List<JsonObject>>) {
+        if (ar.succeeded()) {
+            future.complete(ar.result().associate { x -> x.getString("aggregateRootId") to x.getInteger("version", 0) })
+            return
+        }
+        val throwable = ar.cause()
+        logger.error("Batch get aggregate published version has exception. {}", msg, throwable)
+        if (throwable is MongoServerException) {
+            future.completeExceptionally(IORuntimeException(throwable))
+            return
+        }
+        future.completeExceptionally(PublishedVersionStoreException(throwable))
+        return
+    }
+}
\ No newline at end of file
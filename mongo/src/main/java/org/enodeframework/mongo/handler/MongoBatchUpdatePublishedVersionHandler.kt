@@ -0,0 +1,37 @@
+package org.enodeframework.mongo.handler
+
+import com.mongodb.MongoServerException
+import io.vertx.core.AsyncResult
+import io.vertx.core.Handler
+import io.vertx.ext.mongo.MongoClientBulkWriteResult
+import org.enodeframework.common.exception.IORuntimeException
+import org.enodeframework.common.exception.PublishedVersionStoreException
+import org.enodeframework.mongo.MongoEventStore
+import org.slf4j.LoggerFactory
+import java.util.concurrent.CompletableFuture
+
+class MongoBatchUpdatePublishedVersionHandler(
+    private val msg: String, private val count: Int
+) : Handler<AsyncResult<MongoClientBulkWriteResult?>> {
+
+    companion object {
+        private val logger = LoggerFactory.getLogger(MongoEventStore::class.java)
+    }
+
+    var future = CompletableFuture<Int>()
+
+    override fun handle(ar: AsyncResult<MongoClientBulkWriteResult?>) {
+        if (ar.succeeded()) {
+            future.complete(count)
+            return
+        }
+        val throwable = ar.cause()
+        logger.error("Batch update aggregate published version has exception. {}", msg, throwable)
+        //并发upsert可能出现唯一索引冲突，重试时会走更新分支
+        if (throwable is MongoServerException) {
+            future.completeExceptionally(IORuntimeException(msg, throwable))
+            return
+        }
+        future.completeExceptionally(PublishedVersionStoreException(msg, throwable))
+    }
+}
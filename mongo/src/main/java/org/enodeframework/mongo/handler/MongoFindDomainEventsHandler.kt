@@ -18,7 +18,8 @@ import java.util.concurrent.CompletableFuture
 class MongoFindDomainEventsHandler(
     private val eventSerializer: EventSerializer,
     private val serializeService: SerializeService,
-    private val msg: String
+    private val msg: String,
+    private val sortByVersion: Boolean = true
 ) : Handler<AsyncResult<List<JsonObject>>> {
 
     companion object {
@@ -27,9 +28,17 @@ class MongoFindDomainEventsHandler(
 
     val future = CompletableFuture<List<DomainEventStream>>()
 
+    /**
+     * 最后一个文档的_id，按存储顺序读取时作为下一页的checkpoint
+     */
+    var lastId: String? = null
+
     override fun handle(ar: AsyncResult<List<JsonObject>>) {
         if (ar.succeeded()) {
             val documents = ar.result()
+            documents.lastOrNull()?.getValue("_id")?.let { id ->
+                lastId = if (id is JsonObject) id.getString("\$oid") else id.toString()
+            }
             val streams = documents.map { document ->
                 DomainEventStream(
                     document.getString("commandId"),
@@ -44,7 +53,9 @@ class MongoFindDomainEventsHandler(
                     Maps.newHashMap()
                 )
             }.toMutableList()
-            streams.sortWith(Comparator.comparingInt { obj: DomainEventStream -> obj.version })
+            if (sortByVersion) {
+                streams.sortWith(Comparator.comparingInt { obj: DomainEventStream -> obj.version })
+            }
             future.complete(streams)
             return
         }
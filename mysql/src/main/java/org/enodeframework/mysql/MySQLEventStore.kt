@@ -21,7 +21,7 @@ open class MySQLEventStore(
     configuration: EventStoreOptions,
     eventSerializer: EventSerializer,
     serializeService: SerializeService
-) : EventStore {
+) : EventStore, EventStreamReader {
 
     private val eventSerializer: EventSerializer
     private val serializeService: SerializeService
@@ -132,6 +132,46 @@ open class MySQLEventStore(
         return handler.future.thenApply { x -> x.firstOrNull() }
     }
 
+    override fun findByCommandIdsAsync(
+        aggregateRootId: String, commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        if (commandIds.isEmpty()) {
+            return CompletableFuture.completedFuture(emptyList())
+        }
+        return IOHelper.tryIOFuncAsync({
+            findByCommandIds(aggregateRootId, commandIds)
+        }, "FindEventByCommandIdsAsync")
+    }
+
+    private fun findByCommandIds(
+        aggregateRootId: String, commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        val distinctCommandIds = commandIds.distinct()
+        val handler = MySQLFindDomainEventsHandler(
+            eventSerializer, serializeService, "$aggregateRootId#${distinctCommandIds.joinToString(",")}"
+        )
+        val sql = String.format(
+            SELECT_MANY_BY_COMMAND_ID_SQL, options.eventTableName, distinctCommandIds.joinToString(",") { "?" }
+        )
+        val tuple = Tuple.of(aggregateRootId)
+        distinctCommandIds.forEach { commandId -> tuple.addString(commandId) }
+        sqlClient.preparedQuery(sql).execute(tuple).onComplete(handler)
+        return handler.future
+    }
+
+    override fun readAllAsync(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        return IOHelper.tryIOFuncAsync({
+            readAll(checkpoint, maxCount)
+        }, "ReadAllEventStreamsAsync")
+    }
+
+    private fun readAll(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        val handler = MySQLFindDomainEventsHandler(eventSerializer, serializeService, "$checkpoint#$maxCount")
+        val sql = String.format(SELECT_ALL_AFTER_ID_SQL, options.eventTableName)
+        sqlClient.preparedQuery(sql).execute(Tuple.of(checkpoint.toLongOrNull() ?: 0L, maxCount)).onComplete(handler)
+        return handler.future.thenApply { x -> EventStreamPage(x, handler.lastId ?: checkpoint) }
+    }
+
     companion object {
         private const val INSERT_EVENT_SQL =
             "INSERT INTO %s (aggregate_root_id, aggregate_root_type_name, command_id, version, gmt_create, events) VALUES (?, ?, ?, ?, ?, ?)"
@@ -140,6 +180,9 @@ open class MySQLEventStore(
         private const val SELECT_ONE_BY_VERSION_SQL = "SELECT * FROM %s WHERE aggregate_root_id = ? AND version = ?"
         private const val SELECT_ONE_BY_COMMAND_ID_SQL =
             "SELECT * FROM %s WHERE aggregate_root_id = ? AND command_id = ?"
+        private const val SELECT_MANY_BY_COMMAND_ID_SQL =
+            "SELECT * FROM %s WHERE aggregate_root_id = ? AND command_id IN (%s) ORDER BY version"
+        private const val SELECT_ALL_AFTER_ID_SQL = "SELECT * FROM %s WHERE id > ? ORDER BY id LIMIT ?"
     }
 
     init {
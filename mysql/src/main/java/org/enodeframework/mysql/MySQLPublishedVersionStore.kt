@@ -4,7 +4,9 @@ import io.vertx.mysqlclient.MySQLPool
 import io.vertx.sqlclient.Tuple
 import org.enodeframework.common.io.IOHelper
 import org.enodeframework.configurations.EventStoreOptions
+import org.enodeframework.eventing.AggregatePublishedVersion
 import org.enodeframework.eventing.PublishedVersionStore
+import org.enodeframework.mysql.handler.MySQLBatchFindPublishedVersionHandler
 import org.enodeframework.mysql.handler.MySQLFindPublishedVersionHandler
 import org.enodeframework.mysql.handler.MySQLUpsertPublishedVersionHandler
 import java.time.LocalDateTime
@@ -62,6 +64,44 @@ open class MySQLPublishedVersionStore(
         return handler.future
     }
 
+    override fun batchUpdatePublishedVersionAsync(
+        processorName: String, publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        if (publishedVersions.isEmpty()) {
+            return CompletableFuture.completedFuture(0)
+        }
+        //同一条语句中同一个聚合根只能出现一次，只保留最大的版本
+        val versions = publishedVersions.groupBy { x -> x.aggregateRootId }.values
+            .map { x -> x.maxByOrNull { y -> y.version }!! }
+        val futures = versions.chunked(BATCH_SIZE).map { chunk ->
+            IOHelper.tryIOFuncAsync({
+                batchUpdatePublishedVersion(processorName, chunk)
+            }, "BatchUpdatePublishedVersionAsync")
+        }
+        return CompletableFuture.allOf(*futures.toTypedArray()).thenApply { futures.sumOf { x -> x.join() } }
+    }
+
+    private fun batchUpdatePublishedVersion(
+        processorName: String, publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        val handler = MySQLUpsertPublishedVersionHandler(
+            options.publishedUkName, "$processorName#${publishedVersions.size}", false
+        )
+        val sql = String.format(
+            BATCH_UPSERT_SQL,
+            options.publishedTableName,
+            publishedVersions.joinToString(", ") { "(?, ?, ?, ?, ?)" }
+        )
+        val now = LocalDateTime.now()
+        val tuple = Tuple.tuple()
+        publishedVersions.forEach { x ->
+            tuple.addString(processorName).addString(x.aggregateRootTypeName).addString(x.aggregateRootId)
+                .addInteger(x.version).addLocalDateTime(now)
+        }
+        client.preparedQuery(sql).execute(tuple).onComplete(handler)
+        return handler.future
+    }
+
     override fun getPublishedVersionAsync(
         processorName: String, aggregateRootTypeName: String, aggregateRootId: String
     ): CompletableFuture<Int> {
@@ -79,12 +119,49 @@ open class MySQLPublishedVersionStore(
         return handler.future
     }
 
+    override fun batchGetPublishedVersionAsync(
+        processorName: String, aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val distinctIds = aggregateRootIds.distinct()
+        if (distinctIds.isEmpty()) {
+            return CompletableFuture.completedFuture(emptyMap())
+        }
+        val futures = distinctIds.chunked(BATCH_SIZE).map { chunk ->
+            IOHelper.tryIOFuncAsync({
+                batchGetPublishedVersion(processorName, chunk)
+            }, "BatchGetPublishedVersionAsync")
+        }
+        return CompletableFuture.allOf(*futures.toTypedArray()).thenApply {
+            //没有发布记录的聚合根版本为0
+            val versions = futures.flatMap { x -> x.join().entries }.associate { x -> x.key to x.value }
+            distinctIds.associateWith { x -> versions[x] ?: 0 }
+        }
+    }
+
+    private fun batchGetPublishedVersion(
+        processorName: String, aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val handler = MySQLBatchFindPublishedVersionHandler("$processorName#${aggregateRootIds.size}")
+        val sql = String.format(
+            BATCH_SELECT_SQL, options.publishedTableName, aggregateRootIds.joinToString(", ") { "?" }
+        )
+        val tuple = Tuple.tuple().addString(processorName)
+        aggregateRootIds.forEach { x -> tuple.addString(x) }
+        client.preparedQuery(sql).execute(tuple).onComplete(handler)
+        return handler.future
+    }
+
     companion object {
         private const val INSERT_SQL =
             "INSERT INTO %s (processor_name, aggregate_root_type_name, aggregate_root_id, version, gmt_create) VALUES (?, ?, ?, ?, ?)"
         private const val UPDATE_SQL =
             "UPDATE %s SET version = ?, gmt_create = ? WHERE processor_name = ? AND aggregate_root_id = ? AND version = ?"
         private const val SELECT_SQL = "SELECT version FROM %s WHERE processor_name = ? AND aggregate_root_id = ?"
+        private const val BATCH_UPSERT_SQL =
+            "INSERT INTO %s (processor_name, aggregate_root_type_name, aggregate_root_id, version, gmt_create) VALUES %s ON DUPLICATE KEY UPDATE version = GREATEST(version, VALUES(version)), gmt_create = VALUES(gmt_create)"
+        private const val BATCH_SELECT_SQL =
+            "SELECT aggregate_root_id, version FROM %s WHERE processor_name = ? AND aggregate_root_id IN (%s)"
+        private const val BATCH_SIZE = 1000
     }
 
 }
\ No newline at end of file
@@ -10,8 +10,11 @@ import org.enodeframework.common.exception.PublishedVersionStoreException
 import org.slf4j.LoggerFactory
 import java.util.concurrent.CompletableFuture
 
-class MySQLUpsertPublishedVersionHandler(private val publishedUkName: String, private val msg: String) :
-    Handler<AsyncResult<RowSet<Row>>> {
+class MySQLUpsertPublishedVersionHandler(
+    private val publishedUkName: String,
+    private val msg: String,
+    private val requireRowsUpdated: Boolean = true
+) : Handler<AsyncResult<RowSet<Row>>> {
 
     companion object {
         private val logger = LoggerFactory.getLogger(MySQLUpsertPublishedVersionHandler::class.java)
@@ -22,7 +25,7 @@ class MySQLUpsertPublishedVersionHandler(private val publishedUkName: String, pr
     override fun handle(ar: AsyncResult<RowSet<Row>>) {
 
         if (ar.succeeded()) {
-            if (ar.result().rowCount() == 0) {
+            if (requireRowsUpdated && ar.result().rowCount() == 0) {
                 future.completeExceptionally(
                     PublishedVersionStoreException(
                         String.format(
@@ -19,7 +19,7 @@ open class PgEventStore(
     options: EventStoreOptions,
     eventSerializer: EventSerializer,
     serializeService: SerializeService
-) : EventStore {
+) : EventStore, EventStreamReader {
 
     private val eventSerializer: EventSerializer
     private val serializeService: SerializeService
@@ -130,6 +130,42 @@ open class PgEventStore(
         return handler.future.thenApply { x -> x.firstOrNull() }
     }
 
+    override fun findByCommandIdsAsync(
+        aggregateRootId: String, commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        if (commandIds.isEmpty()) {
+            return CompletableFuture.completedFuture(emptyList())
+        }
+        return IOHelper.tryIOFuncAsync({
+            findByCommandIds(aggregateRootId, commandIds)
+        }, "FindEventByCommandIdsAsync")
+    }
+
+    private fun findByCommandIds(
+        aggregateRootId: String, commandIds: List<String>
+    ): CompletableFuture<List<DomainEventStream>> {
+        val handler = PgFindDomainEventsHandler(
+            eventSerializer, serializeService, "$aggregateRootId#${commandIds.joinToString(",")}"
+        )
+        val sql = String.format(SELECT_MANY_BY_COMMAND_ID_SQL, options.eventTableName)
+        pgPool.preparedQuery(sql).execute(Tuple.of(aggregateRootId, commandIds.distinct().toTypedArray()))
+            .onComplete(handler)
+        return handler.future
+    }
+
+    override fun readAllAsync(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        return IOHelper.tryIOFuncAsync({
+            readAll(checkpoint, maxCount)
+        }, "ReadAllEventStreamsAsync")
+    }
+
+    private fun readAll(checkpoint: String, maxCount: Int): CompletableFuture<EventStreamPage> {
+        val handler = PgFindDomainEventsHandler(eventSerializer, serializeService, "$checkpoint#$maxCount")
+        val sql = String.format(SELECT_ALL_AFTER_ID_SQL, options.eventTableName)
+        pgPool.preparedQuery(sql).execute(Tuple.of(checkpoint.toLongOrNull() ?: 0L, maxCount)).onComplete(handler)
+        return handler.future.thenApply { x -> EventStreamPage(x, handler.lastId ?: checkpoint) }
+    }
+
     companion object {
         private const val INSERT_EVENT_SQL =
             "INSERT INTO %s (aggregate_root_id, aggregate_root_type_name, command_id, version, gmt_create, events) VALUES ($1, $2, $3, $4, $5, $6)"
@@ -138,6 +174,9 @@ open class PgEventStore(
         private const val SELECT_ONE_BY_VERSION_SQL = "SELECT * FROM %s WHERE aggregate_root_id = $1 AND version = $2"
         private const val SELECT_ONE_BY_COMMAND_ID_SQL =
             "SELECT * FROM %s WHERE aggregate_root_id = $1 AND command_id = $2"
+        private const val SELECT_MANY_BY_COMMAND_ID_SQL =
+            "SELECT * FROM %s WHERE aggregate_root_id = $1 AND command_id = ANY($2) ORDER BY version"
+        private const val SELECT_ALL_AFTER_ID_SQL = "SELECT * FROM %s WHERE id > $1 ORDER BY id LIMIT $2"
     }
 
     init {
@@ -4,7 +4,9 @@ import io.vertx.pgclient.PgPool
 import io.vertx.sqlclient.Tuple
 import org.enodeframework.common.io.IOHelper
 import org.enodeframework.configurations.EventStoreOptions
+import org.enodeframework.eventing.AggregatePublishedVersion
 import org.enodeframework.eventing.PublishedVersionStore
+import org.enodeframework.pg.handler.PgBatchFindPublishedVersionHandler
 import org.enodeframework.pg.handler.PgFindPublishedVersionHandler
 import org.enodeframework.pg.handler.PgUpsertPublishedVersionHandler
 import java.time.LocalDateTime
@@ -61,6 +63,46 @@ open class PgPublishedVersionStore(
         return handler.future
     }
 
+    override fun batchUpdatePublishedVersionAsync(
+        processorName: String, publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        if (publishedVersions.isEmpty()) {
+            return CompletableFuture.completedFuture(0)
+        }
+        //同一条语句中同一个聚合根只能出现一次，只保留最大的版本
+        val versions = publishedVersions.groupBy { x -> x.aggregateRootId }.values
+            .map { x -> x.maxByOrNull { y -> y.version }!! }
+        val futures = versions.chunked(BATCH_SIZE).map { chunk ->
+            IOHelper.tryIOFuncAsync({
+                batchUpdatePublishedVersion(processorName, chunk)
+            }, "BatchUpdatePublishedVersionAsync")
+        }
+        return CompletableFuture.allOf(*futures.toTypedArray()).thenApply { futures.sumOf { x -> x.join() } }
+    }
+
+    private fun batchUpdatePublishedVersion(
+        processorName: String, publishedVersions: List<AggregatePublishedVersion>
+    ): CompletableFuture<Int> {
+        val handler = PgUpsertPublishedVersionHandler(
+            configuration.publishedUkName, "$processorName#${publishedVersions.size}", false
+        )
+        val sql = String.format(
+            BATCH_UPSERT_SQL,
+            configuration.publishedTableName,
+            publishedVersions.indices.joinToString(", ") { i ->
+                (1..5).joinToString(", ", "(", ")") { j -> "$" + (i * 5 + j) }
+            }
+        )
+        val now = LocalDateTime.now()
+        val tuple = Tuple.tuple()
+        publishedVersions.forEach { x ->
+            tuple.addString(processorName).addString(x.aggregateRootTypeName).addString(x.aggregateRootId)
+                .addInteger(x.version).addLocalDateTime(now)
+        }
+        sqlClient.preparedQuery(sql).execute(tuple).onComplete(handler)
+        return handler.future
+    }
+
     override fun getPublishedVersionAsync(
         processorName: String, aggregateRootTypeName: String, aggregateRootId: String
     ): CompletableFuture<Int> {
@@ -78,11 +120,50 @@ open class PgPublishedVersionStore(
         return handler.future
     }
 
+    override fun batchGetPublishedVersionAsync(
+        processorName: String, aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val distinctIds = aggregateRootIds.distinct()
+        if (distinctIds.isEmpty()) {
+            return CompletableFuture.completedFuture(emptyMap())
+        }
+        val futures = distinctIds.chunked(BATCH_SIZE).map { chunk ->
+            IOHelper.tryIOFuncAsync({
+                batchGetPublishedVersion(processorName, chunk)
+            }, "BatchGetPublishedVersionAsync")
+        }
+        return CompletableFuture.allOf(*futures.toTypedArray()).thenApply {
+            //没有发布记录的聚合根版本为0
+            val versions = futures.flatMap { x -> x.join().entries }.associate { x -> x.key to x.value }
+            distinctIds.associateWith { x -> versions[x] ?: 0 }
+        }
+    }
+
+    private fun batchGetPublishedVersion(
+        processorName: String, aggregateRootIds: List<String>
+    ): CompletableFuture<Map<String, Int>> {
+        val handler = PgBatchFindPublishedVersionHandler("$processorName#${aggregateRootIds.size}")
+        val sql = String.format(
+            BATCH_SELECT_SQL,
+            configuration.publishedTableName,
+            aggregateRootIds.indices.joinToString(", ") { i -> "$" + (i + 2) }
+        )
+        val tuple = Tuple.tuple().addString(processorName)
+        aggregateRootIds.forEach { x -> tuple.addString(x) }
+        sqlClient.preparedQuery(sql).execute(tuple).onComplete(handler)
+        return handler.future
+    }
+
     companion object {
         private const val INSERT_SQL =
             "INSERT INTO %s (processor_name, aggregate_root_type_name, aggregate_root_id, version, gmt_create) VALUES ($1, $2, $3, $4, $5)"
         private const val UPDATE_SQL =
             "UPDATE %s SET version = $1, gmt_create = $2 WHERE processor_name = $3 AND aggregate_root_id = $4 AND version = $5"
         private const val SELECT_SQL = "SELECT version FROM %s WHERE processor_name = $1 AND aggregate_root_id = $2"
+        private const val BATCH_UPSERT_SQL =
+            "INSERT INTO %s AS t (processor_name, aggregate_root_type_name, aggregate_root_id, version, gmt_create) VALUES %s ON CONFLICT (processor_name, aggregate_root_id) DO UPDATE SET version = GREATEST(t.version, EXCLUDED.version), gmt_create = EXCLUDED.gmt_create"
+        private const val BATCH_SELECT_SQL =
+            "SELECT aggregate_root_id, version FROM %s WHERE processor_name = $1 AND aggregate_root_id IN (%s)"
+        private const val BATCH_SIZE = 1000
     }
 }
\ No newline at end of file
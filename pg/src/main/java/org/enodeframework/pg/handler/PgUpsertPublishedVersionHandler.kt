@@ -10,8 +10,11 @@ import org.enodeframework.common.exception.PublishedVersionStoreException
 import org.slf4j.LoggerFactory
 import java.util.concurrent.CompletableFuture
 
-class PgUpsertPublishedVersionHandler(private val publishedUkName: String, private val msg: String) :
-    Handler<AsyncResult<RowSet<Row>>> {
+class PgUpsertPublishedVersionHandler(
+    private val publishedUkName: String,
+    private val msg: String,
+    private val requireRowsUpdated: Boolean = true
+) : Handler<AsyncResult<RowSet<Row>>> {
 
     companion object {
         private val logger = LoggerFactory.getLogger(PgUpsertPublishedVersionHandler::class.java)
@@ -21,7 +24,7 @@ class PgUpsertPublishedVersionHandler(private val publishedUkName: String, priva
 
     override fun handle(ar: AsyncResult<RowSet<Row>>) {
         if (ar.succeeded()) {
-            if (ar.result().rowCount() == 0) {
+            if (requireRowsUpdated && ar.result().rowCount() == 0) {
                 future.completeExceptionally(
                     PublishedVersionStoreException(String.format("version update rows is 0. %s", msg))
                 )
@@ -5,6 +5,8 @@ import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageListener;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.enodeframework.common.exception.IORuntimeException;
+import org.enodeframework.queue.MessageFlowController;
+import org.enodeframework.queue.MessageFlowListener;
 import org.enodeframework.queue.MessageHandler;
 import org.enodeframework.queue.QueueMessage;
 import org.slf4j.Logger;
@@ -12,38 +14,69 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author anruence@gmail.com
  */
-public class PulsarMessageListener implements MessageListener<byte[]> {
+public class PulsarMessageListener implements MessageListener<byte[]>, MessageFlowListener {
 
     private static final Logger logger = LoggerFactory.getLogger(PulsarMessageListener.class);
 
     private final Map<Character, MessageHandler> messageHandlerMap;
 
+    private final MessageFlowController messageFlowController;
+
+    /**
+     * 收到过消息的consumer，流控时统一暂停和恢复
+     */
+    private final Set<Consumer<byte[]>> consumers = ConcurrentHashMap.newKeySet();
+
     public PulsarMessageListener(Map<Character, MessageHandler> messageHandlerMap) {
+        this(messageHandlerMap, MessageFlowController.UNBOUNDED);
+    }
+
+    public PulsarMessageListener(Map<Character, MessageHandler> messageHandlerMap, MessageFlowController messageFlowController) {
         this.messageHandlerMap = messageHandlerMap;
+        this.messageFlowController = messageFlowController;
+        this.messageFlowController.addListener(this);
     }
 
     @Override
     public void received(Consumer<byte[]> consumer, Message<byte[]> msg) {
+        if (messageFlowController.isBounded() && consumers.add(consumer) && messageFlowController.isPaused()) {
+            consumer.pause();
+        }
         QueueMessage queueMessage = this.toQueueMessage(msg);
         MessageHandler messageHandler = messageHandlerMap.get(queueMessage.getType());
         if (messageHandler == null) {
             logger.error("No messageHandler for message: {}.", queueMessage);
             return;
         }
+        messageFlowController.acquire();
         messageHandler.handle(queueMessage, x -> {
             try {
                 consumer.acknowledge(msg);
             } catch (PulsarClientException e) {
                 logger.error("Acknowledge message fail: {}.", queueMessage, e);
                 throw new IORuntimeException(e);
+            } finally {
+                messageFlowController.release();
             }
         });
     }
 
+    @Override
+    public void pause() {
+        consumers.forEach(Consumer::pause);
+    }
+
+    @Override
+    public void resume() {
+        consumers.forEach(Consumer::resume);
+    }
+
     private QueueMessage toQueueMessage(Message<byte[]> messageExt) {
         QueueMessage queueMessage = new QueueMessage();
         String value = new String(messageExt.getValue(), StandardCharsets.UTF_8);
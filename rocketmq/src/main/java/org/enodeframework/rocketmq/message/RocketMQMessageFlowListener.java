@@ -0,0 +1,33 @@
+package org.enodeframework.rocketmq.message;
+
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.enodeframework.queue.MessageFlowListener;
+
+/**
+ * 通过挂起和恢复PushConsumer的拉取实现流控，已经拉取到本地的消息仍会继续消费
+ *
+ * @author anruence@gmail.com
+ */
+public class RocketMQMessageFlowListener implements MessageFlowListener {
+
+    private final DefaultMQPushConsumer consumer;
+
+    public RocketMQMessageFlowListener(DefaultMQPushConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void pause() {
+        consumer.suspend();
+    }
+
+    @Override
+    public void resume() {
+        consumer.resume();
+    }
+
+    @Override
+    public String toString() {
+        return "RocketMQMessageFlowListener{consumerGroup=" + consumer.getConsumerGroup() + "}";
+    }
+}
\ No newline at end of file
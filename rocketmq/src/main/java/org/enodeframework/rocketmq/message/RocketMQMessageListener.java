@@ -5,6 +5,7 @@ import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
 import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.enodeframework.common.io.Task;
+import org.enodeframework.queue.MessageFlowController;
 import org.enodeframework.queue.MessageHandler;
 import org.enodeframework.queue.QueueMessage;
 import org.slf4j.Logger;
@@ -24,8 +25,19 @@ public class RocketMQMessageListener implements MessageListenerConcurrently {
 
     private final Map<Character, MessageHandler> messageHandlerMap;
 
+    private final MessageFlowController messageFlowController;
+
     public RocketMQMessageListener(Map<Character, MessageHandler> messageHandlerMap) {
+        this(messageHandlerMap, MessageFlowController.UNBOUNDED);
+    }
+
+    public RocketMQMessageListener(Map<Character, MessageHandler> messageHandlerMap, MessageFlowController messageFlowController) {
         this.messageHandlerMap = messageHandlerMap;
+        this.messageFlowController = messageFlowController;
+    }
+
+    public MessageFlowController getMessageFlowController() {
+        return messageFlowController;
     }
 
     @Override
@@ -39,8 +51,10 @@ public class RocketMQMessageListener implements MessageListenerConcurrently {
                 latch.countDown();
                 return;
             }
+            messageFlowController.acquire();
             messageHandler.handle(queueMessage, message -> {
                 latch.countDown();
+                messageFlowController.release();
             });
         });
         Task.await(latch);
@@ -56,6 +70,8 @@ public class RocketMQMessageListener implements MessageListenerConcurrently {
         queueMessage.setTopic(messageExt.getTopic());
         queueMessage.setTag(messageExt.getTags());
         queueMessage.setKey(messageExt.getKeys());
+        queueMessage.setPartition(messageExt.getTopic() + "@" + messageExt.getBrokerName() + "@" + messageExt.getQueueId());
+        queueMessage.setOffset(messageExt.getQueueOffset());
         return queueMessage;
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.enodeframework.spring;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import kotlinx.coroutines.Dispatchers;
 import org.enodeframework.commanding.CommandHandlerProvider;
@@ -12,6 +13,7 @@ import org.enodeframework.common.scheduling.DefaultScheduleService;
 import org.enodeframework.common.scheduling.ScheduleService;
 import org.enodeframework.common.serializing.DefaultSerializeService;
 import org.enodeframework.common.serializing.SerializeService;
+import org.enodeframework.configurations.ProjectionRebuildOptions;
 import org.enodeframework.domain.AggregateRepositoryProvider;
 import org.enodeframework.domain.AggregateRootFactory;
 import org.enodeframework.domain.AggregateSnapshotter;
@@ -31,24 +33,31 @@ import org.enodeframework.eventing.DomainEventStream;
 import org.enodeframework.eventing.EventCommittingService;
 import org.enodeframework.eventing.EventSerializer;
 import org.enodeframework.eventing.EventStore;
+import org.enodeframework.eventing.EventStreamReader;
 import org.enodeframework.eventing.ProcessingEventProcessor;
 import org.enodeframework.eventing.PublishedVersionStore;
 import org.enodeframework.eventing.impl.DefaultEventCommittingService;
 import org.enodeframework.eventing.impl.DefaultEventSerializer;
 import org.enodeframework.eventing.impl.DefaultProcessingEventProcessor;
+import org.enodeframework.eventing.impl.DefaultProjectionRebuilder;
+import org.enodeframework.eventing.impl.OffsetCheckpointProcessingEventProcessor;
+import org.enodeframework.eventing.impl.WriteBehindPublishedVersionStore;
 import org.enodeframework.infrastructure.TypeNameProvider;
 import org.enodeframework.infrastructure.impl.DefaultTypeNameProvider;
 import org.enodeframework.messaging.ApplicationMessage;
+import org.enodeframework.messaging.BatchMessageHandlerProvider;
 import org.enodeframework.messaging.MessageDispatcher;
 import org.enodeframework.messaging.MessageHandlerProvider;
 import org.enodeframework.messaging.MessagePublisher;
 import org.enodeframework.messaging.ThreeMessageHandlerProvider;
 import org.enodeframework.messaging.TwoMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultBatchMessageHandlerProvider;
 import org.enodeframework.messaging.impl.DefaultMessageDispatcher;
 import org.enodeframework.messaging.impl.DefaultMessageHandlerProvider;
 import org.enodeframework.messaging.impl.DefaultThreeMessageHandlerProvider;
 import org.enodeframework.messaging.impl.DefaultTwoMessageHandlerProvider;
 import org.enodeframework.queue.DefaultSendReplyService;
+import org.enodeframework.queue.MessageFlowController;
 import org.enodeframework.queue.SendMessageService;
 import org.enodeframework.queue.SendReplyService;
 import org.enodeframework.queue.applicationmessage.DefaultApplicationMessageHandler;
@@ -65,6 +74,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 
 /**
  * @author anruence@gmail.com
@@ -89,6 +99,42 @@ public class EnodeAutoConfiguration {
     @Value("${spring.enode.server.wait.timeout:10000}")
     private int timeout;
 
+    @Value("${spring.enode.publishedversion.write-behind.batch-size:1000}")
+    private int publishedVersionBatchSize;
+
+    @Value("${spring.enode.publishedversion.write-behind.flush-interval-milliseconds:10}")
+    private int publishedVersionFlushIntervalMilliseconds;
+
+    @Value("${spring.enode.eventprocessor.batch-size:100}")
+    private int eventProcessorBatchSize;
+
+    @Value("${spring.enode.eventprocessor.skip-missing-version-timeout-milliseconds:0}")
+    private long skipMissingVersionTimeoutMilliseconds;
+
+    @Value("${spring.enode.handler.max-concurrency:0}")
+    private int handlerMaxConcurrency;
+
+    @Value("${spring.enode.mq.flow.max-in-flight:0}")
+    private int mqMaxInFlight;
+
+    @Value("${spring.enode.mq.flow.resume-in-flight:-1}")
+    private int mqResumeInFlight;
+
+    @Value("${spring.enode.projection-rebuild.processor-name:DefaultEventProcessor}")
+    private String rebuildProcessorName;
+
+    @Value("${spring.enode.projection-rebuild.handler-types:}")
+    private Class<?>[] rebuildHandlerTypes;
+
+    @Value("${spring.enode.projection-rebuild.page-size:1000}")
+    private int rebuildPageSize;
+
+    @Value("${spring.enode.projection-rebuild.parallelism:0}")
+    private int rebuildParallelism;
+
+    @Value("${spring.enode.projection-rebuild.checkpoint-event-stream-count:10000}")
+    private int rebuildCheckpointEventStreamCount;
+
     @Bean(name = "defaultCommandResultProcessor")
     @ConditionalOnProperty(prefix = "spring.enode", name = "server.port")
     public DefaultCommandResultProcessor defaultCommandResultProcessor(ScheduleService scheduleService, SerializeService serializeService) {
@@ -112,8 +158,28 @@ public class EnodeAutoConfiguration {
     }
 
     @Bean(name = "defaultProcessingEventProcessor", initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "spring.enode.eventprocessor", name = "checkpoint-mode", havingValue = "published-version", matchIfMissing = true)
     public DefaultProcessingEventProcessor defaultProcessingEventProcessor(ScheduleService scheduleService, SerializeService serializeService, MessageDispatcher messageDispatcher, PublishedVersionStore publishedVersionStore) {
-        return new DefaultProcessingEventProcessor(scheduleService, serializeService, messageDispatcher, publishedVersionStore, Dispatchers.getIO());
+        return new DefaultProcessingEventProcessor(scheduleService, serializeService, messageDispatcher, publishedVersionStore, Dispatchers.getIO(), eventProcessorBatchSize);
+    }
+
+    /**
+     * 包装实际的PublishedVersionStore，注入时排除自身，所以这里拿到的是实际的存储；作为Primary后其他地方注入的都是写后批量的版本
+     */
+    @Bean(name = "writeBehindPublishedVersionStore", initMethod = "start", destroyMethod = "stop")
+    @Primary
+    @ConditionalOnProperty(prefix = "spring.enode.publishedversion.write-behind", name = "enabled", havingValue = "true")
+    public WriteBehindPublishedVersionStore writeBehindPublishedVersionStore(PublishedVersionStore publishedVersionStore, ScheduleService scheduleService) {
+        return new WriteBehindPublishedVersionStore(publishedVersionStore, scheduleService, publishedVersionBatchSize, publishedVersionFlushIntervalMilliseconds);
+    }
+
+    /**
+     * 处理方法幂等时可以使用MQ的分区位点记录进度，不再读写PublishedVersionStore
+     */
+    @Bean(name = "offsetCheckpointProcessingEventProcessor", initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "spring.enode.eventprocessor", name = "checkpoint-mode", havingValue = "offset")
+    public OffsetCheckpointProcessingEventProcessor offsetCheckpointProcessingEventProcessor(ScheduleService scheduleService, SerializeService serializeService, MessageDispatcher messageDispatcher) {
+        return new OffsetCheckpointProcessingEventProcessor(scheduleService, serializeService, messageDispatcher, Dispatchers.getIO(), eventProcessorBatchSize, skipMissingVersionTimeoutMilliseconds);
     }
 
     @Bean(name = "defaultEventSerializer")
@@ -132,9 +198,35 @@ public class EnodeAutoConfiguration {
         MessageHandlerProvider messageHandlerProvider,
         TwoMessageHandlerProvider twoMessageHandlerProvider,
         ThreeMessageHandlerProvider threeMessageHandlerProvider,
+        BatchMessageHandlerProvider batchMessageHandlerProvider,
         SerializeService serializeService
     ) {
-        return new DefaultMessageDispatcher(typeNameProvider, messageHandlerProvider, twoMessageHandlerProvider, threeMessageHandlerProvider, serializeService, Dispatchers.getIO());
+        return new DefaultMessageDispatcher(typeNameProvider, messageHandlerProvider, twoMessageHandlerProvider, threeMessageHandlerProvider, batchMessageHandlerProvider, serializeService, Dispatchers.getIO(), handlerMaxConcurrency);
+    }
+
+    /**
+     * 配置了被重建的处理器类型时才创建，事件只分发给这些处理器
+     */
+    @Bean(name = "defaultProjectionRebuilder")
+    @ConditionalOnProperty(prefix = "spring.enode.projection-rebuild", name = "handler-types")
+    public DefaultProjectionRebuilder defaultProjectionRebuilder(EventStreamReader eventStreamReader, MessageDispatcher messageDispatcher, PublishedVersionStore publishedVersionStore) {
+        ProjectionRebuildOptions options = new ProjectionRebuildOptions();
+        options.setProcessorName(rebuildProcessorName);
+        options.setHandlerTypes(rebuildHandlerTypes == null ? Lists.newArrayList() : Lists.newArrayList(rebuildHandlerTypes));
+        options.setPageSize(rebuildPageSize);
+        if (rebuildParallelism > 0) {
+            options.setParallelism(rebuildParallelism);
+        }
+        options.setCheckpointEventStreamCount(rebuildCheckpointEventStreamCount);
+        return new DefaultProjectionRebuilder(eventStreamReader, messageDispatcher, publishedVersionStore, options);
+    }
+
+    @Bean(name = "enodeMessageFlowController")
+    public MessageFlowController enodeMessageFlowController() {
+        if (mqResumeInFlight < 0) {
+            return new MessageFlowController(mqMaxInFlight);
+        }
+        return new MessageFlowController(mqMaxInFlight, mqResumeInFlight);
     }
 
     @Bean(name = "defaultRepository")
@@ -167,6 +259,11 @@ public class EnodeAutoConfiguration {
         return new DefaultMessageHandlerProvider();
     }
 
+    @Bean(name = "defaultBatchMessageHandlerProvider")
+    public DefaultBatchMessageHandlerProvider defaultBatchMessageHandlerProvider() {
+        return new DefaultBatchMessageHandlerProvider();
+    }
+
     @Bean(name = "defaultCommandHandlerProvider")
     public DefaultCommandHandlerProvider defaultCommandHandlerProvider() {
         return new DefaultCommandHandlerProvider();
@@ -27,6 +27,7 @@ public class EnodeConfigurationSelector implements DeferredImportSelector {
             EnodePgEventStoreAutoConfig.class.getName(),
             EnodeMySQLEventStoreAutoConfig.class.getName(),
             EnodeMongoEventStoreAutoConfig.class.getName(),
+            EnodeFileEventStoreAutoConfig.class.getName(),
             EnodeKafkaAutoConfiguration.class.getName(),
             EnodeOnsAutoConfig.class.getName(),
             EnodePulsarAutoConfig.class.getName(),
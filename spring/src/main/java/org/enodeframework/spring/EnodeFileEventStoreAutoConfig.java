@@ -0,0 +1,49 @@
+package org.enodeframework.spring;
+
+import org.enodeframework.common.serializing.SerializeService;
+import org.enodeframework.eventing.EventSerializer;
+import org.enodeframework.file.FileEventStore;
+import org.enodeframework.file.FilePublishedVersionStore;
+import org.enodeframework.file.FileStoreOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+@ConditionalOnProperty(prefix = "spring.enode", name = "eventstore", havingValue = "file")
+public class EnodeFileEventStoreAutoConfig {
+
+    @Value("${spring.enode.eventstore.file.store-path:./enode-store}")
+    private String storePath;
+
+    @Value("${spring.enode.eventstore.file.segment-size:67108864}")
+    private int segmentSize;
+
+    @Value("${spring.enode.eventstore.file.flush-interval-milliseconds:1}")
+    private int flushIntervalMilliseconds;
+
+    @Value("${spring.enode.eventstore.file.compact-segment-count:4}")
+    private int compactSegmentCount;
+
+    @Value("${spring.enode.eventstore.file.index-cache-size:100000}")
+    private int indexCacheSize;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public FileEventStore fileEventStore(EventSerializer eventSerializer, SerializeService serializeService) {
+        return new FileEventStore(fileStoreOptions(), eventSerializer, serializeService);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public FilePublishedVersionStore filePublishedVersionStore() {
+        return new FilePublishedVersionStore(fileStoreOptions());
+    }
+
+    private FileStoreOptions fileStoreOptions() {
+        FileStoreOptions options = new FileStoreOptions();
+        options.setStorePath(storePath);
+        options.setSegmentSize(segmentSize);
+        options.setFlushIntervalMilliseconds(flushIntervalMilliseconds);
+        options.setCompactSegmentCount(compactSegmentCount);
+        options.setIndexCacheSize(indexCacheSize);
+        return options;
+    }
+}
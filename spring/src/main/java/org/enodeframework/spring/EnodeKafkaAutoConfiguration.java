@@ -1,13 +1,20 @@
 package org.enodeframework.spring;
 
+import org.enodeframework.kafka.KafkaBatchMessageListener;
+import org.enodeframework.kafka.KafkaMessageFlowListener;
 import org.enodeframework.kafka.KafkaMessageListener;
 import org.enodeframework.kafka.KafkaSendMessageService;
+import org.enodeframework.queue.MessageFlowController;
 import org.enodeframework.queue.MessageHandler;
 import org.enodeframework.queue.MessageTypeCode;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -15,26 +22,76 @@ import java.util.Map;
 @ConditionalOnProperty(prefix = "spring.enode", name = "mq", havingValue = "kafka")
 public class EnodeKafkaAutoConfiguration {
 
+    @Value("${spring.enode.mq.kafka.batch-listener.commit-interval-milliseconds:1000}")
+    private int batchListenerCommitIntervalMilliseconds;
+
     @Bean(name = "kafkaDomainEventListener")
     @ConditionalOnProperty(prefix = "spring.enode.mq.topic", name = "event")
     public KafkaMessageListener publishableExceptionListener(
         @Qualifier(value = "defaultPublishableExceptionMessageHandler") MessageHandler defaultPublishableExceptionMessageHandler,
         @Qualifier(value = "defaultApplicationMessageHandler") MessageHandler defaultApplicationMessageHandler,
-        @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler
+        @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler,
+        @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController
     ) {
         Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
         messageHandlerMap.put(MessageTypeCode.DomainEventMessage.getValue(), defaultDomainEventMessageHandler);
         messageHandlerMap.put(MessageTypeCode.ApplicationMessage.getValue(), defaultApplicationMessageHandler);
         messageHandlerMap.put(MessageTypeCode.ExceptionMessage.getValue(), defaultPublishableExceptionMessageHandler);
-        return new KafkaMessageListener(messageHandlerMap);
+        return new KafkaMessageListener(messageHandlerMap, messageFlowController);
     }
 
     @Bean(name = "kafkaCommandListener")
     @ConditionalOnProperty(prefix = "spring.enode.mq.topic", name = "command")
-    public KafkaMessageListener commandListener(@Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler) {
+    public KafkaMessageListener commandListener(
+        @Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler,
+        @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController
+    ) {
+        Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
+        messageHandlerMap.put(MessageTypeCode.CommandMessage.getValue(), defaultCommandMessageHandler);
+        return new KafkaMessageListener(messageHandlerMap, messageFlowController);
+    }
+
+    @Bean(name = "kafkaBatchDomainEventListener")
+    @ConditionalOnProperty(prefix = "spring.enode.mq.kafka", name = "batch-listener.enabled", havingValue = "true")
+    public KafkaBatchMessageListener kafkaBatchDomainEventListener(
+        @Qualifier(value = "defaultPublishableExceptionMessageHandler") MessageHandler defaultPublishableExceptionMessageHandler,
+        @Qualifier(value = "defaultApplicationMessageHandler") MessageHandler defaultApplicationMessageHandler,
+        @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler,
+        @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController
+    ) {
+        Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
+        messageHandlerMap.put(MessageTypeCode.DomainEventMessage.getValue(), defaultDomainEventMessageHandler);
+        messageHandlerMap.put(MessageTypeCode.ApplicationMessage.getValue(), defaultApplicationMessageHandler);
+        messageHandlerMap.put(MessageTypeCode.ExceptionMessage.getValue(), defaultPublishableExceptionMessageHandler);
+        return new KafkaBatchMessageListener(messageHandlerMap, messageFlowController, batchListenerCommitIntervalMilliseconds);
+    }
+
+    @Bean(name = "kafkaBatchCommandListener")
+    @ConditionalOnProperty(prefix = "spring.enode.mq.kafka", name = "batch-listener.enabled", havingValue = "true")
+    public KafkaBatchMessageListener kafkaBatchCommandListener(
+        @Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler,
+        @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController
+    ) {
         Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
         messageHandlerMap.put(MessageTypeCode.CommandMessage.getValue(), defaultCommandMessageHandler);
-        return new KafkaMessageListener(messageHandlerMap);
+        return new KafkaBatchMessageListener(messageHandlerMap, messageFlowController, batchListenerCommitIntervalMilliseconds);
+    }
+
+    /**
+     * 监听容器由使用方创建，启动前找到使用KafkaMessageListener或KafkaBatchMessageListener的容器，注册到流控中
+     */
+    @Bean(name = "kafkaMessageFlowRegistrar")
+    public SmartInitializingSingleton kafkaMessageFlowRegistrar(ListableBeanFactory beanFactory) {
+        return () -> beanFactory.getBeansOfType(AbstractMessageListenerContainer.class).values().forEach(container -> {
+            Object messageListener = container.getContainerProperties().getMessageListener();
+            if (messageListener instanceof KafkaMessageListener) {
+                MessageFlowController messageFlowController = ((KafkaMessageListener) messageListener).getMessageFlowController();
+                messageFlowController.addListener(new KafkaMessageFlowListener(container));
+            } else if (messageListener instanceof KafkaBatchMessageListener) {
+                MessageFlowController messageFlowController = ((KafkaBatchMessageListener) messageListener).getMessageFlowController();
+                messageFlowController.addListener(new KafkaMessageFlowListener(container));
+            }
+        });
     }
 
     @Bean(name = "kafkaSendMessageService")
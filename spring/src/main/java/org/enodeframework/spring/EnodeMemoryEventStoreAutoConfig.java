@@ -2,15 +2,19 @@ package org.enodeframework.spring;
 
 import org.enodeframework.eventing.impl.InMemoryEventStore;
 import org.enodeframework.eventing.impl.InMemoryPublishedVersionStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 
 @ConditionalOnProperty(prefix = "spring.enode", name = "eventstore", havingValue = "memory", matchIfMissing = true)
 public class EnodeMemoryEventStoreAutoConfig {
 
+    @Value("${spring.enode.eventstore.memory.max-event-stream-count:0}")
+    private long maxEventStreamCount;
+
     @Bean
     public InMemoryEventStore inMemoryEventStore() {
-        return new InMemoryEventStore();
+        return new InMemoryEventStore(maxEventStreamCount);
     }
 
     @Bean
@@ -3,6 +3,7 @@ package org.enodeframework.spring;
 import org.apache.pulsar.client.api.Producer;
 import org.enode.pulsar.message.PulsarMessageListener;
 import org.enode.pulsar.message.PulsarSendMessageService;
+import org.enodeframework.queue.MessageFlowController;
 import org.enodeframework.queue.MessageHandler;
 import org.enodeframework.queue.MessageTypeCode;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -32,20 +33,20 @@ public class EnodePulsarAutoConfig {
 
     @Bean(name = "pulsarDomainEventListener")
     @ConditionalOnProperty(prefix = "spring.enode.mq.topic", name = "event")
-    public PulsarMessageListener pulsarDomainEventListener(@Qualifier(value = "defaultPublishableExceptionMessageHandler") MessageHandler defaultPublishableExceptionMessageHandler, @Qualifier(value = "defaultApplicationMessageHandler") MessageHandler defaultApplicationMessageHandler, @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler) {
+    public PulsarMessageListener pulsarDomainEventListener(@Qualifier(value = "defaultPublishableExceptionMessageHandler") MessageHandler defaultPublishableExceptionMessageHandler, @Qualifier(value = "defaultApplicationMessageHandler") MessageHandler defaultApplicationMessageHandler, @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler, @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController) {
         Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
         messageHandlerMap.put(MessageTypeCode.DomainEventMessage.getValue(), defaultDomainEventMessageHandler);
         messageHandlerMap.put(MessageTypeCode.ApplicationMessage.getValue(), defaultApplicationMessageHandler);
         messageHandlerMap.put(MessageTypeCode.ExceptionMessage.getValue(), defaultPublishableExceptionMessageHandler);
-        return new PulsarMessageListener(messageHandlerMap);
+        return new PulsarMessageListener(messageHandlerMap, messageFlowController);
     }
 
     @Bean(name = "pulsarCommandListener")
     @ConditionalOnProperty(prefix = "spring.enode.mq.topic", name = "command")
-    public PulsarMessageListener pulsarCommandListener(@Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler) {
+    public PulsarMessageListener pulsarCommandListener(@Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler, @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController) {
         Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
         messageHandlerMap.put(MessageTypeCode.CommandMessage.getValue(), defaultCommandMessageHandler);
-        return new PulsarMessageListener(messageHandlerMap);
+        return new PulsarMessageListener(messageHandlerMap, messageFlowController);
     }
 
     @Bean(name = "pulsarSendMessageService")
@@ -1,10 +1,15 @@
 package org.enodeframework.spring;
 
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
 import org.apache.rocketmq.client.producer.MQProducer;
+import org.enodeframework.queue.MessageFlowController;
 import org.enodeframework.queue.MessageHandler;
 import org.enodeframework.queue.MessageTypeCode;
+import org.enodeframework.rocketmq.message.RocketMQMessageFlowListener;
 import org.enodeframework.rocketmq.message.RocketMQMessageListener;
 import org.enodeframework.rocketmq.message.RocketMQSendMessageService;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -17,20 +22,33 @@ public class EnodeRocketMQAutoConfig {
 
     @Bean(name = "rocketMQDomainEventListener")
     @ConditionalOnProperty(prefix = "spring.enode.mq.topic", name = "event")
-    public RocketMQMessageListener rocketMQDomainEventListener(@Qualifier(value = "defaultPublishableExceptionMessageHandler") MessageHandler defaultPublishableExceptionMessageHandler, @Qualifier(value = "defaultApplicationMessageHandler") MessageHandler defaultApplicationMessageHandler, @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler) {
+    public RocketMQMessageListener rocketMQDomainEventListener(@Qualifier(value = "defaultPublishableExceptionMessageHandler") MessageHandler defaultPublishableExceptionMessageHandler, @Qualifier(value = "defaultApplicationMessageHandler") MessageHandler defaultApplicationMessageHandler, @Qualifier(value = "defaultDomainEventMessageHandler") MessageHandler defaultDomainEventMessageHandler, @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController) {
         Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
         messageHandlerMap.put(MessageTypeCode.DomainEventMessage.getValue(), defaultDomainEventMessageHandler);
         messageHandlerMap.put(MessageTypeCode.ApplicationMessage.getValue(), defaultApplicationMessageHandler);
         messageHandlerMap.put(MessageTypeCode.ExceptionMessage.getValue(), defaultPublishableExceptionMessageHandler);
-        return new RocketMQMessageListener(messageHandlerMap);
+        return new RocketMQMessageListener(messageHandlerMap, messageFlowController);
     }
 
     @Bean(name = "rocketMQCommandListener")
     @ConditionalOnProperty(prefix = "spring.enode.mq.topic", name = "command")
-    public RocketMQMessageListener rocketMQCommandListener(@Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler) {
+    public RocketMQMessageListener rocketMQCommandListener(@Qualifier(value = "defaultCommandMessageHandler") MessageHandler defaultCommandMessageHandler, @Qualifier(value = "enodeMessageFlowController") MessageFlowController messageFlowController) {
         Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
         messageHandlerMap.put(MessageTypeCode.CommandMessage.getValue(), defaultCommandMessageHandler);
-        return new RocketMQMessageListener(messageHandlerMap);
+        return new RocketMQMessageListener(messageHandlerMap, messageFlowController);
+    }
+
+    /**
+     * PushConsumer由使用方创建，找到使用RocketMQMessageListener的consumer，注册到流控中
+     */
+    @Bean(name = "rocketMQMessageFlowRegistrar")
+    public SmartInitializingSingleton rocketMQMessageFlowRegistrar(ListableBeanFactory beanFactory) {
+        return () -> beanFactory.getBeansOfType(DefaultMQPushConsumer.class).values().forEach(consumer -> {
+            if (consumer.getMessageListener() instanceof RocketMQMessageListener) {
+                MessageFlowController messageFlowController = ((RocketMQMessageListener) consumer.getMessageListener()).getMessageFlowController();
+                messageFlowController.addListener(new RocketMQMessageFlowListener(consumer));
+            }
+        });
     }
 
     @Bean(name = "rocketMQSendMessageService")
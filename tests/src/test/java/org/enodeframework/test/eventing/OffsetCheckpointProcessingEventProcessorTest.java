@@ -0,0 +1,157 @@
+package org.enodeframework.test.eventing;
+
+import kotlinx.coroutines.Dispatchers;
+import org.enodeframework.common.scheduling.DefaultScheduleService;
+import org.enodeframework.common.serializing.DefaultSerializeService;
+import org.enodeframework.eventing.DomainEventMessage;
+import org.enodeframework.eventing.DomainEventStream;
+import org.enodeframework.eventing.EventProcessContext;
+import org.enodeframework.eventing.ProcessingEvent;
+import org.enodeframework.eventing.impl.OffsetCheckpointProcessingEventProcessor;
+import org.enodeframework.messaging.Message;
+import org.enodeframework.messaging.MessageDispatcher;
+import org.enodeframework.test.domain.TestAggregateCreated;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class OffsetCheckpointProcessingEventProcessorTest {
+
+    private static final String PARTITION = "topic-0";
+
+    private final RecordingMessageDispatcher messageDispatcher = new RecordingMessageDispatcher();
+
+    private final List<Long> ackedOffsets = Collections.synchronizedList(new ArrayList<>());
+
+    private OffsetCheckpointProcessingEventProcessor processor;
+
+    @After
+    public void after() {
+        if (processor != null) {
+            processor.stop();
+        }
+    }
+
+    @Test
+    public void lower_version_arriving_after_mailbox_start_is_dispatched() throws InterruptedException {
+        processor = newProcessor(0);
+        processor.process(newProcessingEvent("a1", 2, 0));
+        processor.process(newProcessingEvent("a1", 1, 1));
+
+        waitUntil(() -> ackedOffsets.size() == 2);
+        //v1比MailBox的起始版本低，没有被MailBox处理过，不能当作重复事件直接确认
+        Assert.assertTrue(messageDispatcher.dispatchedVersions.containsKey(1));
+        Assert.assertTrue(messageDispatcher.dispatchedVersions.containsKey(2));
+        Assert.assertEquals(1L, processor.getCheckpoints().get(PARTITION).longValue());
+    }
+
+    @Test
+    public void redelivered_version_handled_by_mailbox_is_acked_without_dispatch() throws InterruptedException {
+        processor = newProcessor(0);
+        processor.process(newProcessingEvent("a1", 1, 0));
+        processor.process(newProcessingEvent("a1", 2, 1));
+        waitUntil(() -> ackedOffsets.size() == 2);
+
+        processor.process(newProcessingEvent("a1", 1, 2));
+
+        waitUntil(() -> ackedOffsets.size() == 3);
+        Assert.assertEquals(1, messageDispatcher.dispatchedVersions.get(1).intValue());
+    }
+
+    @Test
+    public void version_gap_waits_when_skip_is_disabled() throws InterruptedException {
+        processor = newProcessor(0);
+        processor.start();
+        processor.process(newProcessingEvent("a1", 1, 0));
+        processor.process(newProcessingEvent("a1", 3, 1));
+
+        Thread.sleep(1500);
+        Assert.assertFalse(messageDispatcher.dispatchedVersions.containsKey(3));
+        Assert.assertEquals(Collections.singletonList(0L), ackedOffsets);
+    }
+
+    @Test
+    public void skipped_version_is_dispatched_when_it_arrives_later() throws InterruptedException {
+        processor = newProcessor(100);
+        processor.start();
+        processor.process(newProcessingEvent("a1", 1, 0));
+        processor.process(newProcessingEvent("a1", 3, 1));
+        waitUntil(() -> messageDispatcher.dispatchedVersions.containsKey(3));
+
+        processor.process(newProcessingEvent("a1", 2, 2));
+
+        waitUntil(() -> ackedOffsets.size() == 3);
+        Assert.assertEquals(1, messageDispatcher.dispatchedVersions.get(2).intValue());
+    }
+
+    private OffsetCheckpointProcessingEventProcessor newProcessor(long skipMissingVersionTimeoutMilliseconds) {
+        return new OffsetCheckpointProcessingEventProcessor(
+            new DefaultScheduleService(),
+            new DefaultSerializeService(),
+            messageDispatcher,
+            Dispatchers.getIO(),
+            10,
+            skipMissingVersionTimeoutMilliseconds
+        );
+    }
+
+    private ProcessingEvent newProcessingEvent(String aggregateRootId, int version, long offset) {
+        TestAggregateCreated event = new TestAggregateCreated("title" + version);
+        event.setAggregateRootId(aggregateRootId);
+        event.setVersion(version);
+        List<DomainEventMessage<?>> events = new ArrayList<>();
+        events.add(event);
+        DomainEventStream eventStream = new DomainEventStream("c" + version, aggregateRootId, "TestAggregate", new Date(), events, new HashMap<>());
+        return new ProcessingEvent(eventStream, new EventProcessContext() {
+            @Override
+            public CompletableFuture<Boolean> notifyEventProcessed() {
+                ackedOffsets.add(offset);
+                return CompletableFuture.completedFuture(true);
+            }
+
+            @Override
+            public String getPartition() {
+                return PARTITION;
+            }
+
+            @Override
+            public long getOffset() {
+                return offset;
+            }
+        });
+    }
+
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("condition not met in time", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    static class RecordingMessageDispatcher implements MessageDispatcher {
+        final ConcurrentHashMap<Integer, Integer> dispatchedVersions = new ConcurrentHashMap<>();
+
+        @Override
+        public CompletableFuture<Boolean> dispatchMessageAsync(Message message) {
+            dispatchedVersions.merge(((DomainEventMessage<?>) message).getVersion(), 1, Integer::sum);
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> dispatchMessagesAsync(List<? extends Message> messages) {
+            messages.forEach(this::dispatchMessageAsync);
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.enodeframework.test.eventing;
+
+import org.enodeframework.eventing.impl.PartitionCheckpointTracker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class PartitionCheckpointTrackerTest {
+
+    @Test
+    public void checkpoint_actions_run_in_offset_order_when_completed_out_of_order() {
+        PartitionCheckpointTracker tracker = new PartitionCheckpointTracker();
+        List<Long> committed = new ArrayList<>();
+        for (long offset = 10; offset < 15; offset++) {
+            tracker.track("q0", offset);
+        }
+
+        complete(tracker, "q0", 13, committed);
+        complete(tracker, "q0", 11, committed);
+        Assert.assertTrue(committed.isEmpty());
+        Assert.assertEquals(-1L, tracker.getCheckpoints().get("q0").longValue());
+
+        //10完成后，已经完成的11也一起确认，13还要等12
+        complete(tracker, "q0", 10, committed);
+        Assert.assertEquals(Arrays.asList(10L, 11L), committed);
+        Assert.assertEquals(11L, tracker.getCheckpoints().get("q0").longValue());
+
+        complete(tracker, "q0", 12, committed);
+        Assert.assertEquals(LongStream.rangeClosed(10, 13).boxed().collect(Collectors.toList()), committed);
+        Assert.assertEquals(1, tracker.getPendingCount());
+
+        complete(tracker, "q0", 14, committed);
+        Assert.assertEquals(14L, tracker.getCheckpoints().get("q0").longValue());
+        Assert.assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    public void partitions_progress_independently() {
+        PartitionCheckpointTracker tracker = new PartitionCheckpointTracker();
+        List<Long> committed = new ArrayList<>();
+        tracker.track("q0", 0);
+        tracker.track("q0", 1);
+        tracker.track("q1", 0);
+
+        complete(tracker, "q0", 1, committed);
+        complete(tracker, "q1", 0, committed);
+
+        Assert.assertEquals(Collections.singletonList(0L), committed);
+        Assert.assertEquals(-1L, tracker.getCheckpoints().get("q0").longValue());
+        Assert.assertEquals(0L, tracker.getCheckpoints().get("q1").longValue());
+    }
+
+    @Test
+    public void untracked_offset_runs_checkpoint_action_immediately() {
+        PartitionCheckpointTracker tracker = new PartitionCheckpointTracker();
+        List<Long> committed = new ArrayList<>();
+
+        complete(tracker, "q0", 5, committed);
+
+        Assert.assertEquals(Collections.singletonList(5L), committed);
+    }
+
+    @Test
+    public void each_new_checkpoint_is_taken_once() {
+        PartitionCheckpointTracker tracker = new PartitionCheckpointTracker();
+        List<Long> committed = new ArrayList<>();
+        for (long offset = 0; offset < 5; offset++) {
+            tracker.track("q0", offset);
+        }
+        complete(tracker, "q0", 2, committed);
+        complete(tracker, "q0", 4, committed);
+        Assert.assertEquals(-1L, tracker.takeCheckpoint("q0"));
+
+        complete(tracker, "q0", 0, committed);
+        Assert.assertEquals(0L, tracker.takeCheckpoint("q0"));
+        Assert.assertEquals(-1L, tracker.takeCheckpoint("q0"));
+
+        complete(tracker, "q0", 1, committed);
+        Assert.assertEquals(2L, tracker.takeCheckpoint("q0"));
+        complete(tracker, "q0", 3, committed);
+        Assert.assertEquals(4L, tracker.takeCheckpoint("q0"));
+        Assert.assertEquals(-1L, tracker.takeCheckpoint("q1"));
+    }
+
+    @Test
+    public void checkpoint_is_taken_again_after_commit_failed() {
+        PartitionCheckpointTracker tracker = new PartitionCheckpointTracker();
+        tracker.track("q0", 0);
+        complete(tracker, "q0", 0, new ArrayList<>());
+        long checkpoint = tracker.takeCheckpoint("q0");
+        Assert.assertEquals(0L, checkpoint);
+
+        tracker.checkpointCommitFailed("q0", checkpoint);
+
+        Assert.assertEquals(0L, tracker.takeCheckpoint("q0"));
+    }
+
+    @Test
+    public void concurrent_completion_commits_every_offset_in_order() throws InterruptedException {
+        PartitionCheckpointTracker tracker = new PartitionCheckpointTracker();
+        int count = 10000;
+        List<Long> committed = Collections.synchronizedList(new ArrayList<>());
+        List<Long> offsets = LongStream.range(0, count).boxed().collect(Collectors.toList());
+        offsets.forEach(x -> tracker.track("q0", x));
+        Collections.shuffle(offsets);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        offsets.forEach(x -> executor.execute(() -> tracker.complete("q0", x, () -> committed.add(x))));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(LongStream.range(0, count).boxed().collect(Collectors.toList()), committed);
+        Assert.assertEquals(count - 1L, tracker.getCheckpoints().get("q0").longValue());
+    }
+
+    private void complete(PartitionCheckpointTracker tracker, String partition, long offset, List<Long> committed) {
+        tracker.complete(partition, offset, () -> committed.add(offset));
+    }
+}
@@ -0,0 +1,176 @@
+package org.enodeframework.test.file;
+
+import com.google.common.collect.Lists;
+import org.enodeframework.common.serializing.DefaultSerializeService;
+import org.enodeframework.eventing.DomainEventMessage;
+import org.enodeframework.eventing.DomainEventStream;
+import org.enodeframework.eventing.EventAppendResult;
+import org.enodeframework.eventing.impl.DefaultEventSerializer;
+import org.enodeframework.file.FileEventStore;
+import org.enodeframework.file.FileStoreOptions;
+import org.enodeframework.infrastructure.impl.DefaultTypeNameProvider;
+import org.enodeframework.test.domain.TestAggregateCreated;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class FileEventStoreTest {
+
+    private static final String AGGREGATE_ROOT_TYPE_NAME = "TestAggregate";
+
+    private File storePath;
+
+    private FileEventStore eventStore;
+
+    @Before
+    public void before() throws IOException {
+        storePath = Files.createTempDirectory("enode-file-event-store").toFile();
+        eventStore = newEventStore();
+    }
+
+    @After
+    public void after() throws IOException {
+        eventStore.stop();
+        deleteRecursively(storePath);
+    }
+
+    @Test
+    public void duplicate_event_and_command_detection() {
+        EventAppendResult result = append(newEventStream("a1", 1, "c1"));
+        Assert.assertEquals(Lists.newArrayList("a1"), result.getSuccessAggregateRootIdList());
+
+        result = append(newEventStream("a1", 1, "c2"));
+        Assert.assertEquals(Lists.newArrayList("a1"), result.getDuplicateEventAggregateRootIdList());
+
+        result = append(newEventStream("a1", 2, "c1"));
+        Assert.assertEquals(Lists.newArrayList("c1"), result.getDuplicateCommandAggregateRootIdList().get("a1"));
+
+        result = append(newEventStream("a1", 3, "c3"));
+        Assert.assertEquals(Lists.newArrayList("a1"), result.getDuplicateEventAggregateRootIdList());
+
+        Assert.assertEquals(1, eventStore.queryAggregateEventsAsync("a1", AGGREGATE_ROOT_TYPE_NAME, 1, Integer.MAX_VALUE).join().size());
+        Assert.assertEquals(1, eventStore.findAsync("a1", "c1").join().getVersion());
+        Assert.assertNull(eventStore.findAsync("a1", "c2").join());
+    }
+
+    @Test
+    public void group_commit_completes_every_concurrent_append() {
+        int aggregateCount = 200;
+        List<CompletableFuture<EventAppendResult>> futures = IntStream.range(0, aggregateCount).parallel()
+            .mapToObj(i -> eventStore.batchAppendAsync(Lists.newArrayList(newEventStream("a" + i, 1, "c" + i))))
+            .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        for (CompletableFuture<EventAppendResult> future : futures) {
+            Assert.assertEquals(1, future.join().getSuccessAggregateRootIdList().size());
+        }
+        //追加完成即已落盘，所有事件流都对读取可见
+        for (int i = 0; i < aggregateCount; i++) {
+            Assert.assertNotNull(eventStore.findAsync("a" + i, 1).join());
+        }
+    }
+
+    @Test
+    public void recover_from_sealed_segment_index_and_active_segment() {
+        int versionCount = 100;
+        for (int version = 1; version <= versionCount; version++) {
+            append(newEventStream("a1", version, "c" + version));
+            append(newEventStream("a2", version, "d" + version));
+        }
+        eventStore.stop();
+        File[] indexFiles = new File(storePath, "events").listFiles((dir, name) -> name.endsWith(".idx"));
+        Assert.assertNotNull(indexFiles);
+        Assert.assertTrue("segments should be sealed with index files", indexFiles.length > 0);
+
+        eventStore = newEventStore();
+        List<DomainEventStream> eventStreams = eventStore.queryAggregateEventsAsync("a1", AGGREGATE_ROOT_TYPE_NAME, 1, Integer.MAX_VALUE).join();
+        Assert.assertEquals(versionCount, eventStreams.size());
+        for (int i = 0; i < versionCount; i++) {
+            Assert.assertEquals(i + 1, eventStreams.get(i).getVersion());
+        }
+        Assert.assertEquals(1, eventStore.findAsync("a2", "d1").join().getVersion());
+        Assert.assertEquals(versionCount, eventStore.findAsync("a2", "d" + versionCount).join().getVersion());
+        List<DomainEventStream> found = eventStore.findByCommandIdsAsync("a1", Lists.newArrayList("c50", "c3", "missing")).join();
+        Assert.assertEquals(Lists.newArrayList(3, 50), found.stream().map(DomainEventStream::getVersion).collect(Collectors.toList()));
+
+        Assert.assertEquals(1, append(newEventStream("a1", 1, "x1")).getDuplicateEventAggregateRootIdList().size());
+        Assert.assertEquals(1, append(newEventStream("a1", versionCount + 1, "c1")).getDuplicateCommandAggregateRootIdList().size());
+        Assert.assertEquals(1, append(newEventStream("a1", versionCount + 1, "c" + (versionCount + 1))).getSuccessAggregateRootIdList().size());
+    }
+
+    @Test
+    public void recover_truncates_torn_record() throws IOException {
+        append(newEventStream("a1", 1, "c1"));
+        append(newEventStream("a1", 2, "c2"));
+        eventStore.stop();
+
+        //破坏最后一条记录的内容，模拟写到一半时宕机
+        File[] segments = new File(storePath, "events").listFiles((dir, name) -> name.endsWith(".seg"));
+        Assert.assertNotNull(segments);
+        File lastSegment = Arrays.stream(segments).max(Comparator.comparing(File::getName)).orElseThrow(IllegalStateException::new);
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment, "rw")) {
+            //记录格式为：[int length][int crc32][bytes]，第二条记录紧跟在第一条之后
+            long position = 8 + file.readInt() + 8;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        eventStore = newEventStore();
+        Assert.assertNotNull(eventStore.findAsync("a1", 1).join());
+        Assert.assertNull(eventStore.findAsync("a1", 2).join());
+        Assert.assertNull(eventStore.findAsync("a1", "c2").join());
+        //被截断的版本可以重新写入
+        Assert.assertEquals(1, append(newEventStream("a1", 2, "c2")).getSuccessAggregateRootIdList().size());
+        Assert.assertEquals(2, eventStore.queryAggregateEventsAsync("a1", AGGREGATE_ROOT_TYPE_NAME, 1, Integer.MAX_VALUE).join().size());
+    }
+
+    private FileEventStore newEventStore() {
+        FileStoreOptions options = new FileStoreOptions();
+        options.setStorePath(storePath.getAbsolutePath());
+        options.setSegmentSize(8 * 1024);
+        options.setIndexCacheSize(16);
+        DefaultSerializeService serializeService = new DefaultSerializeService();
+        FileEventStore store = new FileEventStore(options, new DefaultEventSerializer(new DefaultTypeNameProvider(new HashMap<>()), serializeService), serializeService);
+        store.start();
+        return store;
+    }
+
+    private EventAppendResult append(DomainEventStream eventStream) {
+        return eventStore.batchAppendAsync(Lists.newArrayList(eventStream)).join();
+    }
+
+    private DomainEventStream newEventStream(String aggregateRootId, int version, String commandId) {
+        TestAggregateCreated event = new TestAggregateCreated("title" + version);
+        event.setAggregateRootId(aggregateRootId);
+        event.setVersion(version);
+        List<DomainEventMessage<?>> events = new ArrayList<>();
+        events.add(event);
+        return new DomainEventStream(commandId, aggregateRootId, AGGREGATE_ROOT_TYPE_NAME, new Date(), events, new HashMap<>());
+    }
+
+    private void deleteRecursively(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+}
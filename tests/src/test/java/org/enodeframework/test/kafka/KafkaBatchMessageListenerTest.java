@@ -0,0 +1,96 @@
+package org.enodeframework.test.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.enodeframework.kafka.KafkaBatchMessageListener;
+import org.enodeframework.queue.MessageFlowController;
+import org.enodeframework.queue.MessageHandler;
+import org.enodeframework.queue.MessageTypeCode;
+import org.enodeframework.queue.QueueMessage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class KafkaBatchMessageListenerTest {
+
+    private static final TopicPartition TOPIC_PARTITION = new TopicPartition("topic", 0);
+
+    private final Map<Long, Runnable> pendingCompletions = new ConcurrentHashMap<>();
+
+    private MockConsumer<String, String> consumer;
+
+    private KafkaBatchMessageListener listener;
+
+    @Before
+    public void before() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Collections.singletonList(TOPIC_PARTITION));
+        MessageHandler messageHandler = (queueMessage, context) ->
+            pendingCompletions.put(queueMessage.getOffset(), () -> context.onMessageHandled(queueMessage));
+        Map<Character, MessageHandler> messageHandlerMap = new HashMap<>();
+        messageHandlerMap.put(MessageTypeCode.DomainEventMessage.getValue(), messageHandler);
+        listener = new KafkaBatchMessageListener(messageHandlerMap, MessageFlowController.UNBOUNDED, 0);
+    }
+
+    @Test
+    public void out_of_order_completion_never_commits_past_pending_record() {
+        listener.onMessage(records(0, 5), null, consumer);
+        Assert.assertNull(committedOffset());
+
+        //后面的消息先完成，最小的位点还没完成时不能提交
+        complete(3);
+        complete(1);
+        complete(2);
+        listener.onMessage(Collections.emptyList(), null, consumer);
+        Assert.assertNull(committedOffset());
+
+        complete(0);
+        listener.onMessage(Collections.emptyList(), null, consumer);
+        Assert.assertEquals(4L, committedOffset().longValue());
+
+        complete(4);
+        listener.onMessage(Collections.emptyList(), null, consumer);
+        Assert.assertEquals(5L, committedOffset().longValue());
+    }
+
+    @Test
+    public void revoked_partition_commits_completed_offsets_synchronously() {
+        listener.onMessage(records(0, 3), null, consumer);
+        complete(0);
+        complete(2);
+
+        listener.onPartitionsRevokedBeforeCommit(consumer, Collections.singletonList(TOPIC_PARTITION));
+
+        Assert.assertEquals(1L, committedOffset().longValue());
+    }
+
+    private void complete(long offset) {
+        pendingCompletions.remove(offset).run();
+    }
+
+    private Long committedOffset() {
+        OffsetAndMetadata offsetAndMetadata = consumer.committed(Collections.singleton(TOPIC_PARTITION)).get(TOPIC_PARTITION);
+        return offsetAndMetadata == null ? null : offsetAndMetadata.offset();
+    }
+
+    private List<ConsumerRecord<String, String>> records(long fromOffset, int count) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (long offset = fromOffset; offset < fromOffset + count; offset++) {
+            QueueMessage queueMessage = new QueueMessage();
+            queueMessage.setBody("{}");
+            queueMessage.setType(MessageTypeCode.DomainEventMessage.getValue());
+            records.add(new ConsumerRecord<>(TOPIC_PARTITION.topic(), TOPIC_PARTITION.partition(), offset, "a" + offset, queueMessage.getBodyAndType()));
+        }
+        return records;
+    }
+}
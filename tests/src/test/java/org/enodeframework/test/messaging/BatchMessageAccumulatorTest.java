@@ -0,0 +1,184 @@
+package org.enodeframework.test.messaging;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import kotlinx.coroutines.Dispatchers;
+import org.enodeframework.annotation.Event;
+import org.enodeframework.annotation.Subscribe;
+import org.enodeframework.common.container.DefaultObjectContainer;
+import org.enodeframework.common.container.ObjectContainer;
+import org.enodeframework.common.serializing.DefaultSerializeService;
+import org.enodeframework.eventing.AbstractDomainEventMessage;
+import org.enodeframework.infrastructure.impl.DefaultTypeNameProvider;
+import org.enodeframework.messaging.Message;
+import org.enodeframework.messaging.impl.BatchMessageAccumulator;
+import org.enodeframework.messaging.impl.DefaultBatchMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultMessageDispatcher;
+import org.enodeframework.messaging.impl.DefaultMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultThreeMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultTwoMessageHandlerProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class BatchMessageAccumulatorTest {
+
+    private static final Map<Class<?>, Object> HANDLERS = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<List<BatchMessageAccumulator.PendingMessage>> flushedBatches = new LinkedBlockingQueue<>();
+
+    private ObjectContainer previousContainer;
+
+    @Before
+    public void before() {
+        HANDLERS.clear();
+        previousContainer = DefaultObjectContainer.INSTANCE;
+        DefaultObjectContainer.INSTANCE = new ObjectContainer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <TService> TService resolve(Class<TService> serviceType) {
+                return (TService) HANDLERS.computeIfAbsent(serviceType, type -> {
+                    try {
+                        return type.getDeclaredConstructor().newInstance();
+                    } catch (ReflectiveOperationException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                });
+            }
+        };
+    }
+
+    @After
+    public void after() {
+        DefaultObjectContainer.INSTANCE = previousContainer;
+    }
+
+    @Test
+    public void flush_immediately_when_batch_size_reached() {
+        BatchMessageAccumulator accumulator = newAccumulator(3, 60000);
+        accumulator.add(newEvent("a1", 1), () -> {
+        });
+        accumulator.add(newEvent("a2", 1), () -> {
+        });
+        Assert.assertTrue(flushedBatches.isEmpty());
+
+        accumulator.add(newEvent("a3", 1), () -> {
+        });
+
+        //达到批量大小时在add的线程里直接处理，不等待时间窗口
+        List<BatchMessageAccumulator.PendingMessage> batch = flushedBatches.poll();
+        Assert.assertNotNull(batch);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals("a1", ((BatchTestEvent) batch.get(0).getMessage()).getAggregateRootId());
+        Assert.assertEquals("a3", ((BatchTestEvent) batch.get(2).getMessage()).getAggregateRootId());
+    }
+
+    @Test
+    public void flush_partial_batch_after_window() throws InterruptedException {
+        long windowMilliseconds = 100;
+        BatchMessageAccumulator accumulator = newAccumulator(100, windowMilliseconds);
+        long start = System.nanoTime();
+        accumulator.add(newEvent("a1", 1), () -> {
+        });
+        accumulator.add(newEvent("a2", 1), () -> {
+        });
+
+        List<BatchMessageAccumulator.PendingMessage> batch = flushedBatches.poll(5, TimeUnit.SECONDS);
+        long elapsedMilliseconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertNotNull(batch);
+        Assert.assertEquals(2, batch.size());
+        Assert.assertTrue("flushed before the window: " + elapsedMilliseconds, elapsedMilliseconds >= windowMilliseconds);
+    }
+
+    @Test
+    public void size_flush_cancels_window_flush_of_same_batch() throws InterruptedException {
+        long windowMilliseconds = 50;
+        BatchMessageAccumulator accumulator = newAccumulator(2, windowMilliseconds);
+        accumulator.add(newEvent("a1", 1), () -> {
+        });
+        accumulator.add(newEvent("a2", 1), () -> {
+        });
+        Assert.assertEquals(2, flushedBatches.take().size());
+
+        //第一个批次的定时任务到期后不能把下一个批次提前取走
+        Thread.sleep(windowMilliseconds * 3);
+        Assert.assertTrue(flushedBatches.isEmpty());
+
+        accumulator.add(newEvent("a3", 1), () -> {
+        });
+        List<BatchMessageAccumulator.PendingMessage> batch = flushedBatches.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(batch);
+        Assert.assertEquals(1, batch.size());
+        Assert.assertNull(flushedBatches.poll(windowMilliseconds * 3, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void dispatcher_completes_messages_after_their_batch_is_handled() {
+        DefaultBatchMessageHandlerProvider batchMessageHandlerProvider = new DefaultBatchMessageHandlerProvider();
+        batchMessageHandlerProvider.initialize(Sets.newHashSet(BatchTestHandler.class));
+        DefaultMessageDispatcher messageDispatcher = new DefaultMessageDispatcher(
+            new DefaultTypeNameProvider(Maps.newHashMap()),
+            new DefaultMessageHandlerProvider(),
+            new DefaultTwoMessageHandlerProvider(),
+            new DefaultThreeMessageHandlerProvider(),
+            batchMessageHandlerProvider,
+            new DefaultSerializeService(),
+            Dispatchers.getIO()
+        );
+        int messageCount = 7;
+        List<CompletableFuture<Boolean>> futures = IntStream.range(0, messageCount)
+            .mapToObj(i -> messageDispatcher.dispatchMessageAsync(newEvent("a" + i, 1)))
+            .collect(Collectors.toList());
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        BatchTestHandler handler = (BatchTestHandler) HANDLERS.get(BatchTestHandler.class);
+        //7个事件按批量大小3切分，剩下的1个由时间窗口触发
+        Assert.assertEquals(Collections.singletonList(1), handler.batchSizes.stream().filter(x -> x < 3).collect(Collectors.toList()));
+        Assert.assertEquals(messageCount, handler.batchSizes.stream().mapToInt(Integer::intValue).sum());
+        Assert.assertEquals(messageCount, handler.handledIds.size());
+    }
+
+    private BatchMessageAccumulator newAccumulator(int batchSize, long windowMilliseconds) {
+        return new BatchMessageAccumulator(batchSize, windowMilliseconds, Dispatchers.getIO(), flushedBatches::add);
+    }
+
+    private Message newEvent(String aggregateRootId, int version) {
+        BatchTestEvent event = new BatchTestEvent();
+        event.setAggregateRootId(aggregateRootId);
+        event.setVersion(version);
+        return event;
+    }
+
+    @Event
+    public static class BatchTestHandler {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, Boolean> handledIds = new ConcurrentHashMap<>();
+
+        @Subscribe(batchSize = 3, batchWindowMilliseconds = 50)
+        public void handleAsync(List<BatchTestEvent> events) {
+            batchSizes.add(events.size());
+            events.forEach(x -> handledIds.put(x.getId(), true));
+        }
+    }
+
+    /**
+     * 只在本测试中使用的事件，其他测试不会把它分发给这里的处理器
+     */
+    public static class BatchTestEvent extends AbstractDomainEventMessage<String> {
+    }
+}
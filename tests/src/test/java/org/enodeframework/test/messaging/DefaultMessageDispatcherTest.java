@@ -0,0 +1,176 @@
+package org.enodeframework.test.messaging;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import kotlinx.coroutines.Dispatchers;
+import org.enodeframework.annotation.Event;
+import org.enodeframework.annotation.Subscribe;
+import org.enodeframework.common.container.DefaultObjectContainer;
+import org.enodeframework.common.container.ObjectContainer;
+import org.enodeframework.common.serializing.DefaultSerializeService;
+import org.enodeframework.eventing.AbstractDomainEventMessage;
+import org.enodeframework.infrastructure.impl.DefaultTypeNameProvider;
+import org.enodeframework.messaging.impl.DefaultBatchMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultMessageDispatcher;
+import org.enodeframework.messaging.impl.DefaultMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultThreeMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultTwoMessageHandlerProvider;
+import org.enodeframework.messaging.impl.MessageTypeTuple;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultMessageDispatcherTest {
+
+    private static final Map<Class<?>, Object> HANDLERS = new ConcurrentHashMap<>();
+
+    private ObjectContainer previousContainer;
+
+    private DefaultMessageDispatcher messageDispatcher;
+
+    @Before
+    public void before() {
+        HANDLERS.clear();
+        previousContainer = DefaultObjectContainer.INSTANCE;
+        DefaultObjectContainer.INSTANCE = new ObjectContainer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <TService> TService resolve(Class<TService> serviceType) {
+                return (TService) HANDLERS.computeIfAbsent(serviceType, type -> {
+                    try {
+                        return type.getDeclaredConstructor().newInstance();
+                    } catch (ReflectiveOperationException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                });
+            }
+        };
+        Set<Class<?>> handlerTypes = Sets.newHashSet(SingleAndBatchHandler.class, TwoMessageHandler.class);
+        DefaultMessageHandlerProvider messageHandlerProvider = new DefaultMessageHandlerProvider();
+        messageHandlerProvider.initialize(handlerTypes);
+        DefaultBatchMessageHandlerProvider batchMessageHandlerProvider = new DefaultBatchMessageHandlerProvider();
+        batchMessageHandlerProvider.initialize(handlerTypes);
+        DefaultTwoMessageHandlerProvider twoMessageHandlerProvider = new DefaultTwoMessageHandlerProvider();
+        twoMessageHandlerProvider.initialize(handlerTypes);
+        messageDispatcher = new DefaultMessageDispatcher(
+            new DefaultTypeNameProvider(Maps.newHashMap()),
+            messageHandlerProvider,
+            twoMessageHandlerProvider,
+            new DefaultThreeMessageHandlerProvider(),
+            batchMessageHandlerProvider,
+            new DefaultSerializeService(),
+            Dispatchers.getIO()
+        );
+    }
+
+    @After
+    public void after() {
+        DefaultObjectContainer.INSTANCE = previousContainer;
+    }
+
+    @Test
+    public void message_is_handled_only_after_both_single_and_batch_handler_of_same_class() throws Exception {
+        SingleAndBatchHandler handler = (SingleAndBatchHandler) DefaultObjectContainer.resolve(SingleAndBatchHandler.class);
+
+        CompletableFuture<Boolean> first = messageDispatcher.dispatchMessageAsync(newEvent(1));
+
+        //单个处理方法已经完成，批量处理方法还在等待凑够批次
+        Thread.sleep(200);
+        Assert.assertEquals(Collections.singletonList(1), handler.singleVersions);
+        Assert.assertTrue(handler.batches.isEmpty());
+        Assert.assertFalse(first.isDone());
+
+        CompletableFuture<Boolean> second = messageDispatcher.dispatchMessageAsync(newEvent(2));
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, handler.batches.size());
+        Assert.assertEquals(2, handler.batches.get(0).size());
+    }
+
+    @Test
+    public void two_message_handler_is_dispatched_for_any_order_of_event_types() throws Exception {
+        TwoMessageHandler handler = (TwoMessageHandler) DefaultObjectContainer.resolve(TwoMessageHandler.class);
+
+        messageDispatcher.dispatchMessagesAsync(Arrays.asList(new OtherDispatcherTestEvent(), newPairEvent(1))).get(10, TimeUnit.SECONDS);
+        messageDispatcher.dispatchMessagesAsync(Arrays.asList(newPairEvent(2), new OtherDispatcherTestEvent(), newPairEvent(3))).get(10, TimeUnit.SECONDS);
+
+        //两种类型的组合相同，第二次分发使用缓存的分发计划
+        Assert.assertEquals(Arrays.asList(1, 2), handler.versions);
+    }
+
+    @Test
+    public void type_tuple_ignores_order_and_duplicates() {
+        OtherDispatcherTestEvent other = new OtherDispatcherTestEvent();
+        MessageTypeTuple tuple = MessageTypeTuple.of(Arrays.asList(newPairEvent(1), other));
+
+        Assert.assertEquals(tuple, MessageTypeTuple.of(Arrays.asList(other, newPairEvent(2), newPairEvent(3))));
+        Assert.assertEquals(tuple.hashCode(), MessageTypeTuple.of(Arrays.asList(other, newPairEvent(2))).hashCode());
+        Assert.assertEquals(2, tuple.getTypes().size());
+        Assert.assertNotEquals(tuple, MessageTypeTuple.of(Collections.singletonList(other)));
+    }
+
+    private DispatcherTestEvent newEvent(int version) {
+        DispatcherTestEvent event = new DispatcherTestEvent();
+        event.setAggregateRootId("a1");
+        event.setVersion(version);
+        return event;
+    }
+
+    private PairTestEvent newPairEvent(int version) {
+        PairTestEvent event = new PairTestEvent();
+        event.setAggregateRootId("a2");
+        event.setVersion(version);
+        return event;
+    }
+
+    @Event
+    public static class SingleAndBatchHandler {
+        final List<Integer> singleVersions = Collections.synchronizedList(new ArrayList<>());
+
+        final List<List<DispatcherTestEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        @Subscribe
+        public void handleAsync(DispatcherTestEvent evnt) {
+            singleVersions.add(evnt.getVersion());
+        }
+
+        @Subscribe(batchSize = 2, batchWindowMilliseconds = 60000)
+        public void handleBatchAsync(List<DispatcherTestEvent> evnts) {
+            batches.add(evnts);
+        }
+    }
+
+    @Event
+    public static class TwoMessageHandler {
+        final List<Integer> versions = Collections.synchronizedList(new ArrayList<>());
+
+        @Subscribe
+        public void handleAsync(PairTestEvent evnt, OtherDispatcherTestEvent other) {
+            versions.add(evnt.getVersion());
+        }
+    }
+
+    /**
+     * 只在本测试中使用的事件，其他测试不会把它分发给这里的处理器
+     */
+    public static class DispatcherTestEvent extends AbstractDomainEventMessage<String> {
+    }
+
+    public static class PairTestEvent extends AbstractDomainEventMessage<String> {
+    }
+
+    public static class OtherDispatcherTestEvent extends AbstractDomainEventMessage<String> {
+    }
+}
@@ -70,6 +70,11 @@ public class MockEventStore implements EventStore {
         return memoryEventStore.findAsync(aggregateRootId, commandId);
     }
 
+    @Override
+    public CompletableFuture<List<DomainEventStream>> findByCommandIdsAsync(String aggregateRootId, List<String> commandIds) {
+        return memoryEventStore.findByCommandIdsAsync(aggregateRootId, commandIds);
+    }
+
     @Override
     public CompletableFuture<List<DomainEventStream>> queryAggregateEventsAsync(String aggregateRootId, String aggregateRootTypeName, int minVersion, int maxVersion) {
         return memoryEventStore.queryAggregateEventsAsync(aggregateRootId, aggregateRootTypeName, minVersion, maxVersion);
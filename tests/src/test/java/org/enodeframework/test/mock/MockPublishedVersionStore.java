@@ -2,9 +2,12 @@ package org.enodeframework.test.mock;
 
 import org.enodeframework.common.exception.EnodeException;
 import org.enodeframework.common.exception.IORuntimeException;
+import org.enodeframework.eventing.AggregatePublishedVersion;
 import org.enodeframework.eventing.PublishedVersionStore;
 import org.enodeframework.eventing.impl.InMemoryPublishedVersionStore;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class MockPublishedVersionStore implements PublishedVersionStore {
@@ -43,6 +46,11 @@ public class MockPublishedVersionStore implements PublishedVersionStore {
         return _inMemoryPublishedVersionStore.updatePublishedVersionAsync(processorName, aggregateRootTypeName, aggregateRootId, publishedVersion);
     }
 
+    @Override
+    public CompletableFuture<Integer> batchUpdatePublishedVersionAsync(String processorName, List<AggregatePublishedVersion> publishedVersions) {
+        return _inMemoryPublishedVersionStore.batchUpdatePublishedVersionAsync(processorName, publishedVersions);
+    }
+
     @Override
     public CompletableFuture<Integer> getPublishedVersionAsync(String processorName, String aggregateRootTypeName, String aggregateRootId) {
         if (_currentGetFailedCount < _expectGetFailedCount) {
@@ -56,4 +64,18 @@ public class MockPublishedVersionStore implements PublishedVersionStore {
         }
         return _inMemoryPublishedVersionStore.getPublishedVersionAsync(processorName, aggregateRootTypeName, aggregateRootId);
     }
+
+    @Override
+    public CompletableFuture<Map<String, Integer>> batchGetPublishedVersionAsync(String processorName, List<String> aggregateRootIds) {
+        if (_currentGetFailedCount < _expectGetFailedCount) {
+            _currentGetFailedCount++;
+            if (_failedType == FailedType.UnKnownException) {
+                throw new EnodeException("BatchGetPublishedVersionAsyncUnKnownException" + _currentGetFailedCount);
+            } else if (_failedType == FailedType.IOException) {
+                throw new IORuntimeException("BatchGetPublishedVersionAsyncIOException" + _currentGetFailedCount);
+            } else if (_failedType == FailedType.TaskIOException) {
+            }
+        }
+        return _inMemoryPublishedVersionStore.batchGetPublishedVersionAsync(processorName, aggregateRootIds);
+    }
 }
@@ -0,0 +1,102 @@
+package org.enodeframework.test.perf;
+
+import kotlin.reflect.KFunction;
+import kotlin.reflect.jvm.ReflectJvmMapping;
+import org.enodeframework.infrastructure.MethodInvoker;
+import org.enodeframework.infrastructure.impl.MethodInvokerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理方法调用开销：直接调用、注册前的kotlin反射加MethodHandle调用、注册时生成的调用类
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+@State(value = Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandlerInvokeBenchmark {
+
+    private final BenchmarkHandler handler = new BenchmarkHandler();
+    private final BenchmarkEvent event = new BenchmarkEvent();
+    private Method method;
+    private MethodHandle methodHandle;
+    private MethodInvoker methodInvoker;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(HandlerInvokeBenchmark.class.getSimpleName()).resultFormat(ResultFormatType.JSON).build();
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        method = BenchmarkHandler.class.getMethod("handle", BenchmarkEvent.class);
+        methodHandle = lookup.findVirtual(BenchmarkHandler.class, method.getName(), MethodType.methodType(method.getReturnType(), method.getParameterTypes()));
+        methodInvoker = MethodInvokerFactory.INSTANCE.create(lookup, methodHandle, false);
+    }
+
+    @Benchmark
+    public void testDirectCall(Blackhole blackhole) {
+        handler.handle(event);
+        blackhole.consume(handler);
+    }
+
+    @Benchmark
+    public void testKotlinReflectAndMethodHandle(Blackhole blackhole) throws Throwable {
+        KFunction<?> function = ReflectJvmMapping.getKotlinFunction(method);
+        boolean isSuspend = function != null && function.isSuspend();
+        methodHandle.invoke(handler, event);
+        blackhole.consume(isSuspend);
+    }
+
+    @Benchmark
+    public void testMethodHandle(Blackhole blackhole) throws Throwable {
+        methodHandle.invoke(handler, event);
+        blackhole.consume(handler);
+    }
+
+    @Benchmark
+    public void testGeneratedInvoker(Blackhole blackhole) {
+        methodInvoker.invoke(handler, event);
+        blackhole.consume(handler);
+    }
+
+    public static class BenchmarkEvent {
+    }
+
+    public static class BenchmarkHandler {
+        private long count;
+
+        public void handle(BenchmarkEvent event) {
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
\ No newline at end of file
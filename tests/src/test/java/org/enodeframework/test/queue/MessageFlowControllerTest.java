@@ -0,0 +1,99 @@
+package org.enodeframework.test.queue;
+
+import org.enodeframework.queue.MessageFlowController;
+import org.enodeframework.queue.MessageFlowListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MessageFlowControllerTest {
+
+    @Test
+    public void pause_at_max_and_resume_at_resume_threshold() {
+        MessageFlowController controller = new MessageFlowController(4, 1);
+        RecordingListener listener = new RecordingListener();
+        controller.addListener(listener);
+        for (int i = 0; i < 4; i++) {
+            controller.acquire();
+        }
+        Assert.assertTrue(controller.isPaused());
+        Assert.assertEquals(Collections.singletonList("pause"), listener.calls);
+
+        controller.release();
+        controller.release();
+        Assert.assertTrue(controller.isPaused());
+        controller.release();
+        Assert.assertFalse(controller.isPaused());
+        Assert.assertEquals(2, listener.calls.size());
+        Assert.assertEquals("resume", listener.calls.get(1));
+    }
+
+    @Test
+    public void concurrent_transitions_alternate_and_settle() throws InterruptedException {
+        MessageFlowController controller = new MessageFlowController(8, 2);
+        RecordingListener listener = new RecordingListener();
+        controller.addListener(listener);
+        int threadCount = 8;
+        int rounds = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < rounds; j++) {
+                    controller.acquire();
+                    controller.release();
+                }
+                latch.countDown();
+            });
+        }
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        Assert.assertEquals(0, controller.getInFlight());
+        //所有消息都处理完后必须处于恢复状态，监听者收到的调用必须是暂停、恢复交替出现
+        Assert.assertFalse(controller.isPaused());
+        List<String> calls = listener.snapshot();
+        for (int i = 0; i < calls.size(); i++) {
+            Assert.assertEquals(i % 2 == 0 ? "pause" : "resume", calls.get(i));
+        }
+        Assert.assertEquals(0, calls.size() % 2);
+    }
+
+    @Test
+    public void listener_added_while_paused_is_paused() {
+        MessageFlowController controller = new MessageFlowController(1, 0);
+        controller.acquire();
+        RecordingListener listener = new RecordingListener();
+        controller.addListener(listener);
+        Assert.assertEquals(Collections.singletonList("pause"), listener.calls);
+        controller.release();
+        Assert.assertEquals(2, listener.calls.size());
+    }
+
+    static class RecordingListener implements MessageFlowListener {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void pause() {
+            calls.add("pause");
+        }
+
+        @Override
+        public void resume() {
+            calls.add("resume");
+        }
+
+        List<String> snapshot() {
+            synchronized (calls) {
+                return new ArrayList<>(calls);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.enodeframework.test.rebuild;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import kotlinx.coroutines.Dispatchers;
+import org.enodeframework.annotation.Event;
+import org.enodeframework.annotation.Subscribe;
+import org.enodeframework.common.container.DefaultObjectContainer;
+import org.enodeframework.common.container.ObjectContainer;
+import org.enodeframework.common.serializing.DefaultSerializeService;
+import org.enodeframework.configurations.ProjectionRebuildOptions;
+import org.enodeframework.eventing.AbstractDomainEventMessage;
+import org.enodeframework.eventing.DomainEventMessage;
+import org.enodeframework.eventing.DomainEventStream;
+import org.enodeframework.eventing.ProjectionRebuildProgress;
+import org.enodeframework.eventing.impl.DefaultProjectionRebuilder;
+import org.enodeframework.eventing.impl.InMemoryEventStore;
+import org.enodeframework.eventing.impl.InMemoryPublishedVersionStore;
+import org.enodeframework.infrastructure.impl.DefaultTypeNameProvider;
+import org.enodeframework.messaging.impl.DefaultBatchMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultMessageDispatcher;
+import org.enodeframework.messaging.impl.DefaultMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultThreeMessageHandlerProvider;
+import org.enodeframework.messaging.impl.DefaultTwoMessageHandlerProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DefaultProjectionRebuilderTest {
+
+    private static final String PROCESSOR_NAME = "ProjectionProcessor";
+
+    private static final Map<Class<?>, Object> HANDLERS = new ConcurrentHashMap<>();
+
+    private ObjectContainer previousContainer;
+
+    private DefaultMessageDispatcher messageDispatcher;
+
+    private InMemoryEventStore eventStore;
+
+    private InMemoryPublishedVersionStore publishedVersionStore;
+
+    @Before
+    public void before() {
+        HANDLERS.clear();
+        previousContainer = DefaultObjectContainer.INSTANCE;
+        DefaultObjectContainer.INSTANCE = new ObjectContainer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <TService> TService resolve(Class<TService> serviceType) {
+                return (TService) HANDLERS.computeIfAbsent(serviceType, type -> {
+                    try {
+                        return type.getDeclaredConstructor().newInstance();
+                    } catch (ReflectiveOperationException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                });
+            }
+        };
+        DefaultMessageHandlerProvider messageHandlerProvider = new DefaultMessageHandlerProvider();
+        messageHandlerProvider.initialize(Sets.newHashSet(ProjectionHandler.class, OtherHandler.class));
+        DefaultSerializeService serializeService = new DefaultSerializeService();
+        messageDispatcher = new DefaultMessageDispatcher(
+            new DefaultTypeNameProvider(Maps.newHashMap()),
+            messageHandlerProvider,
+            new DefaultTwoMessageHandlerProvider(),
+            new DefaultThreeMessageHandlerProvider(),
+            new DefaultBatchMessageHandlerProvider(),
+            serializeService,
+            Dispatchers.getIO()
+        );
+        eventStore = new InMemoryEventStore();
+        publishedVersionStore = new InMemoryPublishedVersionStore();
+    }
+
+    @After
+    public void after() {
+        DefaultObjectContainer.INSTANCE = previousContainer;
+    }
+
+    @Test
+    public void rebuild_dispatches_only_to_target_handlers_in_aggregate_order() {
+        int aggregateCount = 5;
+        int versionCount = 4;
+        for (int version = 1; version <= versionCount; version++) {
+            for (int i = 0; i < aggregateCount; i++) {
+                eventStore.batchAppendAsync(Lists.newArrayList(newEventStream("a" + i, version))).join();
+            }
+        }
+        ProjectionRebuildOptions options = new ProjectionRebuildOptions();
+        options.setProcessorName(PROCESSOR_NAME);
+        options.setHandlerTypes(Lists.newArrayList(ProjectionHandler.class));
+        options.setPageSize(3);
+        options.setParallelism(2);
+        options.setCheckpointEventStreamCount(6);
+        List<ProjectionRebuildProgress> checkpoints = Collections.synchronizedList(new ArrayList<>());
+        DefaultProjectionRebuilder rebuilder = new DefaultProjectionRebuilder(eventStore, messageDispatcher, publishedVersionStore, options);
+
+        ProjectionRebuildProgress progress = rebuilder.rebuildAsync("", checkpoints::add).join();
+
+        Assert.assertEquals(aggregateCount * versionCount, progress.getEventStreamCount());
+        ProjectionHandler projectionHandler = (ProjectionHandler) HANDLERS.get(ProjectionHandler.class);
+        OtherHandler otherHandler = (OtherHandler) HANDLERS.get(OtherHandler.class);
+        Assert.assertEquals(0, otherHandler.handledVersions.size());
+        Assert.assertEquals(aggregateCount, projectionHandler.handledVersions.size());
+        for (int i = 0; i < aggregateCount; i++) {
+            Assert.assertEquals(Lists.newArrayList(1, 2, 3, 4), projectionHandler.handledVersions.get("a" + i));
+            Assert.assertEquals(versionCount, publishedVersionStore.getPublishedVersionAsync(PROCESSOR_NAME, "TestAggregate", "a" + i).join().intValue());
+        }
+        Assert.assertTrue(checkpoints.size() > 1);
+        Assert.assertEquals(progress.getCheckpoint(), checkpoints.get(checkpoints.size() - 1).getCheckpoint());
+    }
+
+    @Test
+    public void rebuild_from_checkpoint_skips_handled_event_streams() {
+        eventStore.batchAppendAsync(Lists.newArrayList(newEventStream("a1", 1))).join();
+        eventStore.batchAppendAsync(Lists.newArrayList(newEventStream("a1", 2))).join();
+        String checkpoint = eventStore.readAllAsync("", 1).join().getCheckpoint();
+        ProjectionRebuildOptions options = new ProjectionRebuildOptions();
+        options.setProcessorName(PROCESSOR_NAME);
+        options.setHandlerTypes(Lists.newArrayList(ProjectionHandler.class));
+        DefaultProjectionRebuilder rebuilder = new DefaultProjectionRebuilder(eventStore, messageDispatcher, publishedVersionStore, options);
+
+        ProjectionRebuildProgress progress = rebuilder.rebuildAsync(checkpoint, x -> {
+        }).join();
+
+        Assert.assertEquals(1, progress.getEventStreamCount());
+        ProjectionHandler projectionHandler = (ProjectionHandler) HANDLERS.get(ProjectionHandler.class);
+        Assert.assertEquals(Lists.newArrayList(2), projectionHandler.handledVersions.get("a1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rebuild_requires_handler_types() {
+        ProjectionRebuildOptions options = new ProjectionRebuildOptions();
+        options.setProcessorName(PROCESSOR_NAME);
+        new DefaultProjectionRebuilder(eventStore, messageDispatcher, publishedVersionStore, options);
+    }
+
+    private DomainEventStream newEventStream(String aggregateRootId, int version) {
+        RebuildTestEvent event = new RebuildTestEvent();
+        event.setAggregateRootId(aggregateRootId);
+        event.setVersion(version);
+        List<DomainEventMessage<?>> events = new ArrayList<>();
+        events.add(event);
+        return new DomainEventStream(aggregateRootId + "_" + version, aggregateRootId, "TestAggregate", new Date(), events, new HashMap<>());
+    }
+
+    @Event
+    public static class ProjectionHandler {
+        final Map<String, List<Integer>> handledVersions = new ConcurrentHashMap<>();
+
+        @Subscribe
+        public void handleAsync(RebuildTestEvent evnt) {
+            handledVersions.computeIfAbsent(evnt.getAggregateRootId(), k -> Collections.synchronizedList(new ArrayList<>())).add(evnt.getVersion());
+        }
+    }
+
+    @Event
+    public static class OtherHandler {
+        final Map<String, List<Integer>> handledVersions = new ConcurrentHashMap<>();
+
+        @Subscribe
+        public void handleAsync(RebuildTestEvent evnt) {
+            handledVersions.computeIfAbsent(evnt.getAggregateRootId(), k -> Collections.synchronizedList(new ArrayList<>())).add(evnt.getVersion());
+        }
+    }
+
+    /**
+     * 只在本测试中使用的事件，其他测试不会把它分发给这里的处理器
+     */
+    public static class RebuildTestEvent extends AbstractDomainEventMessage<String> {
+    }
+}